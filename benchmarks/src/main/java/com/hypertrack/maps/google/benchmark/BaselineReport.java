@@ -0,0 +1,139 @@
+package com.hypertrack.maps.google.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares JMH results in CSV format with a recorded baseline and prints a report.
+ * <p>
+ * Arguments: baseline file, results file and the allowed relative slowdown, e.g. 0.1 for 10%.
+ * Exits with status 1 if a benchmark is slower than the baseline by more than the threshold
+ * and the difference is larger than the errors of both scores.
+ */
+public final class BaselineReport {
+
+    private static final class Score {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Score(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        boolean isThroughput() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    private BaselineReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineReport <baseline.csv> <results.csv> [threshold]");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[0]);
+        if (!baselineFile.exists()) {
+            System.err.println("No baseline at " + baselineFile + ", record it with the jmhBaseline task");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(baselineFile);
+        Map<String, Score> results = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+
+        int regressions = 0;
+        System.out.println(String.format(Locale.US, "%-90s %14s %14s %8s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score current = entry.getValue();
+            Score previous = baseline.get(entry.getKey());
+            if (previous == null || !previous.unit.equals(current.unit) || !previous.mode.equals(current.mode)) {
+                System.out.println(String.format(Locale.US, "%-90s %14s %14.3f %8s",
+                        entry.getKey(), "-", current.score, "new"));
+                continue;
+            }
+            // positive change is always a slowdown
+            double change = (current.score - previous.score) / previous.score;
+            if (current.isThroughput()) change = -change;
+            boolean isRegression = change > threshold
+                    && Math.abs(current.score - previous.score) > current.error + previous.error;
+            if (isRegression) regressions++;
+            System.out.println(String.format(Locale.US, "%-90s %14.3f %14.3f %+7.1f%%%s",
+                    entry.getKey(), previous.score, current.score, change * 100, isRegression ? " REGRESSION" : ""));
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                System.out.println(String.format(Locale.US, "%-90s %14.3f %14s %8s",
+                        key, baseline.get(key).score, "-", "missing"));
+            }
+        }
+        System.out.println(regressions + " regression(s) with threshold " + threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return scores by benchmark name with its parameters.
+     */
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8")));
+        try {
+            List<String> header = split(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                List<String> values = split(line);
+                StringBuilder key = new StringBuilder(values.get(header.indexOf("Benchmark")));
+                for (int i = 0; i < header.size(); i++) {
+                    if (header.get(i).startsWith("Param: ") && !values.get(i).isEmpty()) {
+                        key.append(' ').append(header.get(i).substring(7)).append('=').append(values.get(i));
+                    }
+                }
+                String error = values.get(header.indexOf("Score Error (99.9%)"));
+                scores.put(key.toString(), new Score(
+                        values.get(header.indexOf("Mode")),
+                        Double.parseDouble(values.get(header.indexOf("Score"))),
+                        error.isEmpty() || "NaN".equals(error) ? 0 : Double.parseDouble(error),
+                        values.get(header.indexOf("Unit"))));
+            }
+        } finally {
+            reader.close();
+        }
+        return scores;
+    }
+
+    private static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                isQuoted = !isQuoted;
+            } else if (c == ',' && !isQuoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hypertrack.maps.google.benchmark;
+
+import java.util.Random;
+
+/**
+ * Route of a synthetic trip: a random walk with a slowly turning heading, like a device driving through a city.
+ * Routes are deterministic for the same seed, so results of different runs are comparable.
+ */
+public final class SyntheticRoute {
+    public static final double START_LATITUDE = 37.7749;
+    public static final double START_LONGITUDE = -122.4194;
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+    private static final double MIN_STEP = 5;
+    private static final double MAX_STEP = 30;
+    private static final double MAX_TURN = Math.toRadians(20);
+
+    public final double[] latitudes;
+    public final double[] longitudes;
+
+    public SyntheticRoute(int count, long seed) {
+        latitudes = new double[count];
+        longitudes = new double[count];
+        Random random = new Random(seed);
+        double latitude = START_LATITUDE;
+        double longitude = START_LONGITUDE;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+            double step = MIN_STEP + random.nextDouble() * (MAX_STEP - MIN_STEP);
+            heading += (random.nextDouble() * 2 - 1) * MAX_TURN;
+            latitude += step * Math.cos(heading) / METERS_PER_DEGREE;
+            longitude += step * Math.sin(heading) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+        }
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+}
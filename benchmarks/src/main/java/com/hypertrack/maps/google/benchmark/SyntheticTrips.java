@@ -0,0 +1,169 @@
+package com.hypertrack.maps.google.benchmark;
+
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Trips of the views SDK built from {@link SyntheticRoute}s without the network and JSON parsing.
+ * Only the getters used by the adapter are overridden.
+ */
+public final class SyntheticTrips {
+
+    private SyntheticTrips() {
+    }
+
+    public static List<Location> locations(SyntheticRoute route) {
+        List<Location> locations = new ArrayList<>(route.size());
+        for (int i = 0; i < route.size(); i++) {
+            locations.add(new SyntheticLocation(route.latitudes[i], route.longitudes[i]));
+        }
+        return Collections.unmodifiableList(locations);
+    }
+
+    public static List<Trip.Point2D> points(SyntheticRoute route) {
+        List<Trip.Point2D> points = new ArrayList<>(route.size());
+        for (int i = 0; i < route.size(); i++) {
+            points.add(new SyntheticPoint(route.latitudes[i], route.longitudes[i]));
+        }
+        return Collections.unmodifiableList(points);
+    }
+
+    /**
+     * @param locations passed route, it's shared and not copied, so a live trip can be a growing view of one list.
+     * @param points    estimated route, may be empty.
+     */
+    public static Trip trip(String tripId, String deviceId, String status,
+                            List<Location> locations, List<Trip.Point2D> points) {
+        return new SyntheticTrip(tripId, deviceId, status, locations, points);
+    }
+
+    private static final class SyntheticTrip extends Trip {
+        private final String tripId;
+        private final String deviceId;
+        private final String status;
+        private final Summary summary;
+        private final Estimate estimate;
+        private final Destination destination;
+
+        SyntheticTrip(String tripId, String deviceId, String status,
+                      final List<Location> locations, final List<Point2D> points) {
+            this.tripId = tripId;
+            this.deviceId = deviceId;
+            this.status = status;
+            summary = new Summary() {
+                @Override
+                public List<Location> getLocations() {
+                    return locations;
+                }
+            };
+            final Route route = new Route() {
+                @Override
+                public List<Point2D> getPoints() {
+                    return points;
+                }
+            };
+            estimate = new Estimate() {
+                @Override
+                public Route getRoute() {
+                    return route;
+                }
+            };
+            destination = points.isEmpty() ? null : new SyntheticDestination(points.get(points.size() - 1));
+        }
+
+        @Override
+        public String getTripId() {
+            return tripId;
+        }
+
+        @Override
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public Summary getSummary() {
+            return summary;
+        }
+
+        @Override
+        public Estimate getEstimate() {
+            return estimate;
+        }
+
+        @Override
+        public Destination getDestination() {
+            return destination;
+        }
+    }
+
+    private static final class SyntheticDestination extends Trip.Destination {
+        private final Double latitude;
+        private final Double longitude;
+
+        SyntheticDestination(Trip.Point2D point) {
+            latitude = point.getLatitude();
+            longitude = point.getLongitude();
+            radius = 30;
+        }
+
+        @Override
+        public Double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public Double getLongitude() {
+            return longitude;
+        }
+    }
+
+    private static final class SyntheticPoint extends Trip.Point2D {
+        private final double latitude;
+        private final double longitude;
+
+        SyntheticPoint(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    private static final class SyntheticLocation extends Location {
+        private final double latitude;
+        private final double longitude;
+
+        SyntheticLocation(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.hypertrack.maps.google.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clusters of a fleet spread over a degree of a city: a zoom change reads the cells of the new zoom level,
+ * a device update moves the device between cells of all zoom levels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GridClustererBenchmark {
+    private static final int MIN_ZOOM_LEVEL = 8;
+    private static final int MAX_ZOOM_LEVEL = 14;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int devices;
+
+    private final GridClusterer clusterer = new GridClusterer(64);
+    private int[] items;
+    private final Random random = new Random(7);
+    private int step;
+
+    @Setup
+    public void setUp() {
+        items = new int[devices];
+        for (int i = 0; i < devices; i++) {
+            items[i] = clusterer.add(37 + random.nextDouble(), -123 + random.nextDouble());
+        }
+    }
+
+    @Benchmark
+    public void changeZoomLevel(final Blackhole blackhole) {
+        int zoom = MIN_ZOOM_LEVEL + step++ % (MAX_ZOOM_LEVEL - MIN_ZOOM_LEVEL + 1);
+        clusterer.visitCells(zoom, new GridClusterer.CellVisitor() {
+            @Override
+            public void visit(long cell, int count, int item, double latitude, double longitude) {
+                blackhole.consume(count);
+            }
+        });
+    }
+
+    @Benchmark
+    public boolean moveDevice() {
+        int item = items[step++ % devices];
+        return clusterer.move(item, 37 + random.nextDouble(), -123 + random.nextDouble());
+    }
+}
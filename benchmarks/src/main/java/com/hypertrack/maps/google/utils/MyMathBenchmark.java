@@ -0,0 +1,94 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Math helpers over the points of a route, the cost per point is the score divided by the count of points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MyMathBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    @Param({"false", "true"})
+    public boolean fastMath;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] mercatorY;
+
+    @Setup
+    public void setUp() {
+        SyntheticRoute route = new SyntheticRoute(points, 3);
+        latitudes = route.latitudes;
+        longitudes = route.longitudes;
+        mercatorY = new double[points];
+        for (int i = 0; i < points; i++) {
+            mercatorY[i] = MyMath.gudermannInverse(latitudes[i]);
+        }
+        TileSystem.setFastMathEnabled(fastMath);
+    }
+
+    @TearDown
+    public void tearDown() {
+        TileSystem.setFastMathEnabled(false);
+    }
+
+    @Benchmark
+    public void gudermannInverse(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(MyMath.gudermannInverse(latitudes[i]));
+        }
+    }
+
+    @Benchmark
+    public void gudermann(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(MyMath.gudermann(mercatorY[i]));
+        }
+    }
+
+    @Benchmark
+    public void floorToLong(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(MyMath.floorToLong(longitudes[i] * 1e6));
+        }
+    }
+
+    @Benchmark
+    public void mod(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(MyMath.mod((int) (longitudes[i] * 1e4), 1 << 16));
+        }
+    }
+
+    @Benchmark
+    public void angleDifference(Blackhole blackhole) {
+        for (int i = 1; i < points; i++) {
+            double bearing = Math.toDegrees(Math.atan2(longitudes[i] - longitudes[i - 1], latitudes[i] - latitudes[i - 1]));
+            blackhole.consume(MyMath.getAngleDifference(0, bearing, null));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.hypertrack.maps.google.utils;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A route stored as packed E7 coordinates and as a list of LatLng. Run with {@code -prof gc},
+ * gc.alloc.rate.norm is the heap a route of the size takes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackedRouteBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    private SyntheticRoute route;
+
+    @Setup
+    public void setUp() {
+        route = new SyntheticRoute(points, 5);
+    }
+
+    @Benchmark
+    public PackedRoute packedRoute() {
+        PackedRoute packed = new PackedRoute(points);
+        for (int i = 0; i < points; i++) {
+            packed.add(route.latitudes[i], route.longitudes[i]);
+        }
+        return packed;
+    }
+
+    @Benchmark
+    public List<LatLng> latLngList() {
+        List<LatLng> list = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            list.add(new LatLng(route.latitudes[i], route.longitudes[i]));
+        }
+        return list;
+    }
+}
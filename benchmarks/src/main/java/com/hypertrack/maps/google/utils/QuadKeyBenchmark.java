@@ -0,0 +1,116 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quadkeys of route points as strings and as longs, navigation in the quadtree and the spatial index built on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuadKeyBenchmark {
+    private static final int ZOOM_LEVEL = 18;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private int[] tileX;
+    private int[] tileY;
+    private long[] quadKeys;
+    private QuadTreeIndex<Object> index;
+
+    @Setup
+    public void setUp() {
+        SyntheticRoute route = new SyntheticRoute(points, 2);
+        latitudes = route.latitudes;
+        longitudes = route.longitudes;
+        double mapSize = TileSystem.MapSize(ZOOM_LEVEL);
+        long[] x = new long[points];
+        long[] y = new long[points];
+        TileSystem.getMercatorFromLatLng(latitudes, longitudes, 0, points, mapSize, x, y);
+        tileX = new int[points];
+        tileY = new int[points];
+        quadKeys = new long[points];
+        for (int i = 0; i < points; i++) {
+            tileX[i] = TileSystem.getTileFromMercator(x[i], TileSystem.getTileSize());
+            tileY[i] = TileSystem.getTileFromMercator(y[i], TileSystem.getTileSize());
+            quadKeys[i] = TileSystem.getQuadKey(tileX[i], tileY[i], ZOOM_LEVEL);
+        }
+        index = buildIndex();
+    }
+
+    @Benchmark
+    public void stringQuadKeys(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.TileXYToQuadKey(tileX[i], tileY[i], ZOOM_LEVEL));
+        }
+    }
+
+    @Benchmark
+    public void longQuadKeys(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.getQuadKey(tileX[i], tileY[i], ZOOM_LEVEL));
+        }
+    }
+
+    @Benchmark
+    public void decodeLongQuadKeys(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.getQuadKeyTileX(quadKeys[i]));
+            blackhole.consume(TileSystem.getQuadKeyTileY(quadKeys[i]));
+        }
+    }
+
+    @Benchmark
+    public void parentsAndNeighbors(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.getQuadKeyParent(quadKeys[i]));
+            blackhole.consume(TileSystem.getQuadKeyNeighbor(quadKeys[i], 1, 1));
+        }
+    }
+
+    @Benchmark
+    public QuadTreeIndex<Object> buildIndex() {
+        QuadTreeIndex<Object> index = new QuadTreeIndex<>();
+        List<QuadTreeIndex.Entry<Object>> entries = new ArrayList<>(points);
+        index.addPolyline(this, latitudes, longitudes, points, entries);
+        return index;
+    }
+
+    @Benchmark
+    public List<Object> queryIndex() {
+        List<Object> result = new ArrayList<>();
+        int middle = points / 2;
+        index.query(latitudes[middle] - 0.005, longitudes[middle] - 0.005,
+                latitudes[middle] + 0.005, longitudes[middle] + 0.005, result);
+        return result;
+    }
+
+    @Benchmark
+    public Object nearestInIndex() {
+        int middle = points / 2;
+        return index.nearest(latitudes[middle] + 0.001, longitudes[middle] + 0.001);
+    }
+}
@@ -0,0 +1,165 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Position of a device on the estimated route, it's what used to be {@code locationPositionInRoute}.
+ * A device moving along the route is matched near the cursor, random locations take the grid search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteMatcherBenchmark {
+    private static final int LOCATIONS = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    private SyntheticRoute route;
+    private final RouteMatcher matcher = new RouteMatcher();
+    private final double[] randomLatitudes = new double[LOCATIONS];
+    private final double[] randomLongitudes = new double[LOCATIONS];
+    private int step;
+
+    @Setup
+    public void setUp() {
+        route = new SyntheticRoute(points, 4);
+        matcher.reset();
+        for (int i = 0; i < points; i++) {
+            matcher.add(route.latitudes[i], route.longitudes[i]);
+        }
+        Random random = new Random(4);
+        for (int i = 0; i < LOCATIONS; i++) {
+            int index = random.nextInt(points);
+            randomLatitudes[i] = route.latitudes[index] + (random.nextDouble() - 0.5) * 1e-4;
+            randomLongitudes[i] = route.longitudes[index] + (random.nextDouble() - 0.5) * 1e-4;
+        }
+        // builds the grid
+        matcher.match(randomLatitudes[0], randomLongitudes[0]);
+    }
+
+    @Benchmark
+    public int matchAlongRoute() {
+        int index = step++ % points;
+        return matcher.match(route.latitudes[index] + 2e-5, route.longitudes[index] - 2e-5);
+    }
+
+    @Benchmark
+    public int matchRandomLocation() {
+        int index = step++ & (LOCATIONS - 1);
+        return matcher.match(randomLatitudes[index], randomLongitudes[index]);
+    }
+
+    @Benchmark
+    public RouteMatcher buildAndMatch() {
+        RouteMatcher matcher = new RouteMatcher();
+        for (int i = 0; i < points; i++) {
+            matcher.add(route.latitudes[i], route.longitudes[i]);
+        }
+        matcher.match(randomLatitudes[0], randomLongitudes[0]);
+        return matcher;
+    }
+
+    /**
+     * Previous {@code locationPositionInRoute} for the same random locations, to compare with {@link #matchRandomLocation()}.
+     */
+    @Benchmark
+    public int nearestPointSearch() {
+        int index = step++ & (LOCATIONS - 1);
+        return nearestPoint(route, randomLatitudes[index], randomLongitudes[index]);
+    }
+
+    /**
+     * Previous implementation: the nearest route point by {@code Location.distanceBetween}.
+     */
+    private static int nearestPoint(SyntheticRoute route, double latitude, double longitude) {
+        float minDistance = Integer.MAX_VALUE;
+        int position = 0;
+        for (int i = 0; i < route.latitudes.length; i++) {
+            float[] results = new float[1];
+            distanceBetween(latitude, longitude, route.latitudes[i], route.longitudes[i], results);
+            if (results[0] < minDistance) {
+                minDistance = results[0];
+                position = i;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Vincenty inverse formula as in android.location.Location.distanceBetween.
+     */
+    private static void distanceBetween(double lat1, double lon1, double lat2, double lon2, float[] results) {
+        lat1 *= Math.PI / 180.0;
+        lat2 *= Math.PI / 180.0;
+        lon1 *= Math.PI / 180.0;
+        lon2 *= Math.PI / 180.0;
+
+        double a = 6378137.0;
+        double b = 6356752.3142;
+        double f = (a - b) / a;
+        double aSqMinusBSqOverBSq = (a * a - b * b) / (b * b);
+
+        double l = lon2 - lon1;
+        double aa = 0.0;
+        double u1 = Math.atan((1.0 - f) * Math.tan(lat1));
+        double u2 = Math.atan((1.0 - f) * Math.tan(lat2));
+
+        double cosU1 = Math.cos(u1);
+        double cosU2 = Math.cos(u2);
+        double sinU1 = Math.sin(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double lambda = l;
+        for (int iter = 0; iter < 20; iter++) {
+            double lambdaOrig = lambda;
+            double cosLambda = Math.cos(lambda);
+            double sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            double cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = (sinSigma == 0) ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+            double cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            double cos2SM = (cosSqAlpha == 0) ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+            aa = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double bb = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double c = (f / 16.0) * cosSqAlpha * (4.0 + f * (4.0 - 3.0 * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = bb * sinSigma * (cos2SM + (bb / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq)
+                    - (bb / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+            lambda = l + (1.0 - c) * f * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SM + c * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+            if (Math.abs((lambda - lambdaOrig) / lambda) < 1.0e-12) {
+                break;
+            }
+        }
+        results[0] = (float) (b * aa * (sigma - deltaSigma));
+    }
+}
@@ -0,0 +1,133 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projection of whole routes between latitude/longitude, [0,1] map coordinates and Mercator pixels,
+ * one point at a time and with the batch methods, with exact and table-driven math.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TileSystemBenchmark {
+    private static final double MAP_SIZE = TileSystem.MapSize(15.5);
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    @Param({"false", "true"})
+    public boolean fastMath;
+
+    private final TileSystem tileSystem = new TileSystem() {
+    };
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] x01;
+    private double[] y01;
+    private long[] mercatorX;
+    private long[] mercatorY;
+    private double[] outLatitudes;
+    private double[] outLongitudes;
+
+    @Setup
+    public void setUp() {
+        SyntheticRoute route = new SyntheticRoute(points, 1);
+        latitudes = route.latitudes;
+        longitudes = route.longitudes;
+        x01 = new double[points];
+        y01 = new double[points];
+        mercatorX = new long[points];
+        mercatorY = new long[points];
+        outLatitudes = new double[points];
+        outLongitudes = new double[points];
+        TileSystem.setFastMathEnabled(fastMath);
+        TileSystem.getXY01FromLatLng(latitudes, longitudes, 0, points, x01, y01);
+        TileSystem.getMercatorFromLatLng(latitudes, longitudes, 0, points, MAP_SIZE, mercatorX, mercatorY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        TileSystem.setFastMathEnabled(false);
+    }
+
+    @Benchmark
+    public void latLngToXY01(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.getX01FromLongitude(longitudes[i]));
+            blackhole.consume(TileSystem.getY01FromLatitude(latitudes[i]));
+        }
+    }
+
+    @Benchmark
+    public double[] latLngToXY01Batch() {
+        TileSystem.getXY01FromLatLng(latitudes, longitudes, 0, points, x01, y01);
+        return x01;
+    }
+
+    @Benchmark
+    public void xy01ToLatLng(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.getLongitudeFromX01(x01[i]));
+            blackhole.consume(TileSystem.getLatitudeFromY01(y01[i]));
+        }
+    }
+
+    @Benchmark
+    public void latLngToMercator(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(tileSystem.getMercatorFromXY01(TileSystem.getX01FromLongitude(longitudes[i]), MAP_SIZE, true));
+            blackhole.consume(tileSystem.getMercatorFromXY01(TileSystem.getY01FromLatitude(latitudes[i]), MAP_SIZE, false));
+        }
+    }
+
+    @Benchmark
+    public long[] latLngToMercatorBatch() {
+        TileSystem.getMercatorFromLatLng(latitudes, longitudes, 0, points, MAP_SIZE, mercatorX, mercatorY);
+        return mercatorX;
+    }
+
+    @Benchmark
+    public double[] xy01ToLatLngBatch() {
+        TileSystem.getLatLngFromXY01(x01, y01, 0, points, outLatitudes, outLongitudes);
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public double[] mercatorToLatLngBatch() {
+        TileSystem.getLatLngFromMercator(mercatorX, mercatorY, 0, points, MAP_SIZE, outLatitudes, outLongitudes);
+        return outLatitudes;
+    }
+
+    @Benchmark
+    public void mapSize(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.MapSize(i % 2200 / 100.0));
+        }
+    }
+
+    @Benchmark
+    public void groundResolution(Blackhole blackhole) {
+        for (int i = 0; i < points; i++) {
+            blackhole.consume(TileSystem.GroundResolution(latitudes[i], 15.5));
+        }
+    }
+}
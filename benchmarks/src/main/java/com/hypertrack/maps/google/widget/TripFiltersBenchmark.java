@@ -0,0 +1,103 @@
+package com.hypertrack.maps.google.widget;
+
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+import com.hypertrack.maps.google.benchmark.SyntheticTrips;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+import com.hypertrack.sdk.views.maps.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering of a fleet of trips. Repeated trip instances are answered from the cache,
+ * updated trips come as new instances and are evaluated again.
+ * Filters look at the passed route, so the cost of evaluation grows with the count of points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TripFiltersBenchmark {
+    private static final int TRIPS = 100;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    private final TripFilters filters = new TripFilters();
+    private Trip[] trips;
+    private Trip[] updatedTrips;
+    private Predicate<Trip> moving;
+
+    @Setup
+    public void setUp() {
+        List<Location> locations = SyntheticTrips.locations(new SyntheticRoute(points, 7));
+        List<Trip.Point2D> noRoute = Collections.emptyList();
+        trips = new Trip[TRIPS];
+        updatedTrips = new Trip[TRIPS];
+        for (int i = 0; i < TRIPS; i++) {
+            String status = i % 4 == 0 ? "completed" : "active";
+            trips[i] = SyntheticTrips.trip("trip" + i, "device" + i, status, locations, noRoute);
+            updatedTrips[i] = SyntheticTrips.trip("trip" + i, "device" + i, status, locations, noRoute);
+        }
+        filters.add(new Predicate<Trip>() {
+            @Override
+            public boolean apply(Trip trip) {
+                return "active".equals(trip.getStatus());
+            }
+        });
+        moving = new Predicate<Trip>() {
+            @Override
+            public boolean apply(Trip trip) {
+                List<Location> locations = trip.getSummary().getLocations();
+                double distance = 0;
+                for (int i = 1; i < locations.size(); i++) {
+                    distance += Math.abs(locations.get(i).getLatitude() - locations.get(i - 1).getLatitude())
+                            + Math.abs(locations.get(i).getLongitude() - locations.get(i - 1).getLongitude());
+                }
+                return distance > 0;
+            }
+        };
+        filters.add(moving);
+        for (Trip trip : trips) {
+            filters.apply(trip);
+        }
+    }
+
+    @Benchmark
+    public void applyCached(Blackhole blackhole) {
+        for (Trip trip : trips) {
+            blackhole.consume(filters.apply(trip));
+        }
+    }
+
+    @Benchmark
+    public void applyUpdated(Blackhole blackhole) {
+        for (int i = 0; i < TRIPS; i++) {
+            blackhole.consume(filters.apply(updatedTrips[i]));
+            blackhole.consume(filters.apply(trips[i]));
+        }
+    }
+
+    @Benchmark
+    public List<String> toggleFilter() {
+        filters.remove(moving);
+        return filters.add(moving);
+    }
+}
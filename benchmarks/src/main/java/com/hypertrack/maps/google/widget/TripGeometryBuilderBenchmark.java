@@ -0,0 +1,100 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.hypertrack.maps.google.benchmark.SyntheticRoute;
+import com.hypertrack.maps.google.benchmark.SyntheticTrips;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route lists of a trip, what used to be built in {@code GMapTrip.updateData} and is now built by
+ * {@link TripGeometryBuilder} on the geometry worker.
+ * <p>
+ * {@link #buildTrip()} converts a trip the builder hasn't seen, e.g. the first update or a zoom change.
+ * {@link #appendLocation(LiveTrip)} is an update of a live trip with one more location, it runs in batches of
+ * {@link #APPENDS} updates after a full build, so the score is the time of the whole batch.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+public class TripGeometryBuilderBenchmark {
+    private static final float TOLERANCE = 2;
+    private static final int ZOOM_LEVEL = 15;
+    private static final int APPENDS = 1000;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int points;
+
+    private Trip trip;
+    private Trip[] liveTrips;
+    private LatLng[] livePositions;
+
+    /**
+     * Builder that has converted the live trip before a batch of appends.
+     */
+    @State(Scope.Thread)
+    public static class LiveTrip {
+        TripGeometryBuilder builder;
+        int update;
+
+        @Setup(Level.Iteration)
+        public void setUp(TripGeometryBuilderBenchmark benchmark) {
+            builder = new TripGeometryBuilder(TOLERANCE);
+            builder.build(new TripGeometryBuilder.Request(benchmark.liveTrips[0], benchmark.livePositions[0], ZOOM_LEVEL));
+            update = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        SyntheticRoute summary = new SyntheticRoute(points + APPENDS, 5);
+        SyntheticRoute estimate = new SyntheticRoute(points, 6);
+        List<Location> locations = SyntheticTrips.locations(summary);
+        List<Trip.Point2D> route = SyntheticTrips.points(estimate);
+
+        trip = SyntheticTrips.trip("trip", "device", "active", locations.subList(0, points), route);
+        liveTrips = new Trip[APPENDS + 1];
+        livePositions = new LatLng[APPENDS + 1];
+        for (int i = 0; i <= APPENDS; i++) {
+            int count = points + i;
+            liveTrips[i] = SyntheticTrips.trip("trip", "device", "active", locations.subList(0, count), route);
+            livePositions[i] = new LatLng(summary.latitudes[count - 1], summary.longitudes[count - 1]);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public TripGeometry buildTrip() {
+        return new TripGeometryBuilder(TOLERANCE)
+                .build(new TripGeometryBuilder.Request(trip, livePositions[0], ZOOM_LEVEL));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10, batchSize = APPENDS)
+    @Measurement(iterations = 10, batchSize = APPENDS)
+    public TripGeometry appendLocation(LiveTrip live) {
+        live.update++;
+        return live.builder.build(new TripGeometryBuilder.Request(
+                liveTrips[live.update], livePositions[live.update], ZOOM_LEVEL));
+    }
+}
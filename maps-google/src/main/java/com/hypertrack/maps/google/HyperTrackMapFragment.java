@@ -25,6 +25,12 @@ import com.hypertrack.sdk.views.dao.Trip;
 import com.hypertrack.sdk.views.maps.GpsLocationProvider;
 import com.hypertrack.sdk.views.maps.HyperTrackMap;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A class extends SupportMapFragment and includes all needed sdk initializations to simplify
@@ -37,11 +43,18 @@ import com.hypertrack.sdk.views.maps.HyperTrackMap;
 public class HyperTrackMapFragment extends SupportMapFragment
         implements OnMapReadyCallback, LocationListener, DeviceUpdatesHandler {
     private static final String TAG = "HTMapFragment";
+    private static final String FLEET_LOCATION_PROVIDER = "hypertrack";
+    /**
+     * Min distance in meters between locations of a fleet device to update its bearing.
+     */
+    private static final float MIN_BEARING_DISTANCE = 2;
 
     private GoogleMapConfig mapConfig;
     protected HyperTrackViews hyperTrackViews;
     protected HyperTrackMap hyperTrackMap;
+    private GoogleMapAdapter mapAdapter;
     private String subscribedDeviceId;
+    private final Map<String, FleetDeviceHandler> fleetDevices = new LinkedHashMap<>();
 
     /**
      * Provide GoogleMapConfig for {@link HyperTrackMap}.
@@ -63,8 +76,12 @@ public class HyperTrackMapFragment extends SupportMapFragment
             String hyperTrackPubKey = app.metaData.getString("com.hypertrack.sdk.PUB_KEY");
             if (TextUtils.isEmpty(hyperTrackPubKey)) {
                 Log.e(TAG, "There is not HyperTrack PUB_KEY in manifest");
-            } else {
+            } else if (hyperTrackViews == null) {
                 hyperTrackViews = HyperTrackViews.getInstance(layoutInflater.getContext(), hyperTrackPubKey);
+                // devices of subscribeToDevices calls made before the view was created
+                for (FleetDeviceHandler device : fleetDevices.values()) {
+                    device.subscribe();
+                }
             }
         } catch (PackageManager.NameNotFoundException e) {
             e.printStackTrace();
@@ -90,10 +107,14 @@ public class HyperTrackMapFragment extends SupportMapFragment
             if (mapConfig == null) {
                 mapConfig = GoogleMapConfig.newBuilder(getContext()).build();
             }
-            GoogleMapAdapter mapAdapter = new GoogleMapAdapter(googleMap, mapConfig);
+            mapAdapter = new GoogleMapAdapter(googleMap, mapConfig);
+            mapAdapter.attachCameraIdleListener();
             hyperTrackMap = HyperTrackMap.getInstance(getContext(), mapAdapter)
                     .bind(new GpsLocationProvider(getContext()));
             hyperTrackMap.setLocationUpdatesListener(this);
+            for (FleetDeviceHandler device : fleetDevices.values()) {
+                device.applyLastLocation();
+            }
         }
 
     }
@@ -116,6 +137,54 @@ public class HyperTrackMapFragment extends SupportMapFragment
         }
     }
 
+    /**
+     * Subscribes to locations of a fleet of devices. Every device has its own location marker
+     * on the map, see {@link GoogleMapAdapter#updateDeviceLocation(String, Location)}.
+     * Devices that aren't in the collection any more are unsubscribed and removed from the map.
+     * <p>
+     * Locations are applied to the map once per frame, so the cost of rendering doesn't grow
+     * with the rate of updates. The device of {@link #subscribeToDevice(String)} shouldn't be in the fleet.
+     * Devices of a call made before the view is created are subscribed when the view is created.
+     *
+     * @param deviceIds HyperTrack device ids.
+     */
+    public void subscribeToDevices(@NonNull Collection<String> deviceIds) {
+        Set<String> subscribedIds = new HashSet<>(deviceIds);
+        for (String deviceId : new ArrayList<>(fleetDevices.keySet())) {
+            if (!subscribedIds.contains(deviceId)) {
+                unsubscribeFromFleetDevice(deviceId);
+            }
+        }
+        for (String deviceId : deviceIds) {
+            if (!fleetDevices.containsKey(deviceId)) {
+                FleetDeviceHandler device = new FleetDeviceHandler(deviceId);
+                fleetDevices.put(deviceId, device);
+                if (hyperTrackViews != null) {
+                    device.subscribe();
+                }
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes from all devices of the fleet and removes their locations from the map.
+     */
+    public void unsubscribeFromDevices() {
+        for (String deviceId : new ArrayList<>(fleetDevices.keySet())) {
+            unsubscribeFromFleetDevice(deviceId);
+        }
+    }
+
+    private void unsubscribeFromFleetDevice(String deviceId) {
+        fleetDevices.remove(deviceId);
+        if (hyperTrackViews != null && !deviceId.equals(subscribedDeviceId)) {
+            hyperTrackViews.stopSubscription(deviceId);
+        }
+        if (mapAdapter != null) {
+            mapAdapter.removeDeviceLocation(deviceId);
+        }
+    }
+
     /**
      * Subscribes trip {@link DeviceUpdatesHandler} updates on map e.g. {@link #onTripUpdateReceived(Trip)}
      *
@@ -212,6 +281,8 @@ public class HyperTrackMapFragment extends SupportMapFragment
     @Override
     public void onDestroy() {
         super.onDestroy();
+        fleetDevices.clear();
+        mapAdapter = null;
         if (hyperTrackViews != null) {
             hyperTrackViews.stopAllUpdates();
             hyperTrackViews = null;
@@ -221,4 +292,69 @@ public class HyperTrackMapFragment extends SupportMapFragment
             hyperTrackMap = null;
         }
     }
+
+    /**
+     * Receives updates of one fleet device and pushes its locations into the adapter.
+     * The SDK doesn't tell the device of an update, so every device has its own handler.
+     */
+    private class FleetDeviceHandler implements DeviceUpdatesHandler {
+        private final String deviceId;
+        private Location lastLocation;
+
+        FleetDeviceHandler(String deviceId) {
+            this.deviceId = deviceId;
+        }
+
+        void subscribe() {
+            hyperTrackViews.subscribeToDeviceUpdates(deviceId, this);
+        }
+
+        void applyLastLocation() {
+            if (lastLocation != null && mapAdapter != null) {
+                mapAdapter.updateDeviceLocation(deviceId, lastLocation);
+            }
+        }
+
+        @Override
+        public void onLocationUpdateReceived(@NonNull com.hypertrack.sdk.views.dao.Location location) {
+            if (fleetDevices.get(deviceId) != this) {
+                return;
+            }
+            Location update = new Location(FLEET_LOCATION_PROVIDER);
+            update.setLatitude(location.getLatitude());
+            update.setLongitude(location.getLongitude());
+            if (lastLocation != null) {
+                // bearing is kept while the device stands still
+                update.setBearing(lastLocation.distanceTo(update) < MIN_BEARING_DISTANCE ?
+                        lastLocation.getBearing() : lastLocation.bearingTo(update));
+            }
+            lastLocation = update;
+            applyLastLocation();
+        }
+
+        @Override
+        public void onBatteryStateUpdateReceived(int i) {
+
+        }
+
+        @Override
+        public void onStatusUpdateReceived(@NonNull StatusUpdate statusUpdate) {
+
+        }
+
+        @Override
+        public void onTripUpdateReceived(@NonNull Trip trip) {
+
+        }
+
+        @Override
+        public void onError(Exception e, String s) {
+            Log.e(TAG, "Updates of device " + deviceId + " failed: " + s, e);
+        }
+
+        @Override
+        public void onCompleted(String s) {
+
+        }
+    }
 }
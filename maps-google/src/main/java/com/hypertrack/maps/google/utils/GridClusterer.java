@@ -0,0 +1,431 @@
+package com.hypertrack.maps.google.utils;
+
+import java.util.Arrays;
+
+/**
+ * Groups points into clusters by a grid of map pixels, for every zoom level from 0 to {@link #MAX_ZOOM_LEVEL}.
+ *
+ * The grid is aligned with tiles of {@link TileSystem}: a cell at a zoom level is split into four cells
+ * at the next zoom level, so the cell of a point at any zoom level is a bit shift of its Mercator coordinates,
+ * that are computed once per point. Counts and centroids of cells are kept for all zoom levels and updated
+ * when a point is added, moved or removed, so a zoom change only reads cells of the new zoom level
+ * instead of clustering all points again.
+ *
+ * Cell size is measured in pixels of a 256 pixels tile, e.g. density independent pixels of Google Maps,
+ * and rounded down to a power of two. Queries don't allocate.
+ */
+public class GridClusterer {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	public static final int MAX_ZOOM_LEVEL = 21;
+
+	/**
+	 * Mercator coordinates of points are stored as ints in [0, 2^WORLD_BITS).
+	 */
+	private static final int WORLD_BITS = 30;
+	private static final double WORLD_SIZE = 1 << WORLD_BITS;
+	private static final int TILE_BITS = 8;
+
+	public static final long NO_CELL = -1;
+	public static final int NO_ITEM = -1;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final int mCellBits;
+	private final Level[] mLevels = new Level[MAX_ZOOM_LEVEL + 1];
+
+	private int[] mX = new int[16];
+	private int[] mY = new int[16];
+	private int mSize;
+	private int[] mFree = new int[16];
+	private int mFreeCount;
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	/**
+	 * @param pCellSize cell size in pixels of a 256 pixels tile, from 1 to 256.
+	 */
+	public GridClusterer(final int pCellSize) {
+		int cellBits = 0;
+		while (cellBits < TILE_BITS && (2 << cellBits) <= pCellSize) {
+			cellBits++;
+		}
+		mCellBits = cellBits;
+		for (int i = 0; i < mLevels.length; i++) {
+			mLevels[i] = new Level();
+		}
+	}
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	/**
+	 * @return cell size in pixels of a 256 pixels tile.
+	 */
+	public int getCellSize() {
+		return 1 << mCellBits;
+	}
+
+	/**
+	 * @return count of points.
+	 */
+	public int getCount() {
+		return mSize - mFreeCount;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * @return id of the new point, ids of removed points are reused.
+	 */
+	public int add(final double pLatitude, final double pLongitude) {
+		return add(getWorldX(pLongitude), getWorldY(pLatitude));
+	}
+
+	private int add(final int pX, final int pY) {
+		final int item;
+		if (mFreeCount > 0) {
+			item = mFree[--mFreeCount];
+		} else {
+			item = mSize++;
+			if (item == mX.length) {
+				mX = grow(mX);
+				mY = grow(mY);
+			}
+		}
+		mX[item] = pX;
+		mY[item] = pY;
+		for (int zoom = 0; zoom <= MAX_ZOOM_LEVEL; zoom++) {
+			mLevels[zoom].add(getCell(pX, pY, zoom), pX, pY, item);
+		}
+		return item;
+	}
+
+	/**
+	 * Adds points in one batch, see {@link TileSystem#getXY01FromLatLng(double[], double[], int, int, double[], double[])}.
+	 *
+	 * @param pOutItems array for ids of the new points, it can be null.
+	 */
+	public void addAll(final double[] pLatitudes, final double[] pLongitudes, final int pCount, final int[] pOutItems) {
+		final double[] x01 = new double[pCount];
+		final double[] y01 = new double[pCount];
+		TileSystem.getXY01FromLatLng(pLatitudes, pLongitudes, 0, pCount, x01, y01);
+		for (int i = 0; i < pCount; i++) {
+			final int item = add(toWorld(x01[i]), toWorld(y01[i]));
+			if (pOutItems != null) {
+				pOutItems[i] = item;
+			}
+		}
+	}
+
+	/**
+	 * Moves the point. Only cells that the point leaves or enters are updated, other cells get a new centroid.
+	 *
+	 * @return true if the point has moved at least by one Mercator unit (about 4cm at the equator).
+	 */
+	public boolean move(final int pItem, final double pLatitude, final double pLongitude) {
+		checkItem(pItem);
+		final int oldX = mX[pItem];
+		final int oldY = mY[pItem];
+		final int x = getWorldX(pLongitude);
+		final int y = getWorldY(pLatitude);
+		if (x == oldX && y == oldY) {
+			return false;
+		}
+		mX[pItem] = x;
+		mY[pItem] = y;
+		for (int zoom = 0; zoom <= MAX_ZOOM_LEVEL; zoom++) {
+			final Level level = mLevels[zoom];
+			final long oldCell = getCell(oldX, oldY, zoom);
+			final long cell = getCell(x, y, zoom);
+			if (oldCell == cell) {
+				level.shift(cell, x - oldX, y - oldY);
+			} else {
+				level.remove(oldCell, oldX, oldY, pItem);
+				level.add(cell, x, y, pItem);
+			}
+		}
+		return true;
+	}
+
+	public void remove(final int pItem) {
+		checkItem(pItem);
+		final int x = mX[pItem];
+		final int y = mY[pItem];
+		for (int zoom = 0; zoom <= MAX_ZOOM_LEVEL; zoom++) {
+			mLevels[zoom].remove(getCell(x, y, zoom), x, y, pItem);
+		}
+		mX[pItem] = -1;
+		mY[pItem] = -1;
+		if (mFreeCount == mFree.length) {
+			mFree = grow(mFree);
+		}
+		mFree[mFreeCount++] = pItem;
+	}
+
+	public void clear() {
+		for (Level level : mLevels) {
+			level.clear();
+		}
+		mSize = 0;
+		mFreeCount = 0;
+	}
+
+	/**
+	 * @return cell of the point at the zoom level.
+	 */
+	public long getCell(final int pItem, final int pZoomLevel) {
+		checkItem(pItem);
+		return getCell(mX[pItem], mY[pItem], clipZoomLevel(pZoomLevel));
+	}
+
+	/**
+	 * @return cell of the location at the zoom level.
+	 */
+	public long getCell(final double pLatitude, final double pLongitude, final int pZoomLevel) {
+		return getCell(getWorldX(pLongitude), getWorldY(pLatitude), clipZoomLevel(pZoomLevel));
+	}
+
+	/**
+	 * @return count of points in the cell, 0 for an empty or unknown cell.
+	 */
+	public int getCellCount(final long pCell, final int pZoomLevel) {
+		final Level level = mLevels[clipZoomLevel(pZoomLevel)];
+		final int slot = level.find(pCell);
+		return slot < 0 ? 0 : level.mCounts[slot];
+	}
+
+	/**
+	 * @return the only point of the cell, {@link #NO_ITEM} if the cell doesn't have exactly one point.
+	 */
+	public int getCellItem(final long pCell, final int pZoomLevel) {
+		final Level level = mLevels[clipZoomLevel(pZoomLevel)];
+		final int slot = level.find(pCell);
+		return slot < 0 || level.mCounts[slot] != 1 ? NO_ITEM : level.mItems[slot];
+	}
+
+	/**
+	 * @return latitude of the centroid of points in the cell, NaN for an empty cell.
+	 */
+	public double getCellLatitude(final long pCell, final int pZoomLevel) {
+		final Level level = mLevels[clipZoomLevel(pZoomLevel)];
+		final int slot = level.find(pCell);
+		return slot < 0 || level.mCounts[slot] == 0 ? Double.NaN
+				: TileSystem.getLatitudeFromY01(level.mSumY[slot] / (level.mCounts[slot] * WORLD_SIZE));
+	}
+
+	/**
+	 * @return longitude of the centroid of points in the cell, NaN for an empty cell.
+	 */
+	public double getCellLongitude(final long pCell, final int pZoomLevel) {
+		final Level level = mLevels[clipZoomLevel(pZoomLevel)];
+		final int slot = level.find(pCell);
+		return slot < 0 || level.mCounts[slot] == 0 ? Double.NaN
+				: TileSystem.getLongitudeFromX01(level.mSumX[slot] / (level.mCounts[slot] * WORLD_SIZE));
+	}
+
+	/**
+	 * @return count of non-empty cells at the zoom level.
+	 */
+	public int getClusterCount(final int pZoomLevel) {
+		return mLevels[clipZoomLevel(pZoomLevel)].mCellCount;
+	}
+
+	/**
+	 * Visits every non-empty cell at the zoom level, in no particular order.
+	 */
+	public void visitCells(final int pZoomLevel, final CellVisitor pVisitor) {
+		final Level level = mLevels[clipZoomLevel(pZoomLevel)];
+		final long[] keys = level.mKeys;
+		for (int slot = 0; slot < keys.length; slot++) {
+			final int count = level.mCounts[slot];
+			if (keys[slot] == NO_CELL || count == 0) {
+				continue;
+			}
+			pVisitor.visit(keys[slot], count, count == 1 ? level.mItems[slot] : NO_ITEM,
+					TileSystem.getLatitudeFromY01(level.mSumY[slot] / (count * WORLD_SIZE)),
+					TileSystem.getLongitudeFromX01(level.mSumX[slot] / (count * WORLD_SIZE)));
+		}
+	}
+
+	private long getCell(final int pX, final int pY, final int pZoomLevel) {
+		final int shift = WORLD_BITS - TILE_BITS - pZoomLevel + mCellBits;
+		return ((long) (pX >>> shift) << 32) | (pY >>> shift);
+	}
+
+	private static int getWorldX(final double pLongitude) {
+		return toWorld(TileSystem.getX01FromLongitude(pLongitude));
+	}
+
+	private static int getWorldY(final double pLatitude) {
+		return toWorld(TileSystem.getY01FromLatitude(pLatitude));
+	}
+
+	private static int toWorld(final double pXY01) {
+		return (int) Math.min(WORLD_SIZE - 1, MyMath.floorToLong(pXY01 * WORLD_SIZE));
+	}
+
+	private static int clipZoomLevel(final int pZoomLevel) {
+		return Math.min(Math.max(pZoomLevel, 0), MAX_ZOOM_LEVEL);
+	}
+
+	private void checkItem(final int pItem) {
+		if (pItem < 0 || pItem >= mSize || mX[pItem] < 0) {
+			throw new IllegalArgumentException("Unknown item: " + pItem);
+		}
+	}
+
+	private static int[] grow(final int[] pArray) {
+		final int[] result = new int[pArray.length * 2];
+		System.arraycopy(pArray, 0, result, 0, pArray.length);
+		return result;
+	}
+
+	// ===========================================================
+	// Inner and Anonymous Classes
+	// ===========================================================
+
+	public interface CellVisitor {
+		/**
+		 * @param pItem the only point of the cell, {@link #NO_ITEM} if there are several points.
+		 */
+		void visit(long pCell, int pCount, int pItem, double pLatitude, double pLongitude);
+	}
+
+	/**
+	 * Cells of one zoom level in an open addressing hash table. Cells that become empty keep their slots
+	 * until the table is rebuilt, the only point of a cell is the xor of ids of its points.
+	 */
+	private static class Level {
+		private static final int MIN_CAPACITY = 16;
+
+		private long[] mKeys;
+		private int[] mCounts;
+		private long[] mSumX;
+		private long[] mSumY;
+		private int[] mItems;
+		private int mSlotCount;
+		private int mCellCount;
+
+		Level() {
+			allocate(MIN_CAPACITY);
+		}
+
+		void add(final long pCell, final int pX, final int pY, final int pItem) {
+			int slot = find(pCell);
+			if (slot < 0) {
+				slot = insert(pCell);
+			}
+			if (mCounts[slot]++ == 0) {
+				mCellCount++;
+			}
+			mSumX[slot] += pX;
+			mSumY[slot] += pY;
+			mItems[slot] ^= pItem;
+		}
+
+		void remove(final long pCell, final int pX, final int pY, final int pItem) {
+			final int slot = find(pCell);
+			if (--mCounts[slot] == 0) {
+				mCellCount--;
+			}
+			mSumX[slot] -= pX;
+			mSumY[slot] -= pY;
+			mItems[slot] ^= pItem;
+		}
+
+		void shift(final long pCell, final int pDeltaX, final int pDeltaY) {
+			final int slot = find(pCell);
+			mSumX[slot] += pDeltaX;
+			mSumY[slot] += pDeltaY;
+		}
+
+		int find(final long pCell) {
+			final int mask = mKeys.length - 1;
+			for (int slot = hash(pCell) & mask; ; slot = (slot + 1) & mask) {
+				final long key = mKeys[slot];
+				if (key == pCell) {
+					return slot;
+				}
+				if (key == NO_CELL) {
+					return -1;
+				}
+			}
+		}
+
+		private int insert(final long pCell) {
+			if ((mSlotCount + 1) * 4 > mKeys.length * 3) {
+				rebuild();
+			}
+			final int mask = mKeys.length - 1;
+			int slot = hash(pCell) & mask;
+			while (mKeys[slot] != NO_CELL) {
+				slot = (slot + 1) & mask;
+			}
+			mKeys[slot] = pCell;
+			mSlotCount++;
+			return slot;
+		}
+
+		/**
+		 * Drops empty cells and resizes the table for twice as many cells as there are now.
+		 */
+		private void rebuild() {
+			final long[] keys = mKeys;
+			final int[] counts = mCounts;
+			final long[] sumX = mSumX;
+			final long[] sumY = mSumY;
+			final int[] items = mItems;
+			int capacity = MIN_CAPACITY;
+			while (capacity < mCellCount * 4) {
+				capacity <<= 1;
+			}
+			allocate(capacity);
+			final int mask = capacity - 1;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == NO_CELL || counts[i] == 0) {
+					continue;
+				}
+				int slot = hash(keys[i]) & mask;
+				while (mKeys[slot] != NO_CELL) {
+					slot = (slot + 1) & mask;
+				}
+				mKeys[slot] = keys[i];
+				mCounts[slot] = counts[i];
+				mSumX[slot] = sumX[i];
+				mSumY[slot] = sumY[i];
+				mItems[slot] = items[i];
+				mSlotCount++;
+			}
+		}
+
+		void clear() {
+			allocate(MIN_CAPACITY);
+			mCellCount = 0;
+		}
+
+		private void allocate(final int pCapacity) {
+			mKeys = new long[pCapacity];
+			Arrays.fill(mKeys, NO_CELL);
+			mCounts = new int[pCapacity];
+			mSumX = new long[pCapacity];
+			mSumY = new long[pCapacity];
+			mItems = new int[pCapacity];
+			mSlotCount = 0;
+		}
+
+		private static int hash(final long pCell) {
+			final long hash = pCell * 0x9E3779B97F4A7C15L;
+			return (int) (hash >>> 32);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.hypertrack.maps.google.utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations with power of two buckets in microseconds.
+ *
+ * Bucket 0 counts durations below 1 microsecond, bucket i counts durations in [2^(i-1), 2^i) microseconds
+ * and the last bucket counts all longer durations. Percentiles are reported with the precision of a bucket,
+ * which is enough to tell a frame drop from a regular update. Recording doesn't allocate.
+ */
+public class LatencyHistogram {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	public static final int BUCKET_COUNT = 32;
+
+	private static final long NANOS_PER_MICRO = 1000;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final long[] mBuckets = new long[BUCKET_COUNT];
+	private long mCount;
+	private long mTotalNanos;
+	private long mMaxNanos;
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	/**
+	 * @return count of recorded durations
+	 */
+	public long getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @return count of durations in the bucket
+	 */
+	public long getBucketCount(final int pBucket) {
+		return mBuckets[pBucket];
+	}
+
+	/**
+	 * @return exclusive upper bound of the bucket in nanoseconds, {@link Long#MAX_VALUE} for the last bucket
+	 */
+	public static long getBucketUpperBound(final int pBucket) {
+		if (pBucket >= BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+		return (1L << pBucket) * NANOS_PER_MICRO;
+	}
+
+	public long getTotalNanos() {
+		return mTotalNanos;
+	}
+
+	/**
+	 * @return the longest duration in nanoseconds, 0 if nothing is recorded
+	 */
+	public long getMaxNanos() {
+		return mMaxNanos;
+	}
+
+	/**
+	 * @return mean duration in nanoseconds, 0 if nothing is recorded
+	 */
+	public long getMeanNanos() {
+		return mCount == 0 ? 0 : mTotalNanos / mCount;
+	}
+
+	/**
+	 * @param pPercentile from 0 to 100, e.g. 50 for the median or 99
+	 * @return upper bound of the bucket that contains the percentile, but not more than the longest duration
+	 */
+	public long getPercentileNanos(final double pPercentile) {
+		if (mCount == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(mCount * Math.min(100, Math.max(0, pPercentile)) / 100));
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += mBuckets[i];
+			if (count >= rank) {
+				return Math.min(getBucketUpperBound(i), mMaxNanos);
+			}
+		}
+		return mMaxNanos;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * @param pNanos duration in nanoseconds, negative durations are recorded as 0
+	 */
+	public void record(final long pNanos) {
+		final long nanos = Math.max(0, pNanos);
+		mBuckets[getBucket(nanos)]++;
+		mCount++;
+		mTotalNanos += nanos;
+		if (nanos > mMaxNanos) {
+			mMaxNanos = nanos;
+		}
+	}
+
+	public void reset() {
+		Arrays.fill(mBuckets, 0);
+		mCount = 0;
+		mTotalNanos = 0;
+		mMaxNanos = 0;
+	}
+
+	/**
+	 * @return bucket of the duration: 0 below 1 microsecond, then bit length of the duration in microseconds
+	 */
+	public static int getBucket(final long pNanos) {
+		final long micros = pNanos / NANOS_PER_MICRO;
+		return Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+	}
+}
@@ -0,0 +1,111 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.utils.constants.MathConstants;
+
+/**
+ * Lookup tables with interpolation for the transcendental functions of the Web Mercator projection.
+ * They are used by {@link TileSystem} and {@link MyMath} when {@link TileSystem#setFastMathEnabled(boolean)} is on.
+ *
+ * Tables are built on the first use, they take about 40KB. Error bounds against the exact functions:
+ * <ul>
+ * <li>{@link #cos(double)}: absolute error below {@link #COS_MAX_ERROR}, linear interpolation in bands of 1/16 degree.
+ * Relative error of the ground resolution is below 2e-6 up to {@link TileSystem#MaxLatitude}.</li>
+ * <li>{@link #mercator(double)}: absolute error below {@link #MERCATOR_MAX_ERROR} up to {@link TileSystem#MaxLatitude},
+ * cubic Hermite interpolation in bands of 1/16 degree. That's below 0.1 pixel of a 256 pixels tile at zoom level 21.</li>
+ * <li>{@link #exp2(double)}: relative error below {@link #EXP2_MAX_RELATIVE_ERROR}, linear interpolation in steps of 1/1024.</li>
+ * </ul>
+ */
+public class MercatorTables implements MathConstants {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	public static final double COS_MAX_ERROR = 1.5e-7;
+	public static final double MERCATOR_MAX_ERROR = 1e-9;
+	public static final double EXP2_MAX_RELATIVE_ERROR = 6e-8;
+
+	private static final int BANDS_PER_DEGREE = 16;
+	private static final int EXP2_STEPS = 1024;
+
+	private static final double MAX_MERCATOR_LATITUDE = 85.06;
+
+	private static final double[] COS = new double[90 * BANDS_PER_DEGREE + 2];
+	private static final int MERCATOR_BANDS = (int) Math.ceil(MAX_MERCATOR_LATITUDE * BANDS_PER_DEGREE);
+	private static final double[] MERCATOR = new double[MERCATOR_BANDS + 1];
+	private static final double[] MERCATOR_SLOPE = new double[MERCATOR_BANDS + 1];
+	private static final double[] EXP2 = new double[EXP2_STEPS + 2];
+
+	static {
+		for (int i = 0; i < COS.length; i++) {
+			COS[i] = Math.cos(DEG2RAD * i / BANDS_PER_DEGREE);
+		}
+		final double band = DEG2RAD / BANDS_PER_DEGREE;
+		for (int i = 0; i <= MERCATOR_BANDS; i++) {
+			final double latitude = DEG2RAD * i / BANDS_PER_DEGREE;
+			MERCATOR[i] = Math.log(Math.tan(PI_4 + latitude / 2));
+			// derivative by the band index, d/dlat = 1 / cos(lat)
+			MERCATOR_SLOPE[i] = band / Math.cos(latitude);
+		}
+		for (int i = 0; i < EXP2.length; i++) {
+			EXP2[i] = Math.pow(2, (double) i / EXP2_STEPS);
+		}
+	}
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	/**
+	 * This is a utility class with only static members.
+	 */
+	private MercatorTables() {
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * @param pLatitude latitude in degrees from -90 to 90.
+	 * @return cosine of the latitude.
+	 */
+	public static double cos(final double pLatitude) {
+		final double position = Math.min(Math.abs(pLatitude), 90) * BANDS_PER_DEGREE;
+		final int index = (int) position;
+		final double fraction = position - index;
+		return COS[index] + (COS[index + 1] - COS[index]) * fraction;
+	}
+
+	/**
+	 * Same as {@link MyMath#gudermannInverse(double)}, the exact function is used beyond {@link TileSystem#MaxLatitude}.
+	 *
+	 * @param pLatitude latitude in degrees.
+	 * @return Mercator y in radians, ln(tan(pi/4 + lat/2)).
+	 */
+	public static double mercator(final double pLatitude) {
+		final double absolute = Math.abs(pLatitude);
+		final double position = absolute * BANDS_PER_DEGREE;
+		final int index = (int) position;
+		if (index >= MERCATOR_BANDS) {
+			return Math.log(Math.tan(PI_4 + DEG2RAD * pLatitude / 2));
+		}
+		final double t = position - index;
+		final double t2 = t * t;
+		final double t3 = t2 * t;
+		final double result = (2 * t3 - 3 * t2 + 1) * MERCATOR[index]
+				+ (t3 - 2 * t2 + t) * MERCATOR_SLOPE[index]
+				+ (-2 * t3 + 3 * t2) * MERCATOR[index + 1]
+				+ (t3 - t2) * MERCATOR_SLOPE[index + 1];
+		return pLatitude < 0 ? -result : result;
+	}
+
+	/**
+	 * @param pFraction exponent from 0 to 1.
+	 * @return 2 to the power of the fraction.
+	 */
+	public static double exp2(final double pFraction) {
+		final double position = Math.min(Math.max(pFraction, 0), 1) * EXP2_STEPS;
+		final int index = (int) position;
+		return EXP2[index] + (EXP2[index + 1] - EXP2[index]) * (position - index);
+	}
+}
@@ -35,6 +35,9 @@ public class MyMath implements MathConstants {
 	// ===========================================================
 
 	public static double gudermannInverse(final double aLatitude) {
+		if (TileSystem.isFastMathEnabled()) {
+			return MercatorTables.mercator(aLatitude);
+		}
 		return Math.log(Math.tan(PI_4 + (DEG2RAD * aLatitude / 2)));
 	}
 
@@ -0,0 +1,145 @@
+package com.hypertrack.maps.google.utils;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Growable route storage that packs coordinates as E7 fixed-point integers
+ * (degrees * 10^7, about 1cm precision) into a single int array.
+ *
+ * A point takes 8 bytes instead of about 36 bytes for a {@link LatLng} in a list
+ * (object header, two doubles and a reference), i.e. about 80KB instead of 360KB per 10k points.
+ * {@link LatLng} objects are created only for points that are passed to the map.
+ *
+ * The bounding box of the route is kept up to date on every added point.
+ */
+public class PackedRoute {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	private static final double E7 = 1e7;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private int[] mPoints;
+	private int mSize;
+	private List<LatLng> mList;
+	private final RouteBounds mBounds = new RouteBounds();
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	public PackedRoute() {
+		this(16);
+	}
+
+	public PackedRoute(final int capacity) {
+		mPoints = new int[Math.max(1, capacity) * 2];
+	}
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	public double getLatitude(final int index) {
+		return mPoints[index * 2] / E7;
+	}
+
+	public double getLongitude(final int index) {
+		return mPoints[index * 2 + 1] / E7;
+	}
+
+	/**
+	 * @return a new LatLng of the point at the given index
+	 */
+	public LatLng get(final int index) {
+		return new LatLng(getLatitude(index), getLongitude(index));
+	}
+
+	/**
+	 * @return read-only view of the route, list items are created on every access
+	 */
+	public List<LatLng> asList() {
+		if (mList == null) {
+			mList = new LatLngList();
+		}
+		return mList;
+	}
+
+	/**
+	 * @return bounding box of the route, it's updated in place when the route changes
+	 */
+	public RouteBounds getBounds() {
+		return mBounds;
+	}
+
+	/**
+	 * @return size of the coordinates array in bytes
+	 */
+	public long getCapacityInBytes() {
+		return mPoints.length * 4L;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	public void clear() {
+		mSize = 0;
+		mBounds.clear();
+	}
+
+	public void add(final double latitude, final double longitude) {
+		if (mSize * 2 == mPoints.length) {
+			final int[] points = new int[mPoints.length * 2];
+			System.arraycopy(mPoints, 0, points, 0, mSize * 2);
+			mPoints = points;
+		}
+		mPoints[mSize * 2] = toE7(latitude);
+		mPoints[mSize * 2 + 1] = toE7(longitude);
+		mBounds.include(getLatitude(mSize), getLongitude(mSize));
+		mSize++;
+	}
+
+	/**
+	 * Checks if the point at the given index is equal to the coordinates in E7 precision.
+	 */
+	public boolean isSame(final int index, final double latitude, final double longitude) {
+		return mPoints[index * 2] == toE7(latitude) && mPoints[index * 2 + 1] == toE7(longitude);
+	}
+
+	private static int toE7(final double degrees) {
+		return (int) Math.round(degrees * E7);
+	}
+
+	private class LatLngList extends AbstractList<LatLng> implements RandomAccess {
+
+		@Override
+		public LatLng get(final int index) {
+			if (index < 0 || index >= mSize) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+			}
+			return PackedRoute.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return mSize;
+		}
+	}
+}
@@ -25,4 +25,28 @@ public class Projection {
 		return (float) (meters / TileSystem.GroundResolution(latitude, zoomLevel));
 	}
 
+	/**
+	 * @return map size in pixels at the zoom level of the projection.
+	 */
+	public double getMapSize() {
+		return TileSystem.getTileSize() * Math.pow(2, mZoomLevelProjection);
+	}
+
+	/**
+	 * Projects points into Mercator pixel coordinates at the zoom level of the projection,
+	 * see {@link TileSystem#getMercatorFromLatLng(double[], double[], int, int, double, long[], long[])}.
+	 */
+	public void toPixels(final double[] latitudes, final double[] longitudes, final int offset, final int count,
+						 final long[] outX, final long[] outY) {
+		TileSystem.getMercatorFromLatLng(latitudes, longitudes, offset, count, getMapSize(), outX, outY);
+	}
+
+	/**
+	 * Reverse of {@link #toPixels(double[], double[], int, int, long[], long[])}.
+	 */
+	public void fromPixels(final long[] x, final long[] y, final int offset, final int count,
+						   final double[] outLatitudes, final double[] outLongitudes) {
+		TileSystem.getLatLngFromMercator(x, y, offset, count, getMapSize(), outLatitudes, outLongitudes);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,356 @@
+package com.hypertrack.maps.google.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Spatial index of points and segments in the Web Mercator projection.
+ *
+ * Every entry is stored in the smallest tile that contains it, down to {@link #MAX_DEPTH}. Tiles are nodes
+ * of a quadtree in a hash map by long quadkeys of {@link TileSystem}, a node exists while its subtree has entries.
+ * Queries descend only into existing nodes that intersect the query, so they take logarithmic time
+ * for entries that are small compared to the query, e.g. route segments and locations.
+ *
+ * Distances are measured in the projection, so the nearest entry is the nearest one on the screen.
+ *
+ * @param <T> type of indexed objects, one object can have many entries.
+ */
+public class QuadTreeIndex<T> {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	/**
+	 * Depth of the smallest tiles, their size is about 2.4m at the equator.
+	 */
+	public static final int MAX_DEPTH = 24;
+
+	private static final int WORLD_BITS = TileSystem.primaryKeyMaxZoomLevel;
+	private static final double WORLD_SIZE = 1 << WORLD_BITS;
+	private static final long ROOT = TileSystem.getQuadKey(0, 0, 0);
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final Map<Long, Node<T>> mNodes = new HashMap<>();
+	private int mSize;
+
+	private double[] mX01 = new double[0];
+	private double[] mY01 = new double[0];
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	/**
+	 * @return count of entries.
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	public Entry<T> addPoint(final T pItem, final double pLatitude, final double pLongitude) {
+		return addSegment(pItem, pLatitude, pLongitude, pLatitude, pLongitude);
+	}
+
+	/**
+	 * Adds a segment. A segment can't cross the antimeridian, the shortest way between its ends
+	 * is in the projection, not on the globe.
+	 *
+	 * @return the entry, it's used to remove the segment.
+	 */
+	public Entry<T> addSegment(final T pItem, final double pLatitude1, final double pLongitude1,
+							   final double pLatitude2, final double pLongitude2) {
+		return add(new Entry<>(pItem,
+				TileSystem.getX01FromLongitude(pLongitude1), TileSystem.getY01FromLatitude(pLatitude1),
+				TileSystem.getX01FromLongitude(pLongitude2), TileSystem.getY01FromLatitude(pLatitude2)));
+	}
+
+	/**
+	 * Adds segments between consecutive points of a polyline. Points are projected in one batch,
+	 * so every point is projected once instead of once per segment.
+	 *
+	 * @param pEntries list where the entries are added, they are used to remove the segments.
+	 */
+	public void addPolyline(final T pItem, final double[] pLatitudes, final double[] pLongitudes, final int pCount,
+							final List<? super Entry<T>> pEntries) {
+		if (pCount == 1) {
+			pEntries.add(addPoint(pItem, pLatitudes[0], pLongitudes[0]));
+			return;
+		}
+		if (mX01.length < pCount) {
+			mX01 = new double[pCount];
+			mY01 = new double[pCount];
+		}
+		TileSystem.getXY01FromLatLng(pLatitudes, pLongitudes, 0, pCount, mX01, mY01);
+		for (int i = 1; i < pCount; i++) {
+			pEntries.add(add(new Entry<>(pItem, mX01[i - 1], mY01[i - 1], mX01[i], mY01[i])));
+		}
+	}
+
+	private Entry<T> add(final Entry<T> entry) {
+		entry.mQuadKey = getQuadKey(entry);
+		Node<T> node = mNodes.get(entry.mQuadKey);
+		if (node == null) {
+			node = new Node<>();
+			mNodes.put(entry.mQuadKey, node);
+		}
+		node.mEntries.add(entry);
+		for (long key = entry.mQuadKey; ; key = TileSystem.getQuadKeyParent(key)) {
+			Node<T> parent = mNodes.get(key);
+			if (parent == null) {
+				parent = new Node<>();
+				mNodes.put(key, parent);
+			}
+			parent.mSubtreeSize++;
+			if (key == ROOT) {
+				break;
+			}
+		}
+		mSize++;
+		return entry;
+	}
+
+	public void remove(final Entry<T> pEntry) {
+		if (pEntry.mQuadKey == TileSystem.NO_QUAD_KEY) {
+			return;
+		}
+		final Node<T> node = mNodes.get(pEntry.mQuadKey);
+		if (node == null || !node.mEntries.remove(pEntry)) {
+			return;
+		}
+		for (long key = pEntry.mQuadKey; ; key = TileSystem.getQuadKeyParent(key)) {
+			final Node<T> parent = mNodes.get(key);
+			if (--parent.mSubtreeSize == 0) {
+				mNodes.remove(key);
+			}
+			if (key == ROOT) {
+				break;
+			}
+		}
+		pEntry.mQuadKey = TileSystem.NO_QUAD_KEY;
+		mSize--;
+	}
+
+	public void clear() {
+		mNodes.clear();
+		mSize = 0;
+	}
+
+	/**
+	 * Adds objects of entries that intersect the bounds to the collection, an object is added once per entry.
+	 * Bounds with west greater than east cross the antimeridian.
+	 */
+	public void query(final double pSouth, final double pWest, final double pNorth, final double pEast,
+					  final Collection<? super T> pResult) {
+		final double minY = TileSystem.getY01FromLatitude(pNorth);
+		final double maxY = TileSystem.getY01FromLatitude(pSouth);
+		final double minX = TileSystem.getX01FromLongitude(pWest);
+		final double maxX = TileSystem.getX01FromLongitude(pEast);
+		if (minX <= maxX) {
+			query(ROOT, minX, minY, maxX, maxY, pResult);
+		} else {
+			query(ROOT, minX, minY, 1, maxY, pResult);
+			query(ROOT, 0, minY, maxX, maxY, pResult);
+		}
+	}
+
+	/**
+	 * @return object of the entry that is nearest to the location, null if the index is empty.
+	 */
+	public T nearest(final double pLatitude, final double pLongitude) {
+		return nearest(pLatitude, pLongitude, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Best-first search of the nearest entry, nodes are visited in order of distance to their tiles.
+	 *
+	 * @param pMaxDistance max distance as a fraction of the map size, e.g. pixels divided by {@link TileSystem#MapSize(double)}.
+	 * @return object of the entry that is nearest to the location, null if there is no entry within the distance.
+	 */
+	public T nearest(final double pLatitude, final double pLongitude, final double pMaxDistance) {
+		final double x = TileSystem.getX01FromLongitude(pLongitude);
+		final double y = TileSystem.getY01FromLatitude(pLatitude);
+		double bestDistance = pMaxDistance * pMaxDistance;
+		T best = null;
+		final PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		if (mNodes.containsKey(ROOT)) {
+			queue.add(new Candidate(ROOT, 0));
+		}
+		while (!queue.isEmpty()) {
+			final Candidate candidate = queue.poll();
+			if (candidate.mDistance > bestDistance) {
+				break;
+			}
+			final Node<T> node = mNodes.get(candidate.mQuadKey);
+			for (int i = 0; i < node.mEntries.size(); i++) {
+				final Entry<T> entry = node.mEntries.get(i);
+				final double distance = entry.getDistanceSquared(x, y);
+				if (distance <= bestDistance) {
+					bestDistance = distance;
+					best = entry.mItem;
+				}
+			}
+			if (TileSystem.getQuadKeyZoomLevel(candidate.mQuadKey) == MAX_DEPTH) {
+				continue;
+			}
+			for (int quadrant = 0; quadrant < 4; quadrant++) {
+				final long child = TileSystem.getQuadKeyChild(candidate.mQuadKey, quadrant);
+				if (mNodes.containsKey(child)) {
+					final double distance = getTileDistanceSquared(child, x, y);
+					if (distance <= bestDistance) {
+						queue.add(new Candidate(child, distance));
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	private void query(final long pQuadKey, final double pMinX, final double pMinY,
+					   final double pMaxX, final double pMaxY, final Collection<? super T> pResult) {
+		final Node<T> node = mNodes.get(pQuadKey);
+		if (node == null) {
+			return;
+		}
+		final int zoomLevel = TileSystem.getQuadKeyZoomLevel(pQuadKey);
+		final double tileSize = 1d / (1L << zoomLevel);
+		final double tileMinX = TileSystem.getQuadKeyTileX(pQuadKey) * tileSize;
+		final double tileMinY = TileSystem.getQuadKeyTileY(pQuadKey) * tileSize;
+		if (tileMinX > pMaxX || tileMinX + tileSize < pMinX || tileMinY > pMaxY || tileMinY + tileSize < pMinY) {
+			return;
+		}
+		for (int i = 0; i < node.mEntries.size(); i++) {
+			final Entry<T> entry = node.mEntries.get(i);
+			if (entry.intersects(pMinX, pMinY, pMaxX, pMaxY)) {
+				pResult.add(entry.mItem);
+			}
+		}
+		if (zoomLevel == MAX_DEPTH) {
+			return;
+		}
+		for (int quadrant = 0; quadrant < 4; quadrant++) {
+			query(TileSystem.getQuadKeyChild(pQuadKey, quadrant), pMinX, pMinY, pMaxX, pMaxY, pResult);
+		}
+	}
+
+	/**
+	 * @return quadkey of the smallest tile that contains both ends of the entry.
+	 */
+	private static long getQuadKey(final Entry<?> pEntry) {
+		final int x1 = toWorld(pEntry.mX1);
+		final int y1 = toWorld(pEntry.mY1);
+		final int x2 = toWorld(pEntry.mX2);
+		final int y2 = toWorld(pEntry.mY2);
+		final int difference = (x1 ^ x2) | (y1 ^ y2);
+		final int depth = Math.min(MAX_DEPTH, Integer.numberOfLeadingZeros(difference) - (32 - WORLD_BITS));
+		final int shift = WORLD_BITS - depth;
+		return TileSystem.getQuadKey(x1 >>> shift, y1 >>> shift, depth);
+	}
+
+	private static int toWorld(final double pXY01) {
+		return (int) Math.min(WORLD_SIZE - 1, MyMath.floorToLong(pXY01 * WORLD_SIZE));
+	}
+
+	private static double getTileDistanceSquared(final long pQuadKey, final double pX, final double pY) {
+		final double tileSize = 1d / (1L << TileSystem.getQuadKeyZoomLevel(pQuadKey));
+		final double minX = TileSystem.getQuadKeyTileX(pQuadKey) * tileSize;
+		final double minY = TileSystem.getQuadKeyTileY(pQuadKey) * tileSize;
+		final double dx = Math.max(0, Math.max(minX - pX, pX - minX - tileSize));
+		final double dy = Math.max(0, Math.max(minY - pY, pY - minY - tileSize));
+		return dx * dx + dy * dy;
+	}
+
+	// ===========================================================
+	// Inner and Anonymous Classes
+	// ===========================================================
+
+	public static class Entry<T> {
+		private final T mItem;
+		private final double mX1;
+		private final double mY1;
+		private final double mX2;
+		private final double mY2;
+		private long mQuadKey = TileSystem.NO_QUAD_KEY;
+
+		private Entry(final T pItem, final double pX1, final double pY1, final double pX2, final double pY2) {
+			mItem = pItem;
+			mX1 = pX1;
+			mY1 = pY1;
+			mX2 = pX2;
+			mY2 = pY2;
+		}
+
+		public T getItem() {
+			return mItem;
+		}
+
+		/**
+		 * @return quadkey of the tile that stores the entry, {@link TileSystem#NO_QUAD_KEY} after removal.
+		 */
+		public long getQuadKey() {
+			return mQuadKey;
+		}
+
+		private boolean intersects(final double pMinX, final double pMinY, final double pMaxX, final double pMaxY) {
+			if (Math.max(mX1, mX2) < pMinX || Math.min(mX1, mX2) > pMaxX
+					|| Math.max(mY1, mY2) < pMinY || Math.min(mY1, mY2) > pMaxY) {
+				return false;
+			}
+			if ((mX1 >= pMinX && mX1 <= pMaxX && mY1 >= pMinY && mY1 <= pMaxY)
+					|| (mX2 >= pMinX && mX2 <= pMaxX && mY2 >= pMinY && mY2 <= pMaxY)) {
+				return true;
+			}
+			// the segment crosses the rectangle if its corners aren't all on one side of the line
+			final int side = getSide(pMinX, pMinY) + getSide(pMaxX, pMinY) + getSide(pMinX, pMaxY) + getSide(pMaxX, pMaxY);
+			return side != 4 && side != -4;
+		}
+
+		private int getSide(final double pX, final double pY) {
+			final double cross = (mX2 - mX1) * (pY - mY1) - (mY2 - mY1) * (pX - mX1);
+			return cross > 0 ? 1 : cross < 0 ? -1 : 0;
+		}
+
+		private double getDistanceSquared(final double pX, final double pY) {
+			final double dx = mX2 - mX1;
+			final double dy = mY2 - mY1;
+			final double lengthSquared = dx * dx + dy * dy;
+			double fraction = 0;
+			if (lengthSquared > 0) {
+				fraction = Math.max(0, Math.min(1, ((pX - mX1) * dx + (pY - mY1) * dy) / lengthSquared));
+			}
+			final double distanceX = mX1 + fraction * dx - pX;
+			final double distanceY = mY1 + fraction * dy - pY;
+			return distanceX * distanceX + distanceY * distanceY;
+		}
+	}
+
+	private static class Node<T> {
+		private final ArrayList<Entry<T>> mEntries = new ArrayList<>(0);
+		private int mSubtreeSize;
+	}
+
+	private static class Candidate implements Comparable<Candidate> {
+		private final long mQuadKey;
+		private final double mDistance;
+
+		private Candidate(final long pQuadKey, final double pDistance) {
+			mQuadKey = pQuadKey;
+			mDistance = pDistance;
+		}
+
+		@Override
+		public int compareTo(final Candidate pOther) {
+			return Double.compare(mDistance, pOther.mDistance);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package com.hypertrack.maps.google.utils;
+
+/**
+ * Mutable latitude/longitude bounding box, that is extended point by point.
+ * Boxes of route parts are merged in constant time, so fitting the camera doesn't depend on route length.
+ *
+ * Antimeridian crossing isn't handled, longitudes are compared as is.
+ */
+public class RouteBounds {
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private double mMinLatitude;
+	private double mMaxLatitude;
+	private double mMinLongitude;
+	private double mMaxLongitude;
+	private boolean mIsEmpty = true;
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	public boolean isEmpty() {
+		return mIsEmpty;
+	}
+
+	public double getMinLatitude() {
+		return mMinLatitude;
+	}
+
+	public double getMaxLatitude() {
+		return mMaxLatitude;
+	}
+
+	public double getMinLongitude() {
+		return mMinLongitude;
+	}
+
+	public double getMaxLongitude() {
+		return mMaxLongitude;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	public void clear() {
+		mIsEmpty = true;
+	}
+
+	/**
+	 * Extends the box to contain the point.
+	 */
+	public void include(final double latitude, final double longitude) {
+		if (mIsEmpty) {
+			mMinLatitude = mMaxLatitude = latitude;
+			mMinLongitude = mMaxLongitude = longitude;
+			mIsEmpty = false;
+			return;
+		}
+		if (latitude < mMinLatitude) {
+			mMinLatitude = latitude;
+		} else if (latitude > mMaxLatitude) {
+			mMaxLatitude = latitude;
+		}
+		if (longitude < mMinLongitude) {
+			mMinLongitude = longitude;
+		} else if (longitude > mMaxLongitude) {
+			mMaxLongitude = longitude;
+		}
+	}
+
+	/**
+	 * Extends the box to contain the other box.
+	 */
+	public void include(final RouteBounds bounds) {
+		if (bounds.mIsEmpty) {
+			return;
+		}
+		include(bounds.mMinLatitude, bounds.mMinLongitude);
+		include(bounds.mMaxLatitude, bounds.mMaxLongitude);
+	}
+}
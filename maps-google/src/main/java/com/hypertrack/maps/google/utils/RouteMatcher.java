@@ -0,0 +1,313 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.utils.constants.GeoConstants;
+import com.hypertrack.maps.google.utils.constants.MathConstants;
+
+/**
+ * Finds a position of a location on a route by projecting it onto the nearest route segment.
+ *
+ * Route points are projected once into local planar meters (equirectangular projection around the
+ * first point), that is accurate enough to choose the nearest segment of a trip route.
+ * Moving along the route is handled by a cursor, only a few segments after the previous match are checked.
+ * If the location is far from them, e.g. after a jump or a detour, a uniform grid of segments is used.
+ *
+ * Queries don't allocate, the grid is built once per route on the first query that needs it.
+ */
+public class RouteMatcher implements MathConstants {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	/**
+	 * Count of segments after the cursor that are checked before the grid search.
+	 */
+	private static final int CURSOR_LOOKAHEAD = 16;
+
+	private static final double MIN_CELL_SIZE = 25;
+
+	private static final double METERS_PER_DEGREE = GeoConstants.RADIUS_EARTH_METERS * DEG2RAD;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private double[] mX = new double[16];
+	private double[] mY = new double[16];
+	private int mCount;
+	private double mMetersPerDegreeLongitude;
+
+	private double mSnapDistance = 50;
+	private int mCursor;
+
+	private boolean mIsGridValid;
+	private double mCellSize;
+	private double mGridMinX;
+	private double mGridMinY;
+	private int mColumns;
+	private int mRows;
+	private int[] mCellStart;
+	private int[] mCellSegments;
+
+	private int mSegment;
+	private double mFraction;
+	private double mDistanceSquared;
+	private double mProjectedX;
+	private double mProjectedY;
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	/**
+	 * @param meters max distance to a segment near the cursor, that is treated as moving along the route.
+	 *               Default is 50 meters.
+	 */
+	public void setSnapDistance(final double meters) {
+		mSnapDistance = meters;
+	}
+
+	/**
+	 * @return count of route points
+	 */
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @return index of the first point of the matched segment
+	 */
+	public int getSegment() {
+		return mSegment;
+	}
+
+	/**
+	 * @return position of the match inside of the segment, from 0 to 1
+	 */
+	public double getFraction() {
+		return mFraction;
+	}
+
+	/**
+	 * @return distance from the location to the route in meters
+	 */
+	public double getDistance() {
+		return Math.sqrt(mDistanceSquared);
+	}
+
+	/**
+	 * @return latitude of the location projected onto the route
+	 */
+	public double getLatitude() {
+		return mProjectedY / METERS_PER_DEGREE;
+	}
+
+	/**
+	 * @return longitude of the location projected onto the route
+	 */
+	public double getLongitude() {
+		return mProjectedX / mMetersPerDegreeLongitude;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * Drops the route and the cursor.
+	 */
+	public void reset() {
+		mCount = 0;
+		mCursor = 0;
+		mIsGridValid = false;
+	}
+
+	/**
+	 * Adds the next route point.
+	 */
+	public void add(final double latitude, final double longitude) {
+		if (mCount == 0) {
+			mMetersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(latitude * DEG2RAD);
+		}
+		if (mCount == mX.length) {
+			final double[] x = new double[mCount * 2];
+			final double[] y = new double[mCount * 2];
+			System.arraycopy(mX, 0, x, 0, mCount);
+			System.arraycopy(mY, 0, y, 0, mCount);
+			mX = x;
+			mY = y;
+		}
+		mX[mCount] = longitude * mMetersPerDegreeLongitude;
+		mY[mCount] = latitude * METERS_PER_DEGREE;
+		mCount++;
+		mIsGridValid = false;
+	}
+
+	/**
+	 * Matches the location to the route, results are available via getters.
+	 *
+	 * @return index of the first point of the nearest segment, 0 for an empty route
+	 */
+	public int match(final double latitude, final double longitude) {
+		mSegment = 0;
+		mFraction = 0;
+		mDistanceSquared = Double.MAX_VALUE;
+		if (mCount == 0) {
+			return 0;
+		}
+		final double x = longitude * mMetersPerDegreeLongitude;
+		final double y = latitude * METERS_PER_DEGREE;
+		if (mCount == 1) {
+			checkPoint(x, y);
+			return 0;
+		}
+
+		final int last = Math.min(mCount - 2, mCursor + CURSOR_LOOKAHEAD);
+		for (int i = Math.max(0, mCursor - 1); i <= last; i++) {
+			checkSegment(i, x, y);
+		}
+		if (mDistanceSquared > mSnapDistance * mSnapDistance) {
+			searchGrid(x, y);
+		}
+		mCursor = mSegment;
+		return mSegment;
+	}
+
+	private void checkPoint(final double x, final double y) {
+		final double dx = x - mX[0];
+		final double dy = y - mY[0];
+		mDistanceSquared = dx * dx + dy * dy;
+		mProjectedX = mX[0];
+		mProjectedY = mY[0];
+	}
+
+	private void checkSegment(final int segment, final double x, final double y) {
+		final double ax = mX[segment];
+		final double ay = mY[segment];
+		final double sx = mX[segment + 1] - ax;
+		final double sy = mY[segment + 1] - ay;
+		final double lengthSquared = sx * sx + sy * sy;
+		double t = lengthSquared == 0 ? 0 : ((x - ax) * sx + (y - ay) * sy) / lengthSquared;
+		if (t < 0) {
+			t = 0;
+		} else if (t > 1) {
+			t = 1;
+		}
+		final double px = ax + t * sx;
+		final double py = ay + t * sy;
+		final double distanceSquared = (x - px) * (x - px) + (y - py) * (y - py);
+		if (distanceSquared < mDistanceSquared) {
+			mDistanceSquared = distanceSquared;
+			mSegment = segment;
+			mFraction = t;
+			mProjectedX = px;
+			mProjectedY = py;
+		}
+	}
+
+	/**
+	 * Checks grid cells ring by ring around the location until cells of the next ring
+	 * are further than the best segment found so far.
+	 */
+	private void searchGrid(final double x, final double y) {
+		if (!mIsGridValid) {
+			buildGrid();
+		}
+		final int column = MyMath.floorToInt((x - mGridMinX) / mCellSize);
+		final int row = MyMath.floorToInt((y - mGridMinY) / mCellSize);
+		final int outsideColumns = Math.max(0, Math.max(-column, column - mColumns + 1));
+		final int outsideRows = Math.max(0, Math.max(-row, row - mRows + 1));
+		final int maxRing = Math.max(Math.max(column, mColumns - 1 - column), Math.max(row, mRows - 1 - row));
+		for (int ring = Math.max(outsideColumns, outsideRows); ring <= maxRing; ring++) {
+			final double ringDistance = (ring - 1) * mCellSize;
+			if (ring > 1 && ringDistance * ringDistance > mDistanceSquared) {
+				return;
+			}
+			for (int c = column - ring; c <= column + ring; c++) {
+				checkCell(c, row - ring, x, y);
+				if (ring > 0) {
+					checkCell(c, row + ring, x, y);
+				}
+			}
+			for (int r = row - ring + 1; r <= row + ring - 1; r++) {
+				checkCell(column - ring, r, x, y);
+				checkCell(column + ring, r, x, y);
+			}
+		}
+	}
+
+	private void checkCell(final int column, final int row, final double x, final double y) {
+		if (column < 0 || row < 0 || column >= mColumns || row >= mRows) {
+			return;
+		}
+		final int cell = row * mColumns + column;
+		for (int i = mCellStart[cell]; i < mCellStart[cell + 1]; i++) {
+			checkSegment(mCellSegments[i], x, y);
+		}
+	}
+
+	/**
+	 * Builds the grid of route segments. Cell size is chosen so that the count of cells
+	 * is about the count of segments.
+	 */
+	private void buildGrid() {
+		final int segments = mCount - 1;
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < mCount; i++) {
+			minX = Math.min(minX, mX[i]);
+			minY = Math.min(minY, mY[i]);
+			maxX = Math.max(maxX, mX[i]);
+			maxY = Math.max(maxY, mY[i]);
+		}
+		final double width = maxX - minX;
+		final double height = maxY - minY;
+		mCellSize = Math.max(MIN_CELL_SIZE,
+				Math.max(Math.sqrt(width * height / segments), Math.max(width, height) / segments));
+		mGridMinX = minX;
+		mGridMinY = minY;
+		mColumns = (int) (width / mCellSize) + 1;
+		mRows = (int) (height / mCellSize) + 1;
+
+		final int cells = mColumns * mRows;
+		if (mCellStart == null || mCellStart.length < cells + 1) {
+			mCellStart = new int[cells + 1];
+		} else {
+			for (int i = 0; i <= cells; i++) {
+				mCellStart[i] = 0;
+			}
+		}
+		for (int i = 0; i < segments; i++) {
+			for (int row = getRow(Math.min(mY[i], mY[i + 1])); row <= getRow(Math.max(mY[i], mY[i + 1])); row++) {
+				for (int column = getColumn(Math.min(mX[i], mX[i + 1])); column <= getColumn(Math.max(mX[i], mX[i + 1])); column++) {
+					mCellStart[row * mColumns + column + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < cells; i++) {
+			mCellStart[i + 1] += mCellStart[i];
+		}
+		if (mCellSegments == null || mCellSegments.length < mCellStart[cells]) {
+			mCellSegments = new int[mCellStart[cells]];
+		}
+		final int[] fill = new int[cells];
+		for (int i = 0; i < segments; i++) {
+			for (int row = getRow(Math.min(mY[i], mY[i + 1])); row <= getRow(Math.max(mY[i], mY[i + 1])); row++) {
+				for (int column = getColumn(Math.min(mX[i], mX[i + 1])); column <= getColumn(Math.max(mX[i], mX[i + 1])); column++) {
+					final int cell = row * mColumns + column;
+					mCellSegments[mCellStart[cell] + fill[cell]++] = i;
+				}
+			}
+		}
+		mIsGridValid = true;
+	}
+
+	private int getColumn(final double x) {
+		return Math.min(mColumns - 1, (int) ((x - mGridMinX) / mCellSize));
+	}
+
+	private int getRow(final double y) {
+		return Math.min(mRows - 1, (int) ((y - mGridMinY) / mCellSize));
+	}
+}
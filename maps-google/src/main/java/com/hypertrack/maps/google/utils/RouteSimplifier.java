@@ -0,0 +1,185 @@
+package com.hypertrack.maps.google.utils;
+
+import com.hypertrack.maps.google.utils.constants.GeoConstants;
+import com.hypertrack.maps.google.utils.constants.MathConstants;
+
+/**
+ * Streaming polyline simplifier with a tolerance in screen pixels.
+ *
+ * Points are added one at a time. The last kept point is an anchor and all points after it are
+ * pending. A new point extends the pending window while every pending point stays within the
+ * tolerance of the segment from the anchor to the new point (sliding window Douglas-Peucker).
+ * Otherwise the previous point is kept and becomes the new anchor.
+ *
+ * Kept points are final, pending points are the exact tail of the route and have to be drawn as is.
+ * The simplifier stores indices of kept points only, coordinates stay in the caller's route.
+ */
+public class RouteSimplifier implements MathConstants {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	/**
+	 * Max count of pending points, it limits the cost of a single {@link #add(double, double)}.
+	 */
+	private static final int MAX_PENDING_COUNT = 64;
+
+	private static final double METERS_PER_DEGREE = GeoConstants.RADIUS_EARTH_METERS * DEG2RAD;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private float mTolerance;
+	private int mZoomLevel = -1;
+	private double mMapSize;
+
+	private int[] mKept = new int[16];
+	private int mKeptCount;
+	private int mCount;
+
+	private double mAnchorLatitude;
+	private double mAnchorLongitude;
+	private double mMetersPerDegreeLongitude;
+	private double mToleranceSquared;
+
+	private final double[] mPendingX = new double[MAX_PENDING_COUNT];
+	private final double[] mPendingY = new double[MAX_PENDING_COUNT];
+	private final double[] mPendingLatitude = new double[MAX_PENDING_COUNT];
+	private final double[] mPendingLongitude = new double[MAX_PENDING_COUNT];
+	private int mPendingCount;
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	/**
+	 * @return zoom level of the current tolerance or -1 if simplifier was never reset
+	 */
+	public int getZoomLevel() {
+		return mZoomLevel;
+	}
+
+	/**
+	 * @return count of added points
+	 */
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * @return count of kept points
+	 */
+	public int getKeptCount() {
+		return mKeptCount;
+	}
+
+	/**
+	 * @return index of the added point, that is kept at the given position
+	 */
+	public int getKeptIndex(final int position) {
+		return mKept[position];
+	}
+
+	/**
+	 * @return index of the first pending point, all points from it to {@link #getCount()} are exact
+	 */
+	public int getPendingStart() {
+		return mCount - mPendingCount;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	/**
+	 * Drops all points and sets up a new tolerance.
+	 *
+	 * @param tolerance max allowed deviation of the simplified route in pixels, 0 keeps all points
+	 * @param zoomLevel zoom level of the map, pixel size depends on it
+	 */
+	public void reset(final float tolerance, final int zoomLevel) {
+		mTolerance = tolerance;
+		mZoomLevel = zoomLevel;
+		mMapSize = TileSystem.getTileSize() * Math.pow(2, zoomLevel);
+		mKeptCount = 0;
+		mCount = 0;
+		mPendingCount = 0;
+	}
+
+	/**
+	 * Adds the next point of the route.
+	 */
+	public void add(final double latitude, final double longitude) {
+		final int index = mCount++;
+		if (mKeptCount == 0 || mTolerance <= 0) {
+			keep(index, latitude, longitude);
+			return;
+		}
+
+		final double x = (longitude - mAnchorLongitude) * mMetersPerDegreeLongitude;
+		final double y = (latitude - mAnchorLatitude) * METERS_PER_DEGREE;
+		if (mPendingCount == MAX_PENDING_COUNT || !isWithinTolerance(x, y)) {
+			final int last = mPendingCount - 1;
+			keep(index - 1, mPendingLatitude[last], mPendingLongitude[last]);
+			restartPending(latitude, longitude);
+			return;
+		}
+		mPendingX[mPendingCount] = x;
+		mPendingY[mPendingCount] = y;
+		mPendingLatitude[mPendingCount] = latitude;
+		mPendingLongitude[mPendingCount] = longitude;
+		mPendingCount++;
+	}
+
+	/**
+	 * Makes the given point the only pending one after the anchor has moved.
+	 */
+	private void restartPending(final double latitude, final double longitude) {
+		mPendingX[0] = (longitude - mAnchorLongitude) * mMetersPerDegreeLongitude;
+		mPendingY[0] = (latitude - mAnchorLatitude) * METERS_PER_DEGREE;
+		mPendingLatitude[0] = latitude;
+		mPendingLongitude[0] = longitude;
+		mPendingCount = 1;
+	}
+
+	private void keep(final int index, final double latitude, final double longitude) {
+		if (mKeptCount == mKept.length) {
+			final int[] kept = new int[mKept.length * 2];
+			System.arraycopy(mKept, 0, kept, 0, mKeptCount);
+			mKept = kept;
+		}
+		mKept[mKeptCount++] = index;
+
+		mAnchorLatitude = latitude;
+		mAnchorLongitude = longitude;
+		mMetersPerDegreeLongitude = METERS_PER_DEGREE * Math.cos(latitude * DEG2RAD);
+		final double tolerance = mTolerance * TileSystem.GroundResolutionMapSize(latitude, mMapSize);
+		mToleranceSquared = tolerance * tolerance;
+		mPendingCount = 0;
+	}
+
+	/**
+	 * Checks that all pending points are close to the segment from the anchor to the given point.
+	 * Coordinates are in meters relative to the anchor.
+	 */
+	private boolean isWithinTolerance(final double x, final double y) {
+		final double lengthSquared = x * x + y * y;
+		for (int i = 0; i < mPendingCount; i++) {
+			final double px = mPendingX[i];
+			final double py = mPendingY[i];
+			double t = lengthSquared == 0 ? 0 : (px * x + py * y) / lengthSquared;
+			if (t < 0) {
+				t = 0;
+			} else if (t > 1) {
+				t = 1;
+			}
+			final double dx = px - t * x;
+			final double dy = py - t * y;
+			if (dx * dx + dy * dy > mToleranceSquared) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
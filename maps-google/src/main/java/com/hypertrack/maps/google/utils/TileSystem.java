@@ -54,11 +54,53 @@ public abstract class TileSystem {
 	 */
 	private static int mMaxZoomLevel = primaryKeyMaxZoomLevel;
 
+	/**
+	 * Zoom level from which {@link #getFactor(double)} doesn't grow anymore
+	 */
+	private static final int MAX_FACTOR_ZOOM_LEVEL = 15;
+
+	/**
+	 * Value of a long quadkey that doesn't exist, e.g. a neighbor beyond the north or the south edge of the map.
+	 */
+	public static final long NO_QUAD_KEY = -1;
+
+	private static final int QUAD_KEY_ZOOM_BITS = 5;
+	private static final long QUAD_KEY_ZOOM_MASK = (1 << QUAD_KEY_ZOOM_BITS) - 1;
+
+	/**
+	 * Volatile, it's read by the geometry worker and set on the main thread
+	 */
+	private static volatile boolean mFastMathEnabled;
+	private static final double[] mMapSizes = new double[MAX_FACTOR_ZOOM_LEVEL + 1];
+
+	static {
+		updateMapSizes();
+	}
+
 	public static void setTileSize(final int tileSize) {
 		int pow2 = (int) (0.5 + Math.log(tileSize) / Math.log(2));
 		mMaxZoomLevel = Math.min(primaryKeyMaxZoomLevel, (64 - 1) - pow2 - 1);
 
 		mTileSize = tileSize;
+		updateMapSizes();
+	}
+
+	private static void updateMapSizes() {
+		for (int zoomLevel = 0; zoomLevel < mMapSizes.length; zoomLevel++) {
+			mMapSizes[zoomLevel] = mTileSize * (double) (1 << zoomLevel);
+		}
+	}
+
+	/**
+	 * Switches map sizes, ground resolution and Mercator y to cached values and lookup tables
+	 * of {@link MercatorTables}, see its error bounds. Disabled by default.
+	 */
+	public static void setFastMathEnabled(final boolean pEnabled) {
+		mFastMathEnabled = pEnabled;
+	}
+
+	public static boolean isFastMathEnabled() {
+		return mFastMathEnabled;
 	}
 
 	public static int getTileSize() {
@@ -90,6 +132,13 @@ public abstract class TileSystem {
 	 *
 	 */
 	public static double MapSize(final double pZoomLevel) {
+		if (mFastMathEnabled && pZoomLevel >= 0) {
+			if (pZoomLevel >= MAX_FACTOR_ZOOM_LEVEL) {
+				return mMapSizes[MAX_FACTOR_ZOOM_LEVEL];
+			}
+			final int zoomLevel = (int) pZoomLevel;
+			return mMapSizes[zoomLevel] * MercatorTables.exp2(pZoomLevel - zoomLevel);
+		}
 		return getTileSize() * getFactor(pZoomLevel);
 	}
 
@@ -97,7 +146,7 @@ public abstract class TileSystem {
 	 *
 	 */
 	public static double getFactor(final double pZoomLevel) {
-		return Math.pow(2, pZoomLevel > 15 ? 15 : pZoomLevel);
+		return Math.pow(2, pZoomLevel > MAX_FACTOR_ZOOM_LEVEL ? MAX_FACTOR_ZOOM_LEVEL : pZoomLevel);
 	}
 
 	public static double GroundResolution(final double latitude, final int levelOfDetail) {
@@ -116,7 +165,8 @@ public abstract class TileSystem {
 	 */
 	public static double GroundResolutionMapSize(double latitude, final double mapSize) {
 		latitude = Clip(latitude, -90, 90);
-		return Math.cos(latitude * Math.PI / 180) * 2 * Math.PI * GeoConstants.RADIUS_EARTH_METERS
+		final double cos = mFastMathEnabled ? MercatorTables.cos(latitude) : Math.cos(latitude * Math.PI / 180);
+		return cos * 2 * Math.PI * GeoConstants.RADIUS_EARTH_METERS
 				/ mapSize;
 	}
 
@@ -254,6 +304,103 @@ public abstract class TileSystem {
 		return out;
 	}
 
+	/**
+	 * Same as {@link #TileXYToQuadKey(int, int, int)} but encoded into a long without allocations.
+	 * Quadkey digits are stored as interleaved bits of tile x and y above 5 bits of the zoom level,
+	 * so long quadkeys of one zoom level are sorted the same way as string ones.
+	 * Works for zoom levels from 0 to {@link #primaryKeyMaxZoomLevel}.
+	 */
+	public static long getQuadKey(final int pTileX, final int pTileY, final int pZoomLevel) {
+		return (interleave(pTileX) | (interleave(pTileY) << 1)) << QUAD_KEY_ZOOM_BITS | pZoomLevel;
+	}
+
+	public static int getQuadKeyZoomLevel(final long pQuadKey) {
+		return (int) (pQuadKey & QUAD_KEY_ZOOM_MASK);
+	}
+
+	public static int getQuadKeyTileX(final long pQuadKey) {
+		return deinterleave(pQuadKey >>> QUAD_KEY_ZOOM_BITS);
+	}
+
+	public static int getQuadKeyTileY(final long pQuadKey) {
+		return deinterleave(pQuadKey >>> (QUAD_KEY_ZOOM_BITS + 1));
+	}
+
+	/**
+	 * @return quadkey of the tile at the previous zoom level that contains the tile, the same quadkey for zoom level 0.
+	 */
+	public static long getQuadKeyParent(final long pQuadKey) {
+		final int zoomLevel = getQuadKeyZoomLevel(pQuadKey);
+		if (zoomLevel == 0) {
+			return pQuadKey;
+		}
+		return (pQuadKey >>> (QUAD_KEY_ZOOM_BITS + 2)) << QUAD_KEY_ZOOM_BITS | (zoomLevel - 1);
+	}
+
+	/**
+	 * @param pQuadrant digit of the child quadkey: 0 - north-west, 1 - north-east, 2 - south-west, 3 - south-east.
+	 * @return quadkey of the child tile at the next zoom level,
+	 * {@link #NO_QUAD_KEY} for {@link #primaryKeyMaxZoomLevel} whose children don't fit into a long quadkey.
+	 */
+	public static long getQuadKeyChild(final long pQuadKey, final int pQuadrant) {
+		final int zoomLevel = getQuadKeyZoomLevel(pQuadKey);
+		if (zoomLevel >= primaryKeyMaxZoomLevel) {
+			return NO_QUAD_KEY;
+		}
+		return ((pQuadKey >>> QUAD_KEY_ZOOM_BITS) << 2 | (pQuadrant & 3)) << QUAD_KEY_ZOOM_BITS | (zoomLevel + 1);
+	}
+
+	/**
+	 * @return quadkey of the tile shifted by the offsets at the same zoom level. Tile x wraps around the antimeridian,
+	 * {@link #NO_QUAD_KEY} is returned beyond the north and the south edges of the map.
+	 */
+	public static long getQuadKeyNeighbor(final long pQuadKey, final int pOffsetX, final int pOffsetY) {
+		final int zoomLevel = getQuadKeyZoomLevel(pQuadKey);
+		final long mapTiles = 1L << zoomLevel;
+		final long tileY = getQuadKeyTileY(pQuadKey) + (long) pOffsetY;
+		if (tileY < 0 || tileY >= mapTiles) {
+			return NO_QUAD_KEY;
+		}
+		long tileX = (getQuadKeyTileX(pQuadKey) + (long) pOffsetX) % mapTiles;
+		if (tileX < 0) {
+			tileX += mapTiles;
+		}
+		return getQuadKey((int) tileX, (int) tileY, zoomLevel);
+	}
+
+	/**
+	 * @return string quadkey of a long quadkey, see {@link #TileXYToQuadKey(int, int, int)}
+	 */
+	public static String QuadKeyToString(final long pQuadKey) {
+		return TileXYToQuadKey(getQuadKeyTileX(pQuadKey), getQuadKeyTileY(pQuadKey), getQuadKeyZoomLevel(pQuadKey));
+	}
+
+	/**
+	 * Spreads the lower 29 bits of the value to even bits of a long.
+	 */
+	private static long interleave(final int pValue) {
+		long result = pValue & 0x1FFFFFFFL;
+		result = (result | (result << 16)) & 0x0000FFFF0000FFFFL;
+		result = (result | (result << 8)) & 0x00FF00FF00FF00FFL;
+		result = (result | (result << 4)) & 0x0F0F0F0F0F0F0F0FL;
+		result = (result | (result << 2)) & 0x3333333333333333L;
+		result = (result | (result << 1)) & 0x5555555555555555L;
+		return result;
+	}
+
+	/**
+	 * Reverse of {@link #interleave(int)}
+	 */
+	private static int deinterleave(final long pValue) {
+		long result = pValue & 0x5555555555555555L;
+		result = (result | (result >>> 1)) & 0x3333333333333333L;
+		result = (result | (result >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+		result = (result | (result >>> 4)) & 0x00FF00FF00FF00FFL;
+		result = (result | (result >>> 8)) & 0x0000FFFF0000FFFFL;
+		result = (result | (result >>> 16)) & 0x00000000FFFFFFFFL;
+		return (int) result;
+	}
+
 	/**
 	 * Returns a value that lies within <code>minValue</code> and <code>maxValue</code> by
 	 * subtracting/adding <code>interval</code>.
@@ -345,6 +492,124 @@ public abstract class TileSystem {
 		return wrapEnabled ? Clip(pMercator / pMapSize, 0, 1) : pMercator / pMapSize;
 	}
 
+	/**
+	 * Converts a longitude into x of the Web Mercator projection, 0 is the west edge and 1 is the east edge of the map.
+	 */
+	public static double getX01FromLongitude(double longitude) {
+		longitude = Clip(longitude, MinLongitude, MaxLongitude);
+		return (longitude - MinLongitude) / (MaxLongitude - MinLongitude);
+	}
+
+	/**
+	 * Converts a latitude into y of the Web Mercator projection, 0 is the north edge and 1 is the south edge of the map.
+	 */
+	public static double getY01FromLatitude(double latitude) {
+		latitude = Clip(latitude, MinLatitude, MaxLatitude);
+		if (mFastMathEnabled) {
+			return Clip(0.5 - MercatorTables.mercator(latitude) / (2 * Math.PI), 0, 1);
+		}
+		final double sinus = Math.sin(latitude * Math.PI / 180);
+		return Clip(0.5 - Math.log((1 + sinus) / (1 - sinus)) / (4 * Math.PI), 0, 1);
+	}
+
+	/**
+	 * Reverse of {@link #getX01FromLongitude(double)}
+	 */
+	public static double getLongitudeFromX01(final double pX01) {
+		return MinLongitude + (MaxLongitude - MinLongitude) * pX01;
+	}
+
+	/**
+	 * Reverse of {@link #getY01FromLatitude(double)}
+	 */
+	public static double getLatitudeFromY01(final double pY01) {
+		return 90 - 360 * Math.atan(Math.exp((pY01 - 0.5) * 2 * Math.PI)) / Math.PI;
+	}
+
+	/**
+	 * Batch version of {@link #getX01FromLongitude(double)} and {@link #getY01FromLatitude(double)}.
+	 * Converts points from pOffset to pOffset + pCount, results are written at the same indices of the output arrays.
+	 * Output arrays can be the input ones, in any order.
+	 */
+	public static void getXY01FromLatLng(final double[] pLatitudes, final double[] pLongitudes,
+										 final int pOffset, final int pCount,
+										 final double[] pOutX01, final double[] pOutY01) {
+		final int end = pOffset + pCount;
+		if (mFastMathEnabled) {
+			for (int i = pOffset; i < end; i++) {
+				final double latitude = Math.min(Math.max(pLatitudes[i], MinLatitude), MaxLatitude);
+				final double longitude = Math.min(Math.max(pLongitudes[i], MinLongitude), MaxLongitude);
+				pOutX01[i] = (longitude - MinLongitude) / (MaxLongitude - MinLongitude);
+				pOutY01[i] = Math.min(Math.max(0.5 - MercatorTables.mercator(latitude) / (2 * Math.PI), 0), 1);
+			}
+		} else {
+			for (int i = pOffset; i < end; i++) {
+				final double latitude = Math.min(Math.max(pLatitudes[i], MinLatitude), MaxLatitude);
+				final double longitude = Math.min(Math.max(pLongitudes[i], MinLongitude), MaxLongitude);
+				final double sinus = Math.sin(latitude * Math.PI / 180);
+				pOutX01[i] = (longitude - MinLongitude) / (MaxLongitude - MinLongitude);
+				pOutY01[i] = Math.min(Math.max(0.5 - Math.log((1 + sinus) / (1 - sinus)) / (4 * Math.PI), 0), 1);
+			}
+		}
+	}
+
+	/**
+	 * Batch reverse of {@link #getXY01FromLatLng(double[], double[], int, int, double[], double[])}.
+	 * Output arrays can be the input ones, in any order.
+	 */
+	public static void getLatLngFromXY01(final double[] pX01, final double[] pY01,
+										 final int pOffset, final int pCount,
+										 final double[] pOutLatitudes, final double[] pOutLongitudes) {
+		final int end = pOffset + pCount;
+		for (int i = pOffset; i < end; i++) {
+			final double x01 = pX01[i];
+			final double y01 = pY01[i];
+			pOutLatitudes[i] = 90 - 360 * Math.atan(Math.exp((y01 - 0.5) * 2 * Math.PI)) / Math.PI;
+			pOutLongitudes[i] = MinLongitude + (MaxLongitude - MinLongitude) * x01;
+		}
+	}
+
+	/**
+	 * Projects points into Mercator pixel coordinates of a map of the given size, without wrap.
+	 * Converts points from pOffset to pOffset + pCount, results are written at the same indices of the output arrays.
+	 *
+	 * @param pMapSize map size in pixels, e.g. {@link #getTileSize()} * 2^zoom.
+	 */
+	public static void getMercatorFromLatLng(final double[] pLatitudes, final double[] pLongitudes,
+											 final int pOffset, final int pCount, final double pMapSize,
+											 final long[] pOutX, final long[] pOutY) {
+		final int end = pOffset + pCount;
+		for (int i = pOffset; i < end; i++) {
+			final double longitude = Math.min(Math.max(pLongitudes[i], MinLongitude), MaxLongitude);
+			pOutX[i] = MyMath.floorToLong((longitude - MinLongitude) / (MaxLongitude - MinLongitude) * pMapSize);
+		}
+		if (mFastMathEnabled) {
+			for (int i = pOffset; i < end; i++) {
+				final double latitude = Math.min(Math.max(pLatitudes[i], MinLatitude), MaxLatitude);
+				pOutY[i] = MyMath.floorToLong((0.5 - MercatorTables.mercator(latitude) / (2 * Math.PI)) * pMapSize);
+			}
+		} else {
+			for (int i = pOffset; i < end; i++) {
+				final double latitude = Math.min(Math.max(pLatitudes[i], MinLatitude), MaxLatitude);
+				final double sinus = Math.sin(latitude * Math.PI / 180);
+				pOutY[i] = MyMath.floorToLong((0.5 - Math.log((1 + sinus) / (1 - sinus)) / (4 * Math.PI)) * pMapSize);
+			}
+		}
+	}
+
+	/**
+	 * Batch reverse of {@link #getMercatorFromLatLng(double[], double[], int, int, double, long[], long[])}.
+	 */
+	public static void getLatLngFromMercator(final long[] pX, final long[] pY,
+											 final int pOffset, final int pCount, final double pMapSize,
+											 final double[] pOutLatitudes, final double[] pOutLongitudes) {
+		final int end = pOffset + pCount;
+		for (int i = pOffset; i < end; i++) {
+			pOutLatitudes[i] = 90 - 360 * Math.atan(Math.exp((pY[i] / pMapSize - 0.5) * 2 * Math.PI)) / Math.PI;
+			pOutLongitudes[i] = MinLongitude + (MaxLongitude - MinLongitude) * (pX[i] / pMapSize);
+		}
+	}
+
 	/**
 	 *
 	 */
@@ -0,0 +1,211 @@
+package com.hypertrack.maps.google.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Ring buffer of begin and end events of spans, exported in the Chrome trace event format
+ * that is opened by chrome://tracing and https://ui.perfetto.dev.
+ *
+ * Spans are recorded only up to the level of the buffer. Names and arguments are stored by reference,
+ * so call sites pass constant names and existing strings, e.g. a trip id, and nothing is built
+ * for a disabled level. Arrays are allocated when the buffer is enabled for the first time,
+ * recording doesn't allocate and overwrites the oldest events when the buffer is full.
+ * The buffer isn't synchronized, spans must be recorded on one thread, e.g. the main thread.
+ */
+public class TraceBuffer {
+	// ===========================================================
+	// Constants
+	// ===========================================================
+
+	public static final int LEVEL_OFF = 0;
+	/**
+	 * Operations of the adapter, e.g. adding a trip or a location update.
+	 */
+	public static final int LEVEL_INFO = 1;
+	/**
+	 * Operations of every trip, e.g. its updates and map object changes.
+	 */
+	public static final int LEVEL_VERBOSE = 2;
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final char PHASE_BEGIN = 'B';
+	private static final char PHASE_END = 'E';
+
+	private static final long NANOS_PER_MICRO = 1000;
+
+	// ===========================================================
+	// Fields
+	// ===========================================================
+
+	private final int mCapacity;
+	private int mLevel = LEVEL_OFF;
+
+	private long[] mTimes;
+	private long[] mThreads;
+	private char[] mPhases;
+	private String[] mNames;
+	private String[] mArgs;
+	private int mNext;
+	private int mCount;
+
+	// ===========================================================
+	// Constructors
+	// ===========================================================
+
+	/**
+	 * @param pCapacity max count of kept events, a span takes two events
+	 */
+	public TraceBuffer(final int pCapacity) {
+		if (pCapacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + pCapacity);
+		}
+		mCapacity = pCapacity;
+	}
+
+	// ===========================================================
+	// Getter & Setter
+	// ===========================================================
+
+	public int getLevel() {
+		return mLevel;
+	}
+
+	/**
+	 * @param pLevel one of LEVEL_ constants, spans of higher levels aren't recorded
+	 */
+	public void setLevel(final int pLevel) {
+		if (pLevel > LEVEL_OFF && mTimes == null) {
+			mTimes = new long[mCapacity];
+			mThreads = new long[mCapacity];
+			mPhases = new char[mCapacity];
+			mNames = new String[mCapacity];
+			mArgs = new String[mCapacity];
+		}
+		mLevel = pLevel;
+	}
+
+	public boolean isEnabled(final int pLevel) {
+		return pLevel <= mLevel;
+	}
+
+	public int getCapacity() {
+		return mCapacity;
+	}
+
+	/**
+	 * @return count of kept events
+	 */
+	public int getCount() {
+		return mCount;
+	}
+
+	// ===========================================================
+	// Methods
+	// ===========================================================
+
+	public void begin(final int pLevel, final String pName) {
+		begin(pLevel, pName, null);
+	}
+
+	/**
+	 * Starts a span, it must be ended by {@link #end(int, String)} with the same level on the same thread.
+	 *
+	 * @param pName constant name of the span
+	 * @param pArg optional argument of the span, e.g. a trip id
+	 */
+	public void begin(final int pLevel, final String pName, final String pArg) {
+		if (pLevel <= mLevel) {
+			record(PHASE_BEGIN, pName, pArg);
+		}
+	}
+
+	public void end(final int pLevel, final String pName) {
+		if (pLevel <= mLevel) {
+			record(PHASE_END, pName, null);
+		}
+	}
+
+	/**
+	 * Drops kept events, the level isn't changed.
+	 */
+	public void clear() {
+		if (mNames != null) {
+			Arrays.fill(mNames, null);
+			Arrays.fill(mArgs, null);
+		}
+		mNext = 0;
+		mCount = 0;
+	}
+
+	/**
+	 * Writes kept events from the oldest one as a JSON object of the Chrome trace event format.
+	 * Times are in microseconds of {@link System#nanoTime()}. The oldest events may be ends of spans
+	 * whose begins are overwritten, trace viewers ignore them.
+	 */
+	public void writeChromeTrace(final Appendable pOut) throws IOException {
+		pOut.append("{\"traceEvents\":[");
+		final int first = mNext - mCount < 0 ? mNext - mCount + mCapacity : mNext - mCount;
+		for (int i = 0; i < mCount; i++) {
+			final int index = (first + i) % mCapacity;
+			if (i > 0) {
+				pOut.append(',');
+			}
+			pOut.append("\n{\"name\":");
+			appendString(pOut, mNames[index]);
+			pOut.append(",\"ph\":\"").append(mPhases[index]);
+			pOut.append("\",\"ts\":").append(String.valueOf(mTimes[index] / NANOS_PER_MICRO));
+			pOut.append(",\"pid\":1,\"tid\":").append(String.valueOf(mThreads[index]));
+			if (mArgs[index] != null) {
+				pOut.append(",\"args\":{\"id\":");
+				appendString(pOut, mArgs[index]);
+				pOut.append('}');
+			}
+			pOut.append('}');
+		}
+		pOut.append("\n],\"displayTimeUnit\":\"ms\"}");
+	}
+
+	/**
+	 * @return kept events in the Chrome trace event format
+	 * @see #writeChromeTrace(Appendable)
+	 */
+	public String toChromeTrace() {
+		final StringBuilder builder = new StringBuilder(64 + mCount * 80);
+		try {
+			writeChromeTrace(builder);
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	private void record(final char pPhase, final String pName, final String pArg) {
+		final int index = mNext;
+		mTimes[index] = System.nanoTime();
+		mThreads[index] = Thread.currentThread().getId();
+		mPhases[index] = pPhase;
+		mNames[index] = pName;
+		mArgs[index] = pArg;
+		mNext = index + 1 == mCapacity ? 0 : index + 1;
+		if (mCount < mCapacity) {
+			mCount++;
+		}
+	}
+
+	private static void appendString(final Appendable pOut, final String pValue) throws IOException {
+		pOut.append('"');
+		for (int i = 0; i < pValue.length(); i++) {
+			final char c = pValue.charAt(i);
+			if (c == '"' || c == '\\') {
+				pOut.append('\\').append(c);
+			} else if (c < 0x20) {
+				pOut.append(String.format("\\u%04x", (int) c));
+			} else {
+				pOut.append(c);
+			}
+		}
+		pOut.append('"');
+	}
+}
@@ -0,0 +1,222 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.hypertrack.maps.google.utils.LatencyHistogram;
+
+/**
+ * Runtime cost of {@link GoogleMapAdapter}: counters of map calls and latencies of adapter operations.
+ * <p>
+ * Counters are always kept, a counter costs an increment per map call. Latencies are measured only while
+ * a {@link Listener} is attached, without a listener no clock is read.
+ * Metrics are updated and must be read on the main thread.
+ *
+ * @see GoogleMapAdapter#getMetrics()
+ * @see GoogleMapAdapter#setMetricsListener(Listener)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class AdapterMetrics {
+    /**
+     * Duration of {@link GoogleMapAdapter#addTrip}.
+     */
+    public static final int OPERATION_ADD_TRIP = 0;
+    /**
+     * Duration of {@link GoogleMapAdapter#updateMyLocation}.
+     */
+    public static final int OPERATION_UPDATE_MY_LOCATION = 1;
+    /**
+     * Duration of remapping all trips, e.g. after {@link GoogleMapAdapter#notifyDataSetChanged()}.
+     */
+    public static final int OPERATION_REMAP_TRIPS = 2;
+    /**
+     * Time from a trip update to the map objects of the trip being updated, including geometry preparation
+     * in background. Updates that are coalesced into one snapshot are measured from the first of them.
+     */
+    public static final int OPERATION_UPDATE_TO_MUTATION = 3;
+
+    private static final int OPERATION_COUNT = 4;
+
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * Receives latencies as they are measured.
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread after an operation, the duration is already recorded into its histogram.
+         *
+         * @param operation     one of OPERATION_ constants.
+         * @param durationNanos duration of the operation in nanoseconds.
+         */
+        void onOperation(@NonNull AdapterMetrics metrics, int operation, long durationNanos);
+    }
+
+    long tripUpdateCount;
+    long setPointsCount;
+    long uploadedPointCount;
+    long markerMutationCount;
+    long circleMutationCount;
+    long cameraAnimationCount;
+    long cancelledCameraAnimationCount;
+    int mutationQueueDepth;
+    int maxMutationQueueDepth;
+    long mergedMutationCount;
+    long frameBudgetOverrunCount;
+    long intervalRejectedLocationCount;
+    long deadBandRejectedLocationCount;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATION_COUNT];
+    private Listener listener;
+
+    AdapterMetrics() {
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return count of trip updates that requested new geometry, including updates caused by the camera and my location.
+     */
+    public long getTripUpdateCount() {
+        return tripUpdateCount;
+    }
+
+    /**
+     * @return count of points replacements of polylines.
+     */
+    public long getSetPointsCount() {
+        return setPointsCount;
+    }
+
+    /**
+     * @return count of points sent to the map in new polylines and in points replacements.
+     */
+    public long getUploadedPointCount() {
+        return uploadedPointCount;
+    }
+
+    /**
+     * @return count of added and removed markers and changes of their position, rotation, icon and visibility.
+     */
+    public long getMarkerMutationCount() {
+        return markerMutationCount;
+    }
+
+    /**
+     * @return count of added and removed circles and changes of their properties.
+     */
+    public long getCircleMutationCount() {
+        return circleMutationCount;
+    }
+
+    public long getCameraAnimationCount() {
+        return cameraAnimationCount;
+    }
+
+    /**
+     * @return count of camera animations interrupted by another animation or by a user gesture.
+     */
+    public long getCancelledCameraAnimationCount() {
+        return cancelledCameraAnimationCount;
+    }
+
+    /**
+     * @return count of map object mutations waiting for a frame.
+     */
+    public int getMutationQueueDepth() {
+        return mutationQueueDepth;
+    }
+
+    /**
+     * @return max count of map object mutations that waited for a frame at once.
+     */
+    public int getMaxMutationQueueDepth() {
+        return maxMutationQueueDepth;
+    }
+
+    /**
+     * @return count of mutations merged into a pending mutation of the same object.
+     */
+    public long getMergedMutationCount() {
+        return mergedMutationCount;
+    }
+
+    /**
+     * @return count of frames whose mutations took longer than the frame budget.
+     * @see GoogleMapConfig.Builder#mutationFrameBudget(long)
+     */
+    public long getFrameBudgetOverrunCount() {
+        return frameBudgetOverrunCount;
+    }
+
+    /**
+     * @return count of my location fixes dropped because they came sooner than the min interval after the last shown fix.
+     * @see GoogleMapConfig.Builder#locationInterval(long, long)
+     */
+    public long getIntervalRejectedLocationCount() {
+        return intervalRejectedLocationCount;
+    }
+
+    /**
+     * @return count of my location fixes dropped because they moved and turned less than the dead-band.
+     * @see GoogleMapConfig.Builder#locationDeadBand(float, float, float)
+     */
+    public long getDeadBandRejectedLocationCount() {
+        return deadBandRejectedLocationCount;
+    }
+
+    /**
+     * @param operation one of OPERATION_ constants.
+     * @return latencies of the operation, empty while no listener is attached.
+     */
+    @NonNull
+    public LatencyHistogram getLatency(int operation) {
+        return latencies[operation];
+    }
+
+    /**
+     * Resets counters and latencies.
+     */
+    public void reset() {
+        tripUpdateCount = 0;
+        setPointsCount = 0;
+        uploadedPointCount = 0;
+        markerMutationCount = 0;
+        circleMutationCount = 0;
+        cameraAnimationCount = 0;
+        cancelledCameraAnimationCount = 0;
+        maxMutationQueueDepth = mutationQueueDepth;
+        mergedMutationCount = 0;
+        frameBudgetOverrunCount = 0;
+        intervalRejectedLocationCount = 0;
+        deadBandRejectedLocationCount = 0;
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+    }
+
+    void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return start time of an operation, {@link #NOT_TIMED} if there is no listener.
+     */
+    long startTiming() {
+        return listener == null ? NOT_TIMED : System.nanoTime();
+    }
+
+    /**
+     * Records the duration of an operation started by {@link #startTiming()}.
+     */
+    void stopTiming(int operation, long startTime) {
+        Listener listener = this.listener;
+        if (startTime == NOT_TIMED || listener == null) {
+            return;
+        }
+        long duration = System.nanoTime() - startTime;
+        latencies[operation].record(duration);
+        listener.onOperation(this, operation, duration);
+    }
+}
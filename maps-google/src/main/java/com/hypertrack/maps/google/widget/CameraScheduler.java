@@ -0,0 +1,113 @@
+package com.hypertrack.maps.google.widget;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+/**
+ * Coalesces camera update requests of the fixed camera mode. Requests are debounced and
+ * the callback is invoked at most once per interval, so a camera animation isn't cancelled
+ * by the next one. Also contains dead-zone checks to skip animations that don't change much.
+ */
+class CameraScheduler implements Runnable {
+    private static final long DEBOUNCE_DELAY = 100;
+    private static final double MIN_TARGET_SPAN = 0.5;
+
+    interface Callback {
+        void onCameraUpdate();
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Callback callback;
+    private final long interval;
+
+    private boolean isScheduled;
+    private long lastUpdateTime;
+
+    CameraScheduler(long interval, Callback callback) {
+        this.interval = interval;
+        this.callback = callback;
+        lastUpdateTime = -interval;
+    }
+
+    /**
+     * Schedules a camera update if it isn't scheduled yet.
+     */
+    void schedule() {
+        if (!isScheduled) {
+            isScheduled = true;
+            long time = Math.max(SystemClock.uptimeMillis() + DEBOUNCE_DELAY, lastUpdateTime + interval);
+            handler.postAtTime(this, time);
+        }
+    }
+
+    void cancel() {
+        handler.removeCallbacks(this);
+        isScheduled = false;
+    }
+
+    @Override
+    public void run() {
+        isScheduled = false;
+        lastUpdateTime = SystemClock.uptimeMillis();
+        callback.onCameraUpdate();
+    }
+
+    /**
+     * Checks if the target bounds lie inside the viewport shrunk by the dead-zone and
+     * are big enough, so fitting the camera to them wouldn't change the picture much.
+     *
+     * @param deadZone fraction of the viewport size from each side, 0 disables the check.
+     */
+    static boolean isInDeadZone(LatLngBounds viewport, LatLngBounds target, float deadZone) {
+        if (deadZone <= 0) {
+            return false;
+        }
+        double south = viewport.southwest.latitude;
+        double latitudeSpan = viewport.northeast.latitude - south;
+        double west = viewport.southwest.longitude;
+        double longitudeSpan = longitudeSpan(west, viewport.northeast.longitude);
+        double innerLatitudeSpan = latitudeSpan * (1 - 2 * deadZone);
+        double innerLongitudeSpan = longitudeSpan * (1 - 2 * deadZone);
+        if (innerLatitudeSpan <= 0 || innerLongitudeSpan <= 0) {
+            return false;
+        }
+        double innerSouth = south + latitudeSpan * deadZone;
+        double innerWest = west + longitudeSpan * deadZone;
+
+        double targetSouth = target.southwest.latitude - innerSouth;
+        double targetNorth = target.northeast.latitude - innerSouth;
+        double targetWest = longitudeSpan(innerWest, target.southwest.longitude);
+        double targetEast = targetWest + longitudeSpan(target.southwest.longitude, target.northeast.longitude);
+        if (targetSouth < 0 || targetNorth > innerLatitudeSpan || targetEast > innerLongitudeSpan) {
+            return false;
+        }
+        return (targetNorth - targetSouth) >= innerLatitudeSpan * MIN_TARGET_SPAN
+                || (targetEast - targetWest) >= innerLongitudeSpan * MIN_TARGET_SPAN;
+    }
+
+    /**
+     * Checks if the target lies inside the viewport shrunk by the dead-zone.
+     *
+     * @param deadZone fraction of the viewport size from each side, 0 disables the check.
+     */
+    static boolean isInDeadZone(LatLngBounds viewport, LatLng target, float deadZone) {
+        if (deadZone <= 0) {
+            return false;
+        }
+        double latitudeSpan = viewport.northeast.latitude - viewport.southwest.latitude;
+        double longitudeSpan = longitudeSpan(viewport.southwest.longitude, viewport.northeast.longitude);
+        double latitude = target.latitude - viewport.southwest.latitude;
+        double longitude = longitudeSpan(viewport.southwest.longitude, target.longitude);
+        return latitude >= latitudeSpan * deadZone && latitude <= latitudeSpan * (1 - deadZone)
+                && longitude >= longitudeSpan * deadZone && longitude <= longitudeSpan * (1 - deadZone);
+    }
+
+    private static double longitudeSpan(double west, double east) {
+        double span = east - west;
+        return span < 0 ? span + 360 : span;
+    }
+}
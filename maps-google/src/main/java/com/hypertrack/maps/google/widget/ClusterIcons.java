@@ -0,0 +1,74 @@
+package com.hypertrack.maps.google.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Icons of cluster markers, a filled circle with the count of markers. Large counts are rounded down
+ * to a few buckets (10+, 20+, 50+...) so only a handful of bitmaps is ever created.
+ */
+class ClusterIcons {
+    private static final int[] BUCKETS = {10, 20, 50, 100, 200, 500, 1000};
+
+    private final int size;
+    private final int color;
+    private final Map<String, BitmapDescriptor> icons = new HashMap<>();
+
+    /**
+     * @param size icon diameter in pixels (px).
+     */
+    ClusterIcons(int size, int color) {
+        this.size = size;
+        this.color = color;
+    }
+
+    static String getLabel(int count) {
+        if (count < BUCKETS[0]) {
+            return String.valueOf(count);
+        }
+        int bucket = BUCKETS[0];
+        for (int value : BUCKETS) {
+            if (count >= value) {
+                bucket = value;
+            }
+        }
+        return bucket + "+";
+    }
+
+    BitmapDescriptor getIcon(int count) {
+        String label = getLabel(count);
+        BitmapDescriptor icon = icons.get(label);
+        if (icon == null) {
+            icon = BitmapDescriptorFactory.fromBitmap(render(label));
+            icons.put(label, icon);
+        }
+        return icon;
+    }
+
+    private Bitmap render(String label) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        float radius = size / 2f;
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.WHITE);
+        canvas.drawCircle(radius, radius, radius, paint);
+        paint.setColor(color);
+        canvas.drawCircle(radius, radius, radius * 0.85f, paint);
+
+        paint.setColor(Color.WHITE);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setFakeBoldText(true);
+        paint.setTextSize(size * (label.length() > 3 ? 0.3f : 0.4f));
+        canvas.drawText(label, radius, radius - (paint.descent() + paint.ascent()) / 2, paint);
+        return bitmap;
+    }
+}
@@ -0,0 +1,287 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PatternItem;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.List;
+
+/**
+ * {@link MapBackend} that remembers the last value applied to every property of markers, polylines
+ * and circles and forwards only changed values, so the adapter can set the whole state of an object
+ * on every update without paying for a call into the renderer per property.
+ * <p>
+ * Values are taken from the options when an object is added and compared by equals, icons by reference.
+ * Polyline points are always forwarded, the adapter uploads them only when they change.
+ * Objects must be changed only through this backend, e.g. markers mustn't be draggable. A marker that
+ * could be changed behind the backend, e.g. by the app, is {@link #invalidate(MarkerHandle) invalidated}.
+ */
+class DirtyTrackingMapBackend implements MapBackend {
+    private final MapBackend map;
+
+    DirtyTrackingMapBackend(@NonNull MapBackend map) {
+        this.map = map;
+    }
+
+    /**
+     * @return handle of the underlying backend.
+     */
+    @Nullable
+    static MarkerHandle unwrap(@Nullable MarkerHandle handle) {
+        return handle instanceof TrackedMarker ? ((TrackedMarker) handle).marker : handle;
+    }
+
+    /**
+     * Forgets the values applied to the marker, so the next value of every property is forwarded.
+     */
+    static void invalidate(@Nullable MarkerHandle handle) {
+        if (handle instanceof TrackedMarker) {
+            ((TrackedMarker) handle).invalidate();
+        }
+    }
+
+    @Override
+    public MarkerHandle addMarker(@NonNull MarkerOptions options) {
+        return new TrackedMarker(map.addMarker(options), options);
+    }
+
+    @Override
+    public PolylineHandle addPolyline(@NonNull PolylineOptions options) {
+        return new TrackedPolyline(map.addPolyline(options), options);
+    }
+
+    @Override
+    public CircleHandle addCircle(@NonNull CircleOptions options) {
+        return new TrackedCircle(map.addCircle(options), options);
+    }
+
+    @Override
+    public CameraPosition getCameraPosition() {
+        return map.getCameraPosition();
+    }
+
+    @Override
+    public LatLngBounds getVisibleBounds() {
+        return map.getVisibleBounds();
+    }
+
+    @Override
+    public float getMaxZoomLevel() {
+        return map.getMaxZoomLevel();
+    }
+
+    @Override
+    public void setMaxZoomPreference(float maxZoomPreference) {
+        map.setMaxZoomPreference(maxZoomPreference);
+    }
+
+    @Override
+    public void setOnCameraIdleListener(@Nullable GoogleMap.OnCameraIdleListener listener) {
+        map.setOnCameraIdleListener(listener);
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLng target, float zoom, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        map.animateCamera(target, zoom, duration, callback);
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLngBounds bounds, int width, int height, int padding, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        map.animateCamera(bounds, width, height, padding, duration, callback);
+    }
+
+    private static boolean isEqual(@Nullable Object a, @Nullable Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static class TrackedMarker implements MarkerHandle {
+        private final MarkerHandle marker;
+        private LatLng position;
+        private float rotation;
+        private BitmapDescriptor icon;
+        private boolean isVisible;
+        private boolean isIconStale;
+        private boolean isVisibleStale;
+
+        TrackedMarker(MarkerHandle marker, MarkerOptions options) {
+            this.marker = marker;
+            position = options.getPosition();
+            rotation = options.getRotation();
+            icon = options.getIcon();
+            isVisible = options.isVisible();
+        }
+
+        void invalidate() {
+            position = null;
+            rotation = Float.NaN;
+            isIconStale = true;
+            isVisibleStale = true;
+        }
+
+        @Override
+        public String getId() {
+            return marker.getId();
+        }
+
+        @Override
+        public void setPosition(@NonNull LatLng position) {
+            if (!position.equals(this.position)) {
+                this.position = position;
+                marker.setPosition(position);
+            }
+        }
+
+        @Override
+        public void setRotation(float rotation) {
+            if (rotation != this.rotation) {
+                this.rotation = rotation;
+                marker.setRotation(rotation);
+            }
+        }
+
+        @Override
+        public void setIcon(@Nullable BitmapDescriptor icon) {
+            if (icon != this.icon || isIconStale) {
+                this.icon = icon;
+                isIconStale = false;
+                marker.setIcon(icon);
+            }
+        }
+
+        @Override
+        public void setVisible(boolean visible) {
+            if (visible != isVisible || isVisibleStale) {
+                isVisible = visible;
+                isVisibleStale = false;
+                marker.setVisible(visible);
+            }
+        }
+
+        @Override
+        public void remove() {
+            marker.remove();
+        }
+    }
+
+    private static class TrackedPolyline implements PolylineHandle {
+        private final PolylineHandle polyline;
+        private int color;
+        private float width;
+        private List<PatternItem> pattern;
+
+        TrackedPolyline(PolylineHandle polyline, PolylineOptions options) {
+            this.polyline = polyline;
+            color = options.getColor();
+            width = options.getWidth();
+            pattern = options.getPattern();
+        }
+
+        @Override
+        public void setPoints(@NonNull List<LatLng> points) {
+            polyline.setPoints(points);
+        }
+
+        @Override
+        public void setColor(int color) {
+            if (color != this.color) {
+                this.color = color;
+                polyline.setColor(color);
+            }
+        }
+
+        @Override
+        public void setWidth(float width) {
+            if (width != this.width) {
+                this.width = width;
+                polyline.setWidth(width);
+            }
+        }
+
+        @Override
+        public void setPattern(@Nullable List<PatternItem> pattern) {
+            if (!isEqual(pattern, this.pattern)) {
+                this.pattern = pattern;
+                polyline.setPattern(pattern);
+            }
+        }
+
+        @Override
+        public void remove() {
+            polyline.remove();
+        }
+    }
+
+    private static class TrackedCircle implements CircleHandle {
+        private final CircleHandle circle;
+        private LatLng center;
+        private double radius;
+        private int fillColor;
+        private int strokeColor;
+        private float strokeWidth;
+
+        TrackedCircle(CircleHandle circle, CircleOptions options) {
+            this.circle = circle;
+            center = options.getCenter();
+            radius = options.getRadius();
+            fillColor = options.getFillColor();
+            strokeColor = options.getStrokeColor();
+            strokeWidth = options.getStrokeWidth();
+        }
+
+        @Override
+        public void setCenter(@NonNull LatLng center) {
+            if (!center.equals(this.center)) {
+                this.center = center;
+                circle.setCenter(center);
+            }
+        }
+
+        @Override
+        public void setRadius(double radius) {
+            if (radius != this.radius) {
+                this.radius = radius;
+                circle.setRadius(radius);
+            }
+        }
+
+        @Override
+        public void setFillColor(int color) {
+            if (color != fillColor) {
+                fillColor = color;
+                circle.setFillColor(color);
+            }
+        }
+
+        @Override
+        public void setStrokeColor(int color) {
+            if (color != strokeColor) {
+                strokeColor = color;
+                circle.setStrokeColor(color);
+            }
+        }
+
+        @Override
+        public void setStrokeWidth(float width) {
+            if (width != strokeWidth) {
+                strokeWidth = width;
+                circle.setStrokeWidth(width);
+            }
+        }
+
+        @Override
+        public void remove() {
+            circle.remove();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+/**
+ * Runs callbacks before the next frame is drawn, so the adapter applies batched updates once per frame.
+ * {@link ChoreographerFrameScheduler} follows the display vsync, tests run frames by hand.
+ */
+interface FrameScheduler {
+
+    /**
+     * Posts the callback to the next frame, it runs once. Frame time is in {@link System#nanoTime()} base.
+     */
+    void postFrameCallback(@NonNull Choreographer.FrameCallback callback);
+
+    void removeFrameCallback(@NonNull Choreographer.FrameCallback callback);
+
+    /**
+     * {@link FrameScheduler} on top of {@link Choreographer} of the main thread, it must be created there.
+     */
+    class ChoreographerFrameScheduler implements FrameScheduler {
+        private final Choreographer choreographer = Choreographer.getInstance();
+
+        @Override
+        public void postFrameCallback(@NonNull Choreographer.FrameCallback callback) {
+            choreographer.postFrameCallback(callback);
+        }
+
+        @Override
+        public void removeFrameCallback(@NonNull Choreographer.FrameCallback callback) {
+            choreographer.removeFrameCallback(callback);
+        }
+    }
+}
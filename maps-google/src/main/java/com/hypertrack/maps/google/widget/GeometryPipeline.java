@@ -0,0 +1,168 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.WorkerThread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-stage pipeline that prepares immutable snapshots on a worker and commits them on the main thread.
+ * <p>
+ * Requests are keyed, only the latest request of a key is committed. A request that is superseded
+ * before the worker picks it up isn't prepared at all, a snapshot that is superseded while waiting
+ * for the main thread is dropped. The worker executor must run tasks one by one in submission order,
+ * so per-key worker state doesn't need synchronization.
+ *
+ * @param <K> key of a prepared object, e.g. trip id.
+ * @param <R> immutable request.
+ * @param <S> immutable snapshot.
+ */
+class GeometryPipeline<K, R, S> {
+
+    interface Stage<K, R, S> {
+
+        /**
+         * Prepares a snapshot for the request.
+         */
+        @WorkerThread
+        S prepare(K key, R request);
+
+        /**
+         * Releases worker state of the key.
+         */
+        @WorkerThread
+        void release(K key);
+
+        /**
+         * Applies the latest snapshot of the key.
+         */
+        @MainThread
+        void commit(K key, S snapshot);
+    }
+
+    private final Executor worker;
+    private final Executor main;
+    private final Stage<K, R, S> stage;
+
+    private final ConcurrentHashMap<K, Long> versions = new ConcurrentHashMap<>();
+    /**
+     * Keys whose latest request isn't committed yet, it's used only on the main thread.
+     */
+    private final Map<K, Long> pendingVersions = new HashMap<>();
+    private long lastVersion;
+    private volatile boolean isShutdown;
+
+    private final AtomicInteger droppedCount = new AtomicInteger();
+    private int committedCount;
+
+    GeometryPipeline(Executor worker, Executor main, Stage<K, R, S> stage) {
+        this.worker = worker;
+        this.main = main;
+        this.stage = stage;
+    }
+
+    /**
+     * Submits a new request of the key, previous requests of the key are superseded.
+     */
+    @MainThread
+    void submit(final K key, final R request) {
+        if (isShutdown) {
+            return;
+        }
+        final long version = ++lastVersion;
+        versions.put(key, version);
+        pendingVersions.put(key, version);
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!isLatest(key, version)) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+                final S snapshot = stage.prepare(key, request);
+                main.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isLatest(key, version)) {
+                            droppedCount.incrementAndGet();
+                            return;
+                        }
+                        pendingVersions.remove(key);
+                        committedCount++;
+                        stage.commit(key, snapshot);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops pending requests and snapshots of the key.
+     */
+    @MainThread
+    void invalidate(K key) {
+        if (versions.containsKey(key)) {
+            versions.put(key, ++lastVersion);
+        }
+        pendingVersions.remove(key);
+    }
+
+    /**
+     * Drops pending requests and snapshots of the key and releases its worker state.
+     */
+    @MainThread
+    void remove(final K key) {
+        versions.remove(key);
+        pendingVersions.remove(key);
+        if (!isShutdown) {
+            worker.execute(new Runnable() {
+                @Override
+                public void run() {
+                    stage.release(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all pending requests and snapshots. Nothing is committed after this call.
+     */
+    @MainThread
+    void shutdown() {
+        isShutdown = true;
+        versions.clear();
+        pendingVersions.clear();
+    }
+
+    /**
+     * @return true if the latest request of the key is being prepared or waits for its commit.
+     */
+    @MainThread
+    boolean isPending(K key) {
+        return pendingVersions.containsKey(key);
+    }
+
+    /**
+     * @return count of requests and snapshots that were superseded by newer ones.
+     */
+    int getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return count of committed snapshots.
+     */
+    @MainThread
+    int getCommittedCount() {
+        return committedCount;
+    }
+
+    private boolean isLatest(K key, long version) {
+        Long latest = versions.get(key);
+        return !isShutdown && latest != null && latest == version;
+    }
+}
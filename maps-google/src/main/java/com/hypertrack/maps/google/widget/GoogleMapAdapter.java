@@ -1,22 +1,23 @@
 package com.hypertrack.maps.google.widget;
 
 import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.util.Log;
+import android.view.Choreographer;
 
-import com.google.android.gms.maps.CameraUpdate;
-import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
-import com.google.android.gms.maps.model.Circle;
 import com.google.android.gms.maps.model.CircleOptions;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
-import com.google.android.gms.maps.model.Polyline;
+import com.hypertrack.maps.google.utils.QuadTreeIndex;
+import com.hypertrack.maps.google.utils.RouteBounds;
 import com.hypertrack.maps.google.utils.TileSystem;
+import com.hypertrack.maps.google.utils.TraceBuffer;
 import com.hypertrack.sdk.views.dao.Trip;
 import com.hypertrack.sdk.views.maps.HyperTrackMap;
 import com.hypertrack.sdk.views.maps.Predicate;
@@ -28,36 +29,83 @@ import com.hypertrack.sdk.views.maps.widget.MapAdapter;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 
 /**
  * A class that provides interaction between google maps and hypertrack.
  * <a href="https://developers.google.com/maps/documentation/android-sdk/intro">Google Maps</a>
+ * <p>
+ * The adapter keeps trip routes detailed enough for the current zoom and creates map objects only for trips
+ * in the visible region when it's told that the camera stopped: attach it as the camera idle listener
+ * of the map with {@link #attachCameraIdleListener()}, or call {@link #onCameraIdle()} from your own listener.
+ * <p>
+ * Trip geometry is prepared on a background thread, map objects are updated on the main thread
+ * when the prepared geometry is ready. Markers of a just added trip, e.g. {@link GMapTrip#getOriginMarker()},
+ * are null until then, they are available in a later message of the main thread.
+ * <p>
+ * Cost of the adapter is reported by {@link #getMetrics()}.
  *
  * @see HyperTrackMap
  */
 @SuppressWarnings({"unused", "WeakerAccess"})
-public class GoogleMapAdapter extends MapAdapter {
+public class GoogleMapAdapter extends MapAdapter implements GoogleMap.OnCameraIdleListener {
     static final String TAG = "HTMap: GoogleMapAdapter";
 
     private static final String MY_LOCATION_KEY = "htgm:my_location";
+    private static final float LOCATION_ZOOM = 14;
+    private static final int CAMERA_ANIMATION_DURATION = 1000;
 
-    private GoogleMap mGoogleMap;
+    private MapBackend mMap;
     private GoogleMapConfig mConfig;
+    private final AdapterMetrics metrics = new AdapterMetrics();
+    private final TraceBuffer trace = new TraceBuffer(TraceBuffer.DEFAULT_CAPACITY);
 
     private Location currentLocation;
     private Trip currentTrip;
 
-    private final Map<String, MapObject> gMapObjects = new HashMap<>();
+    private final TripRegistry registry = new TripRegistry();
+    private final Map<String, MapObject> markerIndex = new HashMap<>();
+    private final QuadTreeIndex<MapObject> spatialIndex = new QuadTreeIndex<>();
 
     private boolean isLocationEnabled = true;
     private boolean isCameraFixed = false;
 
     private final TripFilters tripFilter = new TripFilters();
+    private final CameraScheduler cameraScheduler;
+    private final RouteBounds cameraBounds = new RouteBounds();
+    private final ViewportCuller culler;
+    private final MarkerClusters clusters;
+    private final ExecutorService geometryExecutor;
+    private final GeometryPipeline<String, TripGeometryBuilder.Request, TripGeometry> geometryPipeline;
+    private boolean isMoveToTripPending;
+    private boolean isCameraIdleListenerAttached;
+
+    private final FrameScheduler frameScheduler;
+    private final MarkerAnimator markerAnimator;
+    private final MutationScheduler mutationScheduler;
+    private final LocationFilter locationFilter;
+    private final Map<String, Location> pendingDeviceLocations = new LinkedHashMap<>();
+    private final Choreographer.FrameCallback deviceLocationsCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyDeviceLocations();
+        }
+    };
+
+    private int transactionDepth;
+    private final Map<String, GMapTrip> transactionTrips = new LinkedHashMap<>();
+    private boolean isRemapPending;
+    private boolean isActiveTripPending;
 
     /**
      * Finds MapObject by marker in the adapter.
@@ -66,21 +114,66 @@ public class GoogleMapAdapter extends MapAdapter {
      * @return instance of MapObject if it has the marker, otherwise null.
      */
     public MapObject findMapObjectByMarker(Marker marker) {
-        List<MapObject> mapObjects = new ArrayList<>(gMapObjects.values());
-        for (MapObject mapObject : mapObjects) {
-            if (mapObject.getType() == HyperTrackMap.LOCATION_MAP_OBJECT_TYPE) {
-                GMapLocation mapLocation = (GMapLocation) mapObject;
-                if (mapLocation.has(marker)) {
-                    return mapObject;
-                }
-            } else if (mapObject.getType() == HyperTrackMap.TRIP_MAP_OBJECT_TYPE) {
-                GMapTrip gMapTrip = (GMapTrip) mapObject;
-                if (gMapTrip.has(marker)) {
-                    return mapObject;
-                }
-            }
+        if (marker == null) {
+            return null;
         }
-        return null;
+        return markerIndex.get(marker.getId());
+    }
+
+    /**
+     * Finds trips and locations whose routes, markers or positions are inside the bounds.
+     *
+     * @param bounds region of the map, e.g. the visible region.
+     * @return map objects in the bounds, each object once.
+     */
+    public Collection<MapObject> findMapObjects(@NonNull LatLngBounds bounds) {
+        Collection<MapObject> result = new LinkedHashSet<>();
+        spatialIndex.query(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude, result);
+        return result;
+    }
+
+    /**
+     * Finds the trip or the location whose route, marker or position is the nearest to the point on the screen.
+     *
+     * @param position    point on the map, e.g. a clicked point.
+     * @param maxDistance max distance on the screen in pixels (px).
+     * @return the nearest map object, null if there is no object within the distance.
+     */
+    @Nullable
+    public MapObject findNearestMapObject(@NonNull LatLng position, float maxDistance) {
+        if (mMap == null) {
+            return null;
+        }
+        double mapSize = TileSystem.getTileSize() * Math.pow(2, mMap.getCameraPosition().zoom);
+        return spatialIndex.nearest(position.latitude, position.longitude, maxDistance / mapSize);
+    }
+
+    /**
+     * Counters of map calls and latencies of the adapter operations, they are updated on the main thread.
+     */
+    @NonNull
+    public AdapterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets a listener of operation latencies. Latencies are measured only while a listener is attached.
+     *
+     * @param listener listener or null to stop measuring latencies.
+     */
+    public void setMetricsListener(@Nullable AdapterMetrics.Listener listener) {
+        metrics.setListener(listener);
+    }
+
+    /**
+     * Trace of the adapter and trip update spans, it's disabled by default. Enable it with
+     * {@link TraceBuffer#setLevel(int)} and export it with {@link TraceBuffer#writeChromeTrace(Appendable)}
+     * on the main thread.
+     */
+    @NonNull
+    public TraceBuffer getTrace() {
+        return trace;
     }
 
     /**
@@ -91,10 +184,165 @@ public class GoogleMapAdapter extends MapAdapter {
      * @param config    that needed to setup GoogleMapAdapter.
      */
     public GoogleMapAdapter(@NonNull GoogleMap googleMap, @NonNull GoogleMapConfig config) {
-        mGoogleMap = googleMap;
+        this(new GoogleMapBackend(googleMap), config, createGeometryExecutor(), createMainExecutor(),
+                new FrameScheduler.ChoreographerFrameScheduler());
+    }
+
+    /**
+     * Constructs the adapter on top of any {@link MapBackend}.
+     *
+     * @param worker executor that prepares trip geometry, it must run tasks one by one and it's shut down by {@link #destroy()}.
+     * @param main   executor of the thread that owns the map.
+     * @param frames scheduler of frames of the thread that owns the map.
+     */
+    GoogleMapAdapter(@NonNull MapBackend map, @NonNull GoogleMapConfig config,
+                     @NonNull ExecutorService worker, @NonNull Executor main, @NonNull FrameScheduler frames) {
+        // unchanged properties are filtered out before they are counted
+        mMap = new DirtyTrackingMapBackend(new MeteredMapBackend(map, metrics));
         mConfig = config;
-        if (googleMap.getMaxZoomLevel() == 21f) {
-            googleMap.setMaxZoomPreference(config.maxZoomPreference);
+        if (config.isFastProjectionMathEnabled != null) {
+            TileSystem.setFastMathEnabled(config.isFastProjectionMathEnabled);
+        }
+        if (map.getMaxZoomLevel() == 21f) {
+            map.setMaxZoomPreference(config.maxZoomPreference);
+        }
+        culler = new ViewportCuller(config.isViewportCullingEnabled, config.viewportCullingMargin);
+        clusters = config.isMarkerClusteringEnabled ?
+                new MarkerClusters(mMap, config.clusterMarker,
+                        new ClusterIcons(config.clusterIconSize, config.clusterColor),
+                        config.clusterCellSize, getClusterZoomLevel(map))
+                : null;
+        cameraScheduler = new CameraScheduler(config.cameraUpdateInterval, new CameraScheduler.Callback() {
+            @Override
+            public void onCameraUpdate() {
+                fixCamera();
+            }
+        });
+        geometryExecutor = worker;
+        geometryPipeline = createGeometryPipeline(worker, main, config.routeSimplificationTolerance);
+        frameScheduler = frames;
+        markerAnimator = config.markerAnimationDuration > 0 ?
+                new MarkerAnimator(frames, culler, config.markerAnimationDuration)
+                : null;
+        mutationScheduler = config.mutationFrameBudget > 0 ?
+                new MutationScheduler(frames, new MutationScheduler.Priorities() {
+                    @Override
+                    public int getPriority(@NonNull String tripId) {
+                        return getMutationPriority(tripId);
+                    }
+                }, metrics, config.mutationFrameBudget)
+                : null;
+        locationFilter = config.isLocationFilterEnabled ?
+                new LocationFilter(metrics, config.locationMinDistance, config.locationMinAccuracyChange,
+                        config.locationMinBearingChange, config.locationMinInterval, config.locationMaxInterval)
+                : null;
+    }
+
+    private static ExecutorService createGeometryExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "HTMap: geometry");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static Executor createMainExecutor() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                handler.post(runnable);
+            }
+        };
+    }
+
+    private GeometryPipeline<String, TripGeometryBuilder.Request, TripGeometry> createGeometryPipeline(
+            Executor worker, Executor main, final float tolerance) {
+        return new GeometryPipeline<>(worker, main,
+                new GeometryPipeline.Stage<String, TripGeometryBuilder.Request, TripGeometry>() {
+                    private final Map<String, TripGeometryBuilder> builders = new HashMap<>();
+
+                    @Override
+                    public TripGeometry prepare(String tripId, TripGeometryBuilder.Request request) {
+                        TripGeometryBuilder builder = builders.get(tripId);
+                        if (builder == null) {
+                            builder = new TripGeometryBuilder(tolerance);
+                            builders.put(tripId, builder);
+                        }
+                        return builder.build(request);
+                    }
+
+                    @Override
+                    public void release(String tripId) {
+                        builders.remove(tripId);
+                    }
+
+                    @Override
+                    public void commit(String tripId, TripGeometry geometry) {
+                        onTripGeometryReady(tripId, geometry);
+                    }
+                });
+    }
+
+    private static int getClusterZoomLevel(MapBackend map) {
+        return Math.round(map.getCameraPosition().zoom);
+    }
+
+    private void onTripGeometryReady(String tripId, TripGeometry geometry) {
+        GMapTrip mapTrip = registry.getTrip(tripId);
+        if (mapTrip != null) {
+            mapTrip.apply(geometry);
+            if (isMoveToTripPending && currentTrip != null && tripId.equals(currentTrip.getTripId())) {
+                moveToTrip(currentTrip);
+            }
+        }
+    }
+
+    private int getMutationPriority(String tripId) {
+        GMapTrip activeTrip = registry.getActiveTrip();
+        if ((currentTrip != null && tripId.equals(currentTrip.getTripId()))
+                || (activeTrip != null && tripId.equals(activeTrip.trip.getTripId()))) {
+            return MutationScheduler.PRIORITY_TRACKED;
+        }
+        GMapTrip mapTrip = registry.getTrip(tripId);
+        return mapTrip != null && mapTrip.isInViewport() ?
+                MutationScheduler.PRIORITY_VISIBLE
+                : MutationScheduler.PRIORITY_BACKGROUND;
+    }
+
+    /**
+     * Sets the adapter as {@link GoogleMap.OnCameraIdleListener} of the map, it replaces a listener set before.
+     * If the app needs its own listener, don't attach the adapter and call {@link #onCameraIdle()} from it.
+     */
+    public void attachCameraIdleListener() {
+        if (mMap != null) {
+            mMap.setOnCameraIdleListener(this);
+            isCameraIdleListenerAttached = true;
+        }
+    }
+
+    /**
+     * Re-simplifies routes of visible trips for the zoom level and creates or releases map objects
+     * of trips by the visible region, it must be called on the main thread when the camera stops.
+     */
+    @Override
+    public void onCameraIdle() {
+        if (mMap != null) {
+            culler.setViewport(getVisibleBounds());
+            if (clusters != null) {
+                clusters.setZoomLevel(getClusterZoomLevel(mMap));
+            }
+            int zoomLevel = (int) Math.ceil(mMap.getCameraPosition().zoom);
+            for (GMapTrip mapTrip : registry.getVisibleTrips()) {
+                if (mapTrip.isInViewport() && !mapTrip.isSimplifiedFor(zoomLevel)) {
+                    mapTrip.submitUpdate(mapTrip.trip);
+                } else {
+                    mapTrip.updateCulling();
+                }
+            }
         }
     }
 
@@ -105,10 +353,11 @@ public class GoogleMapAdapter extends MapAdapter {
     public void setMyLocationEnabled(boolean enabled) {
         isLocationEnabled = enabled;
         if (enabled) {
-            updateMyLocation(currentLocation);
+            showMyLocation();
         } else {
-            if (gMapObjects.containsKey(MY_LOCATION_KEY)) {
-                gMapObjects.remove(MY_LOCATION_KEY).remove();
+            GMapLocation mapLocation = registry.removeLocation(MY_LOCATION_KEY);
+            if (mapLocation != null) {
+                mapLocation.remove();
             }
         }
     }
@@ -123,6 +372,7 @@ public class GoogleMapAdapter extends MapAdapter {
             updateCamera();
         } else {
             currentTrip = null;
+            cameraScheduler.cancel();
         }
     }
 
@@ -131,12 +381,9 @@ public class GoogleMapAdapter extends MapAdapter {
      */
     @Override
     public void moveToLocation(@NonNull HTLatLng latLng) {
-        if (mGoogleMap != null) {
-            final CameraUpdate cameraUpdate = CameraUpdateFactory.newLatLngZoom(
-                    new LatLng(latLng.latitude, latLng.longitude),
-                    14
-            );
-            mGoogleMap.animateCamera(cameraUpdate, 1000, null);
+        if (mMap != null) {
+            mMap.animateCamera(new LatLng(latLng.latitude, latLng.longitude), LOCATION_ZOOM,
+                    CAMERA_ANIMATION_DURATION, null);
         }
     }
 
@@ -145,47 +392,55 @@ public class GoogleMapAdapter extends MapAdapter {
      */
     @Override
     public void moveToTrip(@NonNull Trip trip) {
-        if (mGoogleMap != null) {
+        if (mMap != null) {
 
             currentTrip = trip;
-            List<LatLng> latLngs = new ArrayList<>();
-            if (currentLocation != null) {
-                latLngs.add(new LatLng(currentLocation.getLatitude(), currentLocation.getLongitude()));
+            GMapTrip mapTrip = registry.getTrip(trip.getTripId());
+            // geometry of a just added trip isn't ready yet, the camera is moved when it's committed
+            isMoveToTripPending = mapTrip != null && mapTrip.isAdded() && mapTrip.geometry == null
+                    && geometryPipeline.isPending(trip.getTripId());
+            if (isMoveToTripPending) {
+                return;
             }
-            if (trip.getDestination() != null) {
-                latLngs.add(new LatLng(trip.getDestination().getLatitude(), trip.getDestination().getLongitude()));
-            }
-            if (trip.getSummary() != null) {
-                for (com.hypertrack.sdk.views.dao.Location location : trip.getSummary().getLocations()) {
-                    latLngs.add(new LatLng(location.getLatitude(), location.getLongitude()));
-                }
-            }
-            if (trip.getEstimate() != null && trip.getEstimate().getRoute() != null) {
-                for (Trip.Point2D point2D : trip.getEstimate().getRoute().getPoints()) {
-                    latLngs.add(new LatLng(point2D.getLatitude(), point2D.getLongitude()));
-                }
+            LatLngBounds bounds = getTripBounds(trip);
+            if (bounds != null) {
+                animateCamera(bounds);
             }
+        }
+    }
 
-            if (!latLngs.isEmpty()) {
-                final LatLngBounds.Builder builder = LatLngBounds.builder();
-                for (LatLng latLng : latLngs) {
-                    builder.include(latLng);
-                }
-                if (mConfig.boundingBoxWidth == -1 && mConfig.boundingBoxHeight == -1) {
-                    mGoogleMap.animateCamera(
-                            CameraUpdateFactory.newLatLngBounds(builder.build(), mConfig.mapBoundingBoxPadding),
-                            1000,
-                            null);
-                } else {
-                    mGoogleMap.animateCamera(
-                            CameraUpdateFactory.newLatLngBounds(builder.build(),
-                                    mConfig.boundingBoxWidth, mConfig.boundingBoxHeight,
-                                    mConfig.mapBoundingBoxPadding),
-                            1000,
-                            null);
-                }
-            }
+    private LatLngBounds getTripBounds(@NonNull Trip trip) {
+        LatLngBounds tripBounds = null;
+        GMapTrip mapTrip = registry.getTrip(trip.getTripId());
+        if (mapTrip == null || mapTrip.geometry == null) {
+            // e.g. a trip hidden by a filter before its geometry was prepared
+            tripBounds = new TripGeometryBuilder(mConfig.routeSimplificationTolerance)
+                    .build(new TripGeometryBuilder.Request(trip, null, 0))
+                    .bounds;
+        } else {
+            tripBounds = mapTrip.geometry.bounds;
         }
+        final RouteBounds bounds = cameraBounds;
+        bounds.clear();
+        if (currentLocation != null) {
+            bounds.include(currentLocation.getLatitude(), currentLocation.getLongitude());
+        }
+        if (tripBounds != null) {
+            bounds.include(tripBounds.southwest.latitude, tripBounds.southwest.longitude);
+            bounds.include(tripBounds.northeast.latitude, tripBounds.northeast.longitude);
+        }
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        return new LatLngBounds(
+                new LatLng(bounds.getMinLatitude(), bounds.getMinLongitude()),
+                new LatLng(bounds.getMaxLatitude(), bounds.getMaxLongitude())
+        );
+    }
+
+    private void animateCamera(LatLngBounds bounds) {
+        mMap.animateCamera(bounds, mConfig.boundingBoxWidth, mConfig.boundingBoxHeight,
+                mConfig.mapBoundingBoxPadding, CAMERA_ANIMATION_DURATION, null);
     }
 
     /**
@@ -193,16 +448,31 @@ public class GoogleMapAdapter extends MapAdapter {
      */
     @Override
     public void addTripFilter(Predicate<Trip> filter) {
-        tripFilter.add(filter);
-        remapTrips();
+        onTripFilterChanged(tripFilter.add(filter));
     }
 
     /**
      * {@inheritDoc}
      */
     public void removeTripFilter(Predicate<Trip> filter) {
-        tripFilter.remove(filter);
-        remapTrips();
+        onTripFilterChanged(tripFilter.remove(filter));
+    }
+
+    /**
+     * Shows or hides only trips whose filter result has changed.
+     */
+    private void onTripFilterChanged(List<String> tripIds) {
+        beginTransaction();
+        try {
+            for (String tripId : tripIds) {
+                GMapTrip mapTrip = registry.getTrip(tripId);
+                if (mapTrip != null) {
+                    transactionTrips.put(tripId, mapTrip);
+                }
+            }
+        } finally {
+            endTransaction();
+        }
     }
 
     /**
@@ -210,91 +480,243 @@ public class GoogleMapAdapter extends MapAdapter {
      */
     @Override
     public MapTrip addTrip(@NonNull Trip trip) {
-        if (mGoogleMap != null) {
-            GMapTrip mapTrip = (GMapTrip) gMapObjects.get(trip.getTripId());
-            if (mapTrip == null) {
-                mapTrip = new GMapTrip(trip);
-                gMapObjects.put(trip.getTripId(), mapTrip);
-            } else {
-                mapTrip.updateData(trip);
+        if (mMap != null) {
+            long startTime = metrics.startTiming();
+            trace.begin(TraceBuffer.LEVEL_INFO, "addTrip", trip.getTripId());
+            beginTransaction();
+            try {
+                return putTrip(trip);
+            } finally {
+                endTransaction();
+                trace.end(TraceBuffer.LEVEL_INFO, "addTrip");
+                metrics.stopTiming(AdapterMetrics.OPERATION_ADD_TRIP, startTime);
             }
-            if (!mapTrip.isAdded()) {
-                mapTrip.addTo(this);
-            }
-            if (tripFilter.apply(trip)) {
-                mapTrip.update(trip);
-            } else {
-                mapTrip.hide();
+        }
+        return null;
+    }
+
+    /**
+     * Adds or updates trips on the map. Filters are evaluated once per trip,
+     * the active trip and the camera are updated once for all trips.
+     *
+     * @param trips trips to add or update.
+     * @return map objects of the trips in the same order, empty list if the adapter is destroyed.
+     */
+    public List<MapTrip> addTrips(@NonNull Collection<Trip> trips) {
+        List<MapTrip> mapTrips = new ArrayList<>(trips.size());
+        if (mMap != null) {
+            beginTransaction();
+            try {
+                for (Trip trip : trips) {
+                    mapTrips.add(putTrip(trip));
+                }
+            } finally {
+                endTransaction();
             }
+        }
+        return mapTrips;
+    }
 
+    /**
+     * Starts a transaction. Until the matching {@link #endTransaction()} trips are only registered,
+     * filters, remapping, the active trip and the camera are updated once when the transaction ends.
+     * Transactions can be nested, every call must be balanced with {@link #endTransaction()}.
+     */
+    public void beginTransaction() {
+        transactionDepth++;
+    }
+
+    /**
+     * Ends a transaction started by {@link #beginTransaction()} and applies the postponed updates
+     * when the outermost transaction ends.
+     */
+    public void endTransaction() {
+        if (transactionDepth == 0) {
+            throw new IllegalStateException("endTransaction() without beginTransaction()");
+        }
+        if (--transactionDepth > 0) {
+            return;
+        }
+        boolean isChanged = isRemapPending || isActiveTripPending || !transactionTrips.isEmpty();
+        if (isRemapPending) {
+            transactionTrips.clear();
+            isRemapPending = false;
+            remapTrips();
+        } else {
+            for (GMapTrip mapTrip : transactionTrips.values()) {
+                applyTripFilter(mapTrip);
+            }
+            transactionTrips.clear();
+        }
+        isActiveTripPending = false;
+        if (isChanged) {
             updateActiveTrip();
-            return mapTrip;
         }
-        return null;
+    }
+
+    private GMapTrip putTrip(@NonNull Trip trip) {
+        GMapTrip mapTrip = registry.getTrip(trip.getTripId());
+        if (mapTrip == null) {
+            mapTrip = new GMapTrip(trip);
+            registry.putTrip(mapTrip);
+        } else {
+            mapTrip.setTrip(trip);
+        }
+        if (!mapTrip.isAdded()) {
+            mapTrip.addTo(this);
+        }
+        transactionTrips.put(trip.getTripId(), mapTrip);
+        return mapTrip;
+    }
+
+    private void applyTripFilter(GMapTrip mapTrip) {
+        if (tripFilter.apply(mapTrip.trip)) {
+            mapTrip.update(mapTrip.trip);
+        } else {
+            mapTrip.hide();
+        }
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Fixes that wouldn't visibly move the location are dropped, see {@link GoogleMapConfig.Builder#locationFilter(boolean)}.
      */
     @Override
     public void updateMyLocation(@Nullable Location location) {
-        Log.d(TAG, "updateMyLocation: " + location);
-        currentLocation = location;
+        trace.begin(TraceBuffer.LEVEL_INFO, "updateMyLocation");
+        try {
+            if (locationFilter != null) {
+                if (location == null) {
+                    locationFilter.reset();
+                } else if (!locationFilter.accept(location)) {
+                    return;
+                }
+            }
+            currentLocation = location;
+            showMyLocation();
+        } finally {
+            trace.end(TraceBuffer.LEVEL_INFO, "updateMyLocation");
+        }
+    }
 
-        if (isLocationEnabled && mGoogleMap != null && location != null) {
+    private void showMyLocation() {
+        Location location = currentLocation;
+        if (isLocationEnabled && mMap != null && location != null) {
+            long startTime = metrics.startTiming();
 
-            GMapLocation mapLocation = (GMapLocation) gMapObjects.get(MY_LOCATION_KEY);
+            GMapLocation mapLocation = registry.getLocation(MY_LOCATION_KEY);
             if (mapLocation == null || !mapLocation.isAdded()) {
                 mapLocation = new GMapLocation(location);
                 mapLocation.addTo(this);
-                gMapObjects.put(MY_LOCATION_KEY, mapLocation);
+                registry.putLocation(MY_LOCATION_KEY, mapLocation);
             } else {
                 mapLocation.update(location);
             }
 
-            updateActiveTrip();
+            if (transactionDepth > 0) {
+                isActiveTripPending = true;
+            } else {
+                updateActiveTrip();
+            }
+            metrics.stopTiming(AdapterMetrics.OPERATION_UPDATE_MY_LOCATION, startTime);
         }
     }
 
     private void updateActiveTrip() {
         if (isLocationEnabled && currentLocation != null) {
-            for (MapObject item : gMapObjects.values()) {
-                if (item instanceof GMapTrip) {
-                    GMapTrip gMapTrip = (GMapTrip) item;
-                    if (gMapTrip.trip.getStatus().equals("active") && gMapTrip.isAdded()) {
-                        gMapTrip.updateMyPosition(currentLocation);
-                        break;
-                    }
-                }
+            GMapTrip activeTrip = registry.getActiveTrip();
+            if (activeTrip != null) {
+                activeTrip.updateMyPosition(currentLocation);
             }
         }
         updateCamera();
     }
 
+    /**
+     * Puts or moves the location of a fleet device. Each device has its own location object keyed by the device id.
+     * Updates are applied once per frame, only the last location of a device is applied, so the cost of a frame
+     * depends on count of moved devices, not on count of updates. Must be called on the main thread.
+     *
+     * @param deviceId HyperTrack device id.
+     * @param location location of the device, its bearing rotates the device marker.
+     */
+    public void updateDeviceLocation(@NonNull String deviceId, @NonNull Location location) {
+        if (mMap == null) {
+            return;
+        }
+        if (pendingDeviceLocations.isEmpty()) {
+            frameScheduler.postFrameCallback(deviceLocationsCallback);
+        }
+        pendingDeviceLocations.put(deviceId, location);
+    }
+
+    /**
+     * Removes the location object of a fleet device and its pending update.
+     *
+     * @param deviceId HyperTrack device id.
+     */
+    public void removeDeviceLocation(@NonNull String deviceId) {
+        pendingDeviceLocations.remove(deviceId);
+        GMapLocation mapLocation = registry.getLocation(deviceId);
+        if (mapLocation != null && deviceId.equals(mapLocation.deviceId)) {
+            registry.removeLocation(deviceId);
+            mapLocation.remove();
+        }
+    }
+
+    /**
+     * @param deviceId HyperTrack device id.
+     * @return location object of the fleet device, null if its first location isn't applied yet.
+     */
+    @Nullable
+    public GMapLocation getDeviceLocation(@NonNull String deviceId) {
+        GMapLocation mapLocation = registry.getLocation(deviceId);
+        return mapLocation != null && deviceId.equals(mapLocation.deviceId) ? mapLocation : null;
+    }
+
+    private void applyDeviceLocations() {
+        if (mMap != null) {
+            for (Map.Entry<String, Location> entry : pendingDeviceLocations.entrySet()) {
+                GMapLocation mapLocation = registry.getLocation(entry.getKey());
+                if (mapLocation == null || !mapLocation.isAdded()) {
+                    mapLocation = new GMapLocation(entry.getValue(), entry.getKey());
+                    mapLocation.addTo(this);
+                    registry.putLocation(entry.getKey(), mapLocation);
+                } else {
+                    mapLocation.update(entry.getValue());
+                }
+            }
+        }
+        pendingDeviceLocations.clear();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void notifyDataSetChanged() {
+        tripFilter.invalidate();
         remapTrips();
     }
 
     private void remapTrips() {
-        if (mGoogleMap != null) {
-
-            for (MapObject mapObject : gMapObjects.values()) {
-                if (mapObject.getType() == HyperTrackMap.TRIP_MAP_OBJECT_TYPE) {
-                    GMapTrip mapTrip = (GMapTrip) mapObject;
-                    Log.d(TAG, "remapTrips trip - " + mapTrip.trip.getTripId() + " : " + tripFilter.apply(mapTrip.trip));
-                    if (tripFilter.apply(mapTrip.trip)) {
-                        mapTrip.update(mapTrip.trip);
-                    } else {
-                        mapTrip.hide();
-                    }
-                }
+        if (transactionDepth > 0) {
+            isRemapPending = true;
+            return;
+        }
+        long startTime = metrics.startTiming();
+        trace.begin(TraceBuffer.LEVEL_INFO, "remapTrips");
+        if (mMap != null) {
+            for (GMapTrip mapTrip : registry.getTrips()) {
+                trace.begin(TraceBuffer.LEVEL_VERBOSE, "remapTrip", mapTrip.trip.getTripId());
+                applyTripFilter(mapTrip);
+                trace.end(TraceBuffer.LEVEL_VERBOSE, "remapTrip");
             }
         }
         updateCamera();
+        trace.end(TraceBuffer.LEVEL_INFO, "remapTrips");
+        metrics.stopTiming(AdapterMetrics.OPERATION_REMAP_TRIPS, startTime);
     }
 
     private Trip findTrackedTrip() {
@@ -302,14 +724,9 @@ public class GoogleMapAdapter extends MapAdapter {
         if (currentTrip != null) {
             trackedTrip = currentTrip;
         } else {
-            for (MapObject mapObject : gMapObjects.values()) {
-                if (mapObject.getType() == HyperTrackMap.TRIP_MAP_OBJECT_TYPE) {
-                    GMapTrip mapTrip = (GMapTrip) mapObject;
-                    if (mapTrip.isAdded() && tripFilter.apply(mapTrip.trip)) {
-                        trackedTrip = ((MapTrip) mapObject).trip;
-                        break;
-                    }
-                }
+            GMapTrip mapTrip = registry.getFirstVisibleTrip();
+            if (mapTrip != null) {
+                trackedTrip = mapTrip.trip;
             }
         }
         return trackedTrip;
@@ -317,88 +734,161 @@ public class GoogleMapAdapter extends MapAdapter {
 
     private void updateCamera() {
         if (isCameraFixed) {
+            cameraScheduler.schedule();
+        }
+    }
+
+    /**
+     * Moves the camera to the tracked trip or the current location, unless they are already
+     * inside the dead-zone of the visible region.
+     */
+    private void fixCamera() {
+        if (isCameraFixed && mMap != null) {
             Trip trackedTrip = findTrackedTrip();
             if (trackedTrip != null) {
-                moveToTrip(trackedTrip);
+                currentTrip = trackedTrip;
+                LatLngBounds bounds = getTripBounds(trackedTrip);
+                if (bounds != null && !CameraScheduler.isInDeadZone(getVisibleBounds(), bounds, mConfig.cameraDeadZone)) {
+                    animateCamera(bounds);
+                }
             } else if (currentLocation != null) {
-                moveToLocation(new HTLatLng(currentLocation.getLatitude(), currentLocation.getLongitude()));
+                LatLng latLng = new LatLng(currentLocation.getLatitude(), currentLocation.getLongitude());
+                if (Math.abs(mMap.getCameraPosition().zoom - LOCATION_ZOOM) >= 0.5f
+                        || !CameraScheduler.isInDeadZone(getVisibleBounds(), latLng, mConfig.cameraDeadZone)) {
+                    moveToLocation(new HTLatLng(latLng.latitude, latLng.longitude));
+                }
             }
         }
     }
 
+    private LatLngBounds getVisibleBounds() {
+        return mMap.getVisibleBounds();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void destroy() {
-        for (MapObject mapObject : gMapObjects.values()) {
-            mapObject.remove();
+        cameraScheduler.cancel();
+        frameScheduler.removeFrameCallback(deviceLocationsCallback);
+        pendingDeviceLocations.clear();
+        if (markerAnimator != null) {
+            markerAnimator.clear();
+        }
+        if (mutationScheduler != null) {
+            mutationScheduler.clear();
         }
-        gMapObjects.clear();
+        for (GMapTrip mapTrip : new ArrayList<>(registry.getTrips())) {
+            mapTrip.remove();
+        }
+        for (GMapLocation mapLocation : registry.getLocations()) {
+            mapLocation.remove();
+        }
+        registry.clear();
+        tripFilter.invalidate();
+        markerIndex.clear();
+        spatialIndex.clear();
+        if (clusters != null) {
+            clusters.clear();
+        }
+        geometryPipeline.shutdown();
+        geometryExecutor.shutdown();
 
-        if (mGoogleMap != null) {
-            mGoogleMap = null;
+        if (mMap != null) {
+            if (isCameraIdleListenerAttached) {
+                mMap.setOnCameraIdleListener(null);
+                isCameraIdleListenerAttached = false;
+            }
+            mMap = null;
         }
     }
 
-    private static int locationPositionInRoute(List<LatLng> route, LatLng location) {
-        float minDistance = Integer.MAX_VALUE;
-        int currentLocationPositionInRoute = 0;
-        if (location != null) {
-            for (int i = 0; i < route.size(); i++) {
-                LatLng latLng = route.get(i);
-                float[] results = new float[1];
-                Location.distanceBetween(location.latitude, location.longitude,
-                        latLng.latitude, latLng.longitude,
-                        results);
-                if (results[0] < minDistance) {
-                    minDistance = results[0];
-                    currentLocationPositionInRoute = i;
-                }
-            }
+    /**
+     * @return Google marker of the handle, null on other backends.
+     */
+    private static Marker toMarker(MapBackend.MarkerHandle marker) {
+        return GoogleMapBackend.getMarker(MeteredMapBackend.unwrap(DirtyTrackingMapBackend.unwrap(marker)));
+    }
+
+    private static void indexMarker(Map<String, MapObject> markerIndex, MapBackend.MarkerHandle marker, MapObject mapObject) {
+        if (markerIndex != null && marker != null) {
+            markerIndex.put(marker.getId(), mapObject);
+        }
+    }
+
+    private static void unindexMarker(Map<String, MapObject> markerIndex, MapBackend.MarkerHandle marker) {
+        if (markerIndex != null && marker != null) {
+            markerIndex.remove(marker.getId());
         }
-        return currentLocationPositionInRoute;
     }
 
     /**
      * A google implementation of MapLocation. This class extends {@link MapLocation} and stores
      * location data, markers, accuracy circle.
+     * <p>
+     * Location of a fleet device has one marker rotated by the bearing and no accuracy circle,
+     * its marker is clustered together with trip markers and animated to new locations.
      */
     public static class GMapLocation extends MapLocation {
-        private WeakReference<GoogleMap> googleMap;
-
-        private Circle accuracyCircle;
-        private Marker locationMarker;
-        private Marker bearingMarker;
+        private final String deviceId;
+        private WeakReference<MapBackend> map;
+        private MarkerClusters clusters;
+        private MarkerAnimator animator;
+        private Map<String, MapObject> markerIndex;
+        private QuadTreeIndex<MapObject> spatialIndex;
+        private QuadTreeIndex.Entry<MapObject> spatialEntry;
+
+        private MapBackend.CircleHandle accuracyCircle;
+        private MapBackend.MarkerHandle locationMarker;
+        private MapBackend.MarkerHandle bearingMarker;
 
         private GMapLocation(@NonNull Location location) {
+            this(location, null);
+        }
+
+        private GMapLocation(@NonNull Location location, @Nullable String deviceId) {
             super(location);
+            this.deviceId = deviceId;
+        }
+
+        /**
+         * @return id of the fleet device, null for my location.
+         */
+        @Nullable
+        public String getDeviceId() {
+            return deviceId;
         }
 
         private void addTo(@NonNull GoogleMapAdapter mapAdapter) {
-            googleMap = new WeakReference<>(mapAdapter.mGoogleMap);
+            map = new WeakReference<>(mapAdapter.mMap);
+            markerIndex = mapAdapter.markerIndex;
 
             LatLng center = new LatLng(location.getLatitude(), location.getLongitude());
+            if (deviceId != null) {
+                addDeviceMarker(mapAdapter, center);
+                return;
+            }
             final float radius = location.getAccuracy()
                     / (float) TileSystem.GroundResolution(location.getLatitude(),
-                    googleMap.get().getCameraPosition().zoom);
+                    map.get().getCameraPosition().zoom);
 
             if (mapAdapter.mConfig.accuracyCircle != null) {
-                accuracyCircle = googleMap.get().addCircle(mapAdapter.mConfig.accuracyCircle
+                accuracyCircle = map.get().addCircle(mapAdapter.mConfig.accuracyCircle
                         .center(center)
                         .radius(radius)
                         .zIndex(Float.MAX_VALUE)
                 );
             }
 
-            locationMarker = googleMap.get().addMarker(mapAdapter.mConfig.locationMarker
+            locationMarker = map.get().addMarker(mapAdapter.mConfig.locationMarker
                     .anchor(0.5f, 0.5f)
                     .position(center)
                     .zIndex(Float.MAX_VALUE)
             );
 
             if (mapAdapter.mConfig.bearingMarker != null) {
-                bearingMarker = googleMap.get().addMarker(mapAdapter.mConfig.bearingMarker
+                bearingMarker = map.get().addMarker(mapAdapter.mConfig.bearingMarker
                         .anchor(0.5f, 0.5f)
                         .flat(true)
                         .position(center)
@@ -407,6 +897,28 @@ public class GoogleMapAdapter extends MapAdapter {
                 );
                 bearingMarker.setVisible(location.getBearing() != 0f);
             }
+            indexMarker(markerIndex, locationMarker, this);
+            indexMarker(markerIndex, bearingMarker, this);
+            addToSpatialIndex(mapAdapter);
+        }
+
+        private void addDeviceMarker(@NonNull GoogleMapAdapter mapAdapter, @NonNull LatLng center) {
+            locationMarker = map.get().addMarker(mapAdapter.mConfig.deviceMarker
+                    .position(center)
+                    .rotation(location.getBearing())
+            );
+            clusters = mapAdapter.clusters;
+            if (clusters != null) {
+                clusters.put(locationMarker, center);
+            }
+            animator = mapAdapter.markerAnimator;
+            indexMarker(markerIndex, locationMarker, this);
+            addToSpatialIndex(mapAdapter);
+        }
+
+        private void addToSpatialIndex(@NonNull GoogleMapAdapter mapAdapter) {
+            spatialIndex = mapAdapter.spatialIndex;
+            spatialEntry = spatialIndex.addPoint(this, location.getLatitude(), location.getLongitude());
             isAdded = true;
         }
 
@@ -415,13 +927,29 @@ public class GoogleMapAdapter extends MapAdapter {
          */
         @Override
         public void update(@NonNull Location location) {
+            Location previous = this.location;
             this.location = location;
 
-            if (isAdded) {
+            if (isAdded && deviceId != null) {
+                LatLng center = new LatLng(location.getLatitude(), location.getLongitude());
+                if (animator != null) {
+                    animator.animate(locationMarker,
+                            new LatLng(previous.getLatitude(), previous.getLongitude()), previous.getBearing(),
+                            center, location.getBearing());
+                } else {
+                    locationMarker.setPosition(center);
+                    locationMarker.setRotation(location.getBearing());
+                }
+                if (clusters != null) {
+                    clusters.put(locationMarker, center);
+                }
+                spatialIndex.remove(spatialEntry);
+                spatialEntry = spatialIndex.addPoint(this, location.getLatitude(), location.getLongitude());
+            } else if (isAdded) {
                 LatLng center = new LatLng(location.getLatitude(), location.getLongitude());
                 final float radius = location.getAccuracy()
                         / (float) TileSystem.GroundResolution(location.getLatitude(),
-                        googleMap.get().getCameraPosition().zoom);
+                        map.get().getCameraPosition().zoom);
 
                 if (accuracyCircle != null) {
                     accuracyCircle.setCenter(center);
@@ -435,13 +963,11 @@ public class GoogleMapAdapter extends MapAdapter {
                     bearingMarker.setRotation(location.getBearing());
                     bearingMarker.setVisible(location.getBearing() != 0f);
                 }
+                spatialIndex.remove(spatialEntry);
+                spatialEntry = spatialIndex.addPoint(this, location.getLatitude(), location.getLongitude());
             }
         }
 
-        private boolean has(Marker marker) {
-            return locationMarker != null && marker.getId().equals(locationMarker.getId());
-        }
-
         /**
          * {@inheritDoc}
          */
@@ -452,16 +978,31 @@ public class GoogleMapAdapter extends MapAdapter {
                 accuracyCircle = null;
             }
             if (locationMarker != null) {
+                unindexMarker(markerIndex, locationMarker);
+                if (clusters != null) {
+                    clusters.remove(locationMarker);
+                }
+                if (animator != null) {
+                    animator.cancel(locationMarker);
+                }
                 locationMarker.remove();
                 locationMarker = null;
             }
             if (bearingMarker != null) {
+                unindexMarker(markerIndex, bearingMarker);
                 bearingMarker.remove();
                 bearingMarker = null;
             }
-            if (googleMap != null) {
-                googleMap = null;
+            if (spatialEntry != null) {
+                spatialIndex.remove(spatialEntry);
+                spatialEntry = null;
+            }
+            if (map != null) {
+                map = null;
             }
+            markerIndex = null;
+            clusters = null;
+            animator = null;
             isAdded = false;
         }
     }
@@ -470,271 +1011,421 @@ public class GoogleMapAdapter extends MapAdapter {
      * A google implementation of MapTrip. This class extends {@link MapTrip} and stores trip data, markers, polylines.
      */
     public static class GMapTrip extends MapTrip {
+        private WeakReference<MapBackend> map;
         private GoogleMapConfig mConfig;
+        private AdapterMetrics metrics;
+        private Map<String, MapObject> markerIndex;
+        private GeometryPipeline<String, TripGeometryBuilder.Request, TripGeometry> geometryPipeline;
+        private TripRegistry registry;
+        private TripFilters tripFilter;
+        private ViewportCuller culler;
+        private MarkerClusters clusters;
+        private TripSpatialEntries spatialEntries;
+        private MutationScheduler mutations;
+        private TraceBuffer trace;
+        private final Runnable applyTask = new Runnable() {
+            @Override
+            public void run() {
+                applyGeometry();
+            }
+        };
 
-        private LatLng destination;
-        private int destinationRadius;
-        private Date destinationArrivedDate;
-        private List<LatLng> summaryRoute = new ArrayList<>();
-        private List<LatLng> estimateRoute = new ArrayList<>();
         private LatLng myPosition;
-
-        Marker originMarker;
-        Marker destinationMarker;
-        Marker endMarker;
-        Polyline routePassedPolyline;
-        Polyline routeCommingPolyline;
-        Circle destinationCircle;
+        private int requestedZoomLevel = -1;
+        private TripGeometry geometry;
+        private TripGeometry appliedGeometry;
+        private long updateTime = AdapterMetrics.NOT_TIMED;
+
+        private final List<MapBackend.PolylineHandle> routePassedChunks = new ArrayList<>();
+        private int routePassedGeneration;
+        private List<LatLng> routePassedUploadedTail;
+        private List<LatLng> routeComingUploaded;
+
+        MapBackend.MarkerHandle originMarker;
+        MapBackend.MarkerHandle destinationMarker;
+        MapBackend.MarkerHandle endMarker;
+        MapBackend.PolylineHandle routePassedPolyline;
+        MapBackend.PolylineHandle routeCommingPolyline;
+        MapBackend.CircleHandle destinationCircle;
 
         /**
          * Marker of origin location in the trip.
          *
-         * @return {@link Marker} that corresponds to origin place on the map.
+         * @return {@link Marker} that corresponds to origin place on the map,
+         * null if the trip is hidden, outside of the visible region or its geometry isn't ready yet.
+         * Don't change the marker, e.g. its position, icon or visibility: the adapter skips values that it has
+         * already applied, so such changes may stay on the map.
          */
         public Marker getOriginMarker() {
-            return originMarker;
+            return toMarker(originMarker);
         }
 
         /**
          * Marker of destination location in the trip.
          *
-         * @return {@link Marker} that corresponds to destination place on the map.
+         * @return {@link Marker} that corresponds to destination place on the map,
+         * null if the trip is hidden, outside of the visible region or its geometry isn't ready yet.
+         * Don't change the marker, e.g. its position, icon or visibility: the adapter skips values that it has
+         * already applied, so such changes may stay on the map.
          */
         public Marker getDestinationMarker() {
-            return destinationMarker;
+            return toMarker(destinationMarker);
         }
 
         /**
          * Marker of the trip end location.
          *
-         * @return {@link Marker} that corresponds to the trip end location on the map.
+         * @return {@link Marker} that corresponds to the trip end location on the map,
+         * null if the trip is hidden, outside of the visible region or its geometry isn't ready yet.
+         * Don't change the marker, e.g. its position, icon or visibility: the adapter skips values that it has
+         * already applied, so such changes may stay on the map.
          */
         public Marker getEndMarker() {
-            return endMarker;
+            return toMarker(endMarker);
         }
 
         private GMapTrip(Trip trip) {
             super(trip);
-            updateData(trip);
         }
 
-        private void updateData(Trip trip) {
+        /**
+         * Attaches the trip to the adapter. Map objects are created when the first geometry snapshot is ready.
+         */
+        private void addTo(@NonNull GoogleMapAdapter mapAdapter) {
+            trace = mapAdapter.trace;
+            trace.begin(TraceBuffer.LEVEL_VERBOSE, "addTripTo", trip.getTripId());
+            map = new WeakReference<>(mapAdapter.mMap);
+            mConfig = mapAdapter.mConfig;
+            metrics = mapAdapter.metrics;
+            markerIndex = mapAdapter.markerIndex;
+            geometryPipeline = mapAdapter.geometryPipeline;
+            registry = mapAdapter.registry;
+            tripFilter = mapAdapter.tripFilter;
+            culler = mapAdapter.culler;
+            clusters = mapAdapter.clusters;
+            mutations = mapAdapter.mutationScheduler;
+            spatialEntries = new TripSpatialEntries(mapAdapter.spatialIndex, this);
+            isAdded = true;
+            registry.indexStatus(this);
+            trace.end(TraceBuffer.LEVEL_VERBOSE, "addTripTo");
+        }
+
+        private void setTrip(@NonNull Trip trip) {
             this.trip = trip;
+            if (isAdded) {
+                registry.indexStatus(this);
+            }
+        }
+
+        void updateMyPosition(@NonNull Location location) {
+            this.myPosition = new LatLng(location.getLatitude(), location.getLongitude());
+            submitUpdate(trip);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Geometry of the trip is prepared in background, map objects are updated when it's ready.
+         * Positions and visibility of the trip markers are applied again, even if they haven't changed.
+         */
+        @Override
+        public void update(@NonNull Trip trip) {
+            // the app may have changed markers of the getters
+            DirtyTrackingMapBackend.invalidate(originMarker);
+            DirtyTrackingMapBackend.invalidate(destinationMarker);
+            DirtyTrackingMapBackend.invalidate(endMarker);
+            submitUpdate(trip);
+        }
+
+        /**
+         * Updates the trip without applying the marker state again.
+         */
+        void submitUpdate(@NonNull Trip trip) {
+            setTrip(trip);
 
-            summaryRoute.clear();
-            if (trip.getSummary() != null && !trip.getSummary().getLocations().isEmpty()) {
-                for (com.hypertrack.sdk.views.dao.Location location : trip.getSummary().getLocations()) {
-                    summaryRoute.add(new LatLng(location.getLatitude(), location.getLongitude()));
+            if (isAdded) {
+                trace.begin(TraceBuffer.LEVEL_VERBOSE, "updateTrip", trip.getTripId());
+                metrics.tripUpdateCount++;
+                if (updateTime == AdapterMetrics.NOT_TIMED) {
+                    updateTime = metrics.startTiming();
                 }
+                registry.setVisible(this, true);
+                requestedZoomLevel = getSimplificationZoomLevel();
+                geometryPipeline.submit(trip.getTripId(),
+                        new TripGeometryBuilder.Request(trip, myPosition, requestedZoomLevel));
+                trace.end(TraceBuffer.LEVEL_VERBOSE, "updateTrip");
             }
+        }
 
-            estimateRoute.clear();
-            if (trip.getEstimate() != null && trip.getEstimate().getRoute() != null && !trip.getEstimate().getRoute().getPoints().isEmpty()) {
-                for (Trip.Point2D item : trip.getEstimate().getRoute().getPoints()) {
-                    estimateRoute.add(new LatLng(item.getLatitude(), item.getLongitude()));
-                }
+        /**
+         * Zoom level used to simplify routes, it's rounded up so the tolerance is never coarser
+         * than a pixel at the current camera zoom.
+         */
+        private int getSimplificationZoomLevel() {
+            MapBackend map = this.map == null ? null : this.map.get();
+            if (map == null) {
+                return requestedZoomLevel;
+            }
+            return (int) Math.ceil(map.getCameraPosition().zoom);
+        }
+
+        boolean isSimplifiedFor(int zoomLevel) {
+            return requestedZoomLevel == zoomLevel;
+        }
+
+        /**
+         * Takes a prepared geometry snapshot and schedules the update of the map objects.
+         * A snapshot that comes before the previous one is applied replaces it.
+         */
+        private void apply(@NonNull TripGeometry geometry) {
+            this.geometry = geometry;
+            MapBackend map = this.map == null ? null : this.map.get();
+            if (!isAdded || map == null) {
+                return;
             }
+            spatialEntries.update(geometry);
+            scheduleApply();
+        }
 
-            if (trip.getDestination() == null ||
-                    trip.getDestination().getLatitude() == null || trip.getDestination().getLongitude() == null) {
-                destination = null;
-                destinationRadius = 0;
+        private void scheduleApply() {
+            if (mutations == null) {
+                applyGeometry();
             } else {
-                destination = new LatLng(trip.getDestination().getLatitude(), trip.getDestination().getLongitude());
-                destinationRadius = trip.getDestination().radius;
-                destinationArrivedDate = trip.getDestination().getArrivedDate();
+                mutations.schedule(trip.getTripId(), applyTask);
             }
         }
 
-        private void addTo(@NonNull GoogleMapAdapter mapAdapter) {
-            Log.d(TAG, "add trip - " + trip.getTripId());
-            mConfig = mapAdapter.mConfig;
+        /**
+         * Applies the latest geometry snapshot to the map objects. Map objects are created only if the trip
+         * is in the visible region, otherwise the snapshot is kept until the trip gets into it.
+         */
+        private void applyGeometry() {
+            MapBackend map = this.map == null ? null : this.map.get();
+            if (!isAdded || map == null || geometry == null) {
+                return;
+            }
+            long updateTime = this.updateTime;
+            this.updateTime = AdapterMetrics.NOT_TIMED;
+            if (!isInViewport()) {
+                releaseMapObjects();
+                return;
+            }
+            trace.begin(TraceBuffer.LEVEL_VERBOSE, "applyTripGeometry", trip.getTripId());
+            if (appliedGeometry == null) {
+                addMapObjects(map, geometry);
+            } else {
+                updateMapObjects(map, geometry);
+            }
+            appliedGeometry = geometry;
+            trace.end(TraceBuffer.LEVEL_VERBOSE, "applyTripGeometry");
+            metrics.stopTiming(AdapterMetrics.OPERATION_UPDATE_TO_MUTATION, updateTime);
+        }
 
-            if (!isAdded) {
+        boolean isInViewport() {
+            return geometry == null || culler.isVisible(geometry.bounds);
+        }
 
-                boolean isActive = !trip.getStatus().equals("completed");
-                GoogleMapConfig.TripOptions options = isActive ?
-                        mConfig.tripOptions
-                        : mConfig.tripCompletedOptions;
+        /**
+         * Creates or releases map objects of a shown trip after the visible region has changed.
+         */
+        void updateCulling() {
+            if (geometry == null) {
+                return;
+            }
+            boolean isInViewport = isInViewport();
+            if (isInViewport && appliedGeometry == null) {
+                scheduleApply();
+            } else if (!isInViewport && appliedGeometry != null) {
+                releaseMapObjects();
+            }
+        }
 
-                if (options.tripPassedRoutePolyline != null) {
-                    routePassedPolyline = mapAdapter.mGoogleMap.addPolyline(options.tripPassedRoutePolyline);
-                }
-                routeCommingPolyline = mapAdapter.mGoogleMap.addPolyline(options.tripComingRoutePolyline);
+        private void addMapObjects(@NonNull MapBackend map, @NonNull TripGeometry geometry) {
+            boolean isActive = !geometry.trip.getStatus().equals("completed");
+            GoogleMapConfig.TripOptions options = isActive ?
+                    mConfig.tripOptions
+                    : mConfig.tripCompletedOptions;
 
-                if (destination != null) {
-                    destinationMarker = mapAdapter.mGoogleMap.addMarker(
-                            options.tripDestinationMarker
-                                    .position(destination)
+            if (options.tripPassedRoutePolyline != null) {
+                routePassedPolyline = map.addPolyline(options.tripPassedRoutePolyline);
+            }
+            routeCommingPolyline = map.addPolyline(options.tripComingRoutePolyline);
+
+            if (geometry.destination != null) {
+                destinationMarker = map.addMarker(
+                        options.tripDestinationMarker
+                                .position(geometry.destination)
+                );
+                clusterMarker(destinationMarker, geometry.destination);
+                if (isActive) {
+                    CircleOptions circleOptions = geometry.destinationArrivedDate == null ?
+                            mConfig.arrivePlaceCircle : mConfig.arrivePlacePassedCircle;
+                    destinationCircle = map.addCircle(
+                            circleOptions
+                                    .center(geometry.destination)
+                                    .radius(geometry.destinationRadius)
                     );
-                    if (isActive) {
-                        CircleOptions circleOptions = destinationArrivedDate == null ?
-                                mConfig.arrivePlaceCircle : mConfig.arrivePlacePassedCircle;
-                        destinationCircle = mapAdapter.mGoogleMap.addCircle(
-                                circleOptions
-                                        .center(destination)
-                                        .radius(destinationRadius)
-                        );
-                    }
                 }
-                if (routePassedPolyline != null && (mConfig.isPassedRouteVisible || trip.getStatus().equals("completed"))) {
-                    originMarker = mapAdapter.mGoogleMap.addMarker(
-                            options.tripOriginMarker
-                                    .position(new LatLng(0, 0))
-                                    .visible(false)
-                    );
+            }
+            if (routePassedPolyline != null && (mConfig.isPassedRouteVisible || !isActive)) {
+                originMarker = map.addMarker(
+                        options.tripOriginMarker
+                                .position(new LatLng(0, 0))
+                                .visible(false)
+                );
 
-                    LatLng originLatLng = myPosition;
-                    routePassedPolyline.setPoints(summaryRoute);
-                    if (!summaryRoute.isEmpty()) {
-                        originLatLng = summaryRoute.get(0);
-                        if (trip.getStatus().equals("completed") && options.tripEndMarker != null) {
-                            endMarker = mapAdapter.mGoogleMap.addMarker(
-                                    options.tripEndMarker
-                                            .position(summaryRoute.get(summaryRoute.size() - 1))
-                            );
-                        }
-                    } else if (!estimateRoute.isEmpty()) {
-                        originLatLng = estimateRoute.get(0);
-                    }
-                    if (originLatLng != null) {
-                        originMarker.setPosition(originLatLng);
-                        originMarker.setVisible(true);
-                    }
+                updatePassedRoute(map, geometry, options);
+                if (geometry.end != null && !isActive && options.tripEndMarker != null) {
+                    endMarker = map.addMarker(
+                            options.tripEndMarker
+                                    .position(geometry.end)
+                    );
+                    clusterMarker(endMarker, geometry.end);
+                }
+                if (geometry.origin != null) {
+                    showMarker(originMarker, geometry.origin);
                 }
-                routeCommingPolyline.setPoints(estimateRoute);
-
-                isAdded = true;
             }
-        }
+            updateComingRoute(geometry);
 
-        void updateMyPosition(@NonNull Location location) {
-            this.myPosition = new LatLng(location.getLatitude(), location.getLongitude());
-            update(trip);
+            indexMarker(markerIndex, originMarker, this);
+            indexMarker(markerIndex, destinationMarker, this);
+            indexMarker(markerIndex, endMarker, this);
         }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void update(@NonNull Trip trip) {
-            Log.d(TAG, "update trip - " + trip.getTripId());
-
-            boolean isStatusChanged = !this.trip.getStatus().equals(trip.getStatus());
-            updateData(trip);
+        private void updateMapObjects(@NonNull MapBackend map, @NonNull TripGeometry geometry) {
+            boolean isStatusChanged = !appliedGeometry.trip.getStatus().equals(geometry.trip.getStatus());
+            boolean isActive = !geometry.trip.getStatus().equals("completed");
+            GoogleMapConfig.TripOptions options = isActive ?
+                    mConfig.tripOptions
+                    : mConfig.tripCompletedOptions;
 
-            if (isAdded) {
-
-                boolean isActive = !trip.getStatus().equals("completed");
-
-                if (isStatusChanged) {
-                    GoogleMapConfig.TripOptions options = isActive ?
-                            mConfig.tripOptions
-                            : mConfig.tripCompletedOptions;
-                    if (destinationMarker != null) {
-                        destinationMarker.setIcon(options.tripDestinationMarker.getIcon());
-                    }
-                    if (originMarker != null) {
-                        originMarker.setIcon(options.tripOriginMarker.getIcon());
-                    }
-                    routeCommingPolyline.setColor(options.tripComingRoutePolyline.getColor());
-                    routeCommingPolyline.setWidth(options.tripComingRoutePolyline.getWidth());
-                    routeCommingPolyline.setPattern(options.tripComingRoutePolyline.getPattern());
-                    if (routePassedPolyline != null) {
-                        routePassedPolyline.setColor(options.tripPassedRoutePolyline.getColor());
-                        routePassedPolyline.setWidth(options.tripPassedRoutePolyline.getWidth());
-                        routePassedPolyline.setPattern(options.tripPassedRoutePolyline.getPattern());
+            if (isStatusChanged) {
+                if (destinationMarker != null) {
+                    destinationMarker.setIcon(options.tripDestinationMarker.getIcon());
+                }
+                if (originMarker != null) {
+                    originMarker.setIcon(options.tripOriginMarker.getIcon());
+                }
+                routeCommingPolyline.setColor(options.tripComingRoutePolyline.getColor());
+                routeCommingPolyline.setWidth(options.tripComingRoutePolyline.getWidth());
+                routeCommingPolyline.setPattern(options.tripComingRoutePolyline.getPattern());
+                if (routePassedPolyline != null) {
+                    routePassedPolyline.setColor(options.tripPassedRoutePolyline.getColor());
+                    routePassedPolyline.setWidth(options.tripPassedRoutePolyline.getWidth());
+                    routePassedPolyline.setPattern(options.tripPassedRoutePolyline.getPattern());
+                    for (MapBackend.PolylineHandle chunk : routePassedChunks) {
+                        chunk.setColor(options.tripPassedRoutePolyline.getColor());
+                        chunk.setWidth(options.tripPassedRoutePolyline.getWidth());
+                        chunk.setPattern(options.tripPassedRoutePolyline.getPattern());
                     }
                 }
+            }
 
-                if (destinationMarker != null && destination != null) {
-                    destinationMarker.setPosition(destination);
-                    destinationMarker.setVisible(true);
-                    if (isActive) {
-                        CircleOptions circleOptions = destinationArrivedDate == null ?
+            if (destinationMarker != null && geometry.destination != null) {
+                destinationMarker.setPosition(geometry.destination);
+                clusterMarker(destinationMarker, geometry.destination);
+                if (isActive) {
+                    if (destinationCircle != null) {
+                        CircleOptions circleOptions = geometry.destinationArrivedDate == null ?
                                 mConfig.arrivePlaceCircle : mConfig.arrivePlacePassedCircle;
                         destinationCircle.setFillColor(circleOptions.getFillColor());
                         destinationCircle.setStrokeColor(circleOptions.getStrokeColor());
                         destinationCircle.setStrokeWidth(circleOptions.getStrokeWidth());
-                        destinationCircle.setCenter(destination);
-                        destinationCircle.setRadius(destinationRadius);
-                        destinationCircle.setVisible(true);
-                    } else {
-                        if (destinationCircle != null) {
-                            destinationCircle.remove();
-                        }
+                        destinationCircle.setCenter(geometry.destination);
+                        destinationCircle.setRadius(geometry.destinationRadius);
                     }
-                }
-                if (routePassedPolyline != null && (mConfig.isPassedRouteVisible || trip.getStatus().equals("completed"))) {
-                    List<LatLng> points = new ArrayList<>();
-                    if (!summaryRoute.isEmpty()) {
-                        if (originMarker != null) {
-                            originMarker.setPosition(summaryRoute.get(0));
-                            originMarker.setVisible(true);
-                        }
-                        if (endMarker != null) {
-                            endMarker.setPosition(summaryRoute.get(summaryRoute.size() - 1));
-                            endMarker.setVisible(true);
-                        }
-                        points.addAll(summaryRoute);
-                        if (myPosition != null) {
-                            points.add(myPosition);
-                        }
-                    } else if (!estimateRoute.isEmpty()) {
-                        if (originMarker != null) {
-                            originMarker.setPosition(estimateRoute.get(0));
-                            originMarker.setVisible(true);
-                        }
+                } else {
+                    if (destinationCircle != null) {
+                        destinationCircle.remove();
+                        destinationCircle = null;
                     }
-                    routePassedPolyline.setPoints(points);
-                    routePassedPolyline.setVisible(true);
                 }
-                if (routeCommingPolyline != null) {
-                    List<LatLng> points = new ArrayList<>();
-                    if (!estimateRoute.isEmpty()) {
-                        if (myPosition == null) {
-                            points.addAll(estimateRoute);
-                        } else {
-                            points.add(myPosition);
-                            int position = locationPositionInRoute(estimateRoute, myPosition);
-                            if (position != estimateRoute.size() - 1) {
-                                points.addAll(estimateRoute.subList(position + 1, estimateRoute.size()));
-                            }
-                        }
-                        if (destination != null) {
-                            points.add(destination);
-                        }
-                    }
-                    routeCommingPolyline.setPoints(points);
-                    routeCommingPolyline.setVisible(true);
+            }
+            if (routePassedPolyline != null && (mConfig.isPassedRouteVisible || !isActive)) {
+                if (geometry.origin != null && originMarker != null) {
+                    showMarker(originMarker, geometry.origin);
+                }
+                if (geometry.end != null && endMarker != null) {
+                    endMarker.setPosition(geometry.end);
+                    clusterMarker(endMarker, geometry.end);
                 }
+                updatePassedRoute(map, geometry, options);
             }
+            updateComingRoute(geometry);
         }
 
-        boolean has(Marker marker) {
-            return (originMarker != null && marker.getId().equals(originMarker.getId()))
-                    || (destinationMarker != null && marker.getId().equals(destinationMarker.getId()));
+        /**
+         * Moves the marker and shows it, unless it's hidden by a cluster.
+         */
+        private void showMarker(@NonNull MapBackend.MarkerHandle marker, @NonNull LatLng position) {
+            marker.setPosition(position);
+            if (clusters != null) {
+                clusters.put(marker, position);
+            } else {
+                marker.setVisible(true);
+            }
         }
 
-        public void hide() {
-            if (originMarker != null) {
-                originMarker.setVisible(false);
+        private void clusterMarker(@NonNull MapBackend.MarkerHandle marker, @NonNull LatLng position) {
+            if (clusters != null) {
+                clusters.put(marker, position);
             }
-            if (destinationMarker != null) {
-                destinationMarker.setVisible(false);
+        }
+
+        private void removeMarker(@NonNull MapBackend.MarkerHandle marker) {
+            unindexMarker(markerIndex, marker);
+            if (clusters != null) {
+                clusters.remove(marker);
             }
-            if (endMarker != null) {
-                endMarker.setVisible(false);
+            marker.remove();
+        }
+
+        private void updateComingRoute(@NonNull TripGeometry geometry) {
+            if (routeCommingPolyline != null && geometry.comingRoute != routeComingUploaded) {
+                routeCommingPolyline.setPoints(geometry.comingRoute);
+                routeComingUploaded = geometry.comingRoute;
             }
-            if (routePassedPolyline != null) {
-                routePassedPolyline.setVisible(false);
+        }
+
+        /**
+         * Uploads new chunks and the changed tail of the passed route. Points that are already uploaded
+         * into frozen chunks are never sent again, so the cost depends on count of new points, not on the trip length.
+         */
+        private void updatePassedRoute(@NonNull MapBackend map, @NonNull TripGeometry geometry,
+                                       GoogleMapConfig.TripOptions options) {
+            if (geometry.passedRouteGeneration != routePassedGeneration) {
+                for (MapBackend.PolylineHandle chunk : routePassedChunks) {
+                    chunk.remove();
+                }
+                routePassedChunks.clear();
+                routePassedGeneration = geometry.passedRouteGeneration;
+                routePassedUploadedTail = null;
             }
-            if (routeCommingPolyline != null) {
-                routeCommingPolyline.setVisible(false);
+            for (int i = routePassedChunks.size(); i < geometry.passedRouteChunks.size(); i++) {
+                routePassedPolyline.setPoints(geometry.passedRouteChunks.get(i));
+                routePassedChunks.add(routePassedPolyline);
+                routePassedPolyline = map.addPolyline(options.tripPassedRoutePolyline);
+                routePassedUploadedTail = null;
             }
-            if (destinationCircle != null) {
-                destinationCircle.setVisible(false);
+            if (geometry.passedRouteTail != routePassedUploadedTail) {
+                routePassedPolyline.setPoints(geometry.passedRouteTail);
+                routePassedUploadedTail = geometry.passedRouteTail;
+            }
+        }
+
+        /**
+         * Hides the trip. Map objects of a hidden trip are released, they are created again on the next update.
+         */
+        public void hide() {
+            if (isAdded) {
+                geometryPipeline.invalidate(trip.getTripId());
+                registry.setVisible(this, false);
+                spatialEntries.clear();
+                cancelApply();
             }
+            updateTime = AdapterMetrics.NOT_TIMED;
+            releaseMapObjects();
         }
 
         /**
@@ -742,23 +1433,51 @@ public class GoogleMapAdapter extends MapAdapter {
          */
         @Override
         public void remove() {
+            if (isAdded) {
+                geometryPipeline.remove(trip.getTripId());
+                registry.removeTrip(this);
+                tripFilter.remove(trip.getTripId());
+                spatialEntries.clear();
+                cancelApply();
+            }
             isAdded = false;
+            geometry = null;
+            requestedZoomLevel = -1;
+            updateTime = AdapterMetrics.NOT_TIMED;
+            releaseMapObjects();
+        }
+
+        private void cancelApply() {
+            if (mutations != null) {
+                mutations.cancel(trip.getTripId());
+            }
+        }
+
+        private void releaseMapObjects() {
+            appliedGeometry = null;
             if (originMarker != null) {
-                originMarker.remove();
+                removeMarker(originMarker);
                 originMarker = null;
             }
             if (destinationMarker != null) {
-                destinationMarker.remove();
+                removeMarker(destinationMarker);
                 destinationMarker = null;
             }
             if (endMarker != null) {
-                endMarker.remove();
+                removeMarker(endMarker);
                 endMarker = null;
             }
             if (routePassedPolyline != null) {
                 routePassedPolyline.remove();
                 routePassedPolyline = null;
             }
+            for (MapBackend.PolylineHandle chunk : routePassedChunks) {
+                chunk.remove();
+            }
+            routePassedChunks.clear();
+            routePassedGeneration = 0;
+            routePassedUploadedTail = null;
+            routeComingUploaded = null;
             if (routeCommingPolyline != null) {
                 routeCommingPolyline.remove();
                 routeCommingPolyline = null;
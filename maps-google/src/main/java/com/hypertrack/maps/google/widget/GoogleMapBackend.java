@@ -0,0 +1,204 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.Circle;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PatternItem;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.List;
+
+/**
+ * {@link MapBackend} that forwards calls to {@link GoogleMap} and its markers, polylines and circles.
+ */
+class GoogleMapBackend implements MapBackend {
+    private final GoogleMap map;
+
+    GoogleMapBackend(@NonNull GoogleMap map) {
+        this.map = map;
+    }
+
+    /**
+     * @return marker of the handle, null if the handle isn't created by this backend.
+     */
+    @Nullable
+    static Marker getMarker(@Nullable MarkerHandle handle) {
+        return handle instanceof GoogleMarker ? ((GoogleMarker) handle).marker : null;
+    }
+
+    @Override
+    public MarkerHandle addMarker(@NonNull MarkerOptions options) {
+        return new GoogleMarker(map.addMarker(options));
+    }
+
+    @Override
+    public PolylineHandle addPolyline(@NonNull PolylineOptions options) {
+        return new GooglePolyline(map.addPolyline(options));
+    }
+
+    @Override
+    public CircleHandle addCircle(@NonNull CircleOptions options) {
+        return new GoogleCircle(map.addCircle(options));
+    }
+
+    @Override
+    public CameraPosition getCameraPosition() {
+        return map.getCameraPosition();
+    }
+
+    @Override
+    public LatLngBounds getVisibleBounds() {
+        return map.getProjection().getVisibleRegion().latLngBounds;
+    }
+
+    @Override
+    public float getMaxZoomLevel() {
+        return map.getMaxZoomLevel();
+    }
+
+    @Override
+    public void setMaxZoomPreference(float maxZoomPreference) {
+        map.setMaxZoomPreference(maxZoomPreference);
+    }
+
+    @Override
+    public void setOnCameraIdleListener(@Nullable GoogleMap.OnCameraIdleListener listener) {
+        map.setOnCameraIdleListener(listener);
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLng target, float zoom, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        map.animateCamera(CameraUpdateFactory.newLatLngZoom(target, zoom), duration, callback);
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLngBounds bounds, int width, int height, int padding, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        if (width == -1 && height == -1) {
+            map.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding), duration, callback);
+        } else {
+            map.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, width, height, padding), duration, callback);
+        }
+    }
+
+    private static class GoogleMarker implements MarkerHandle {
+        private final Marker marker;
+
+        GoogleMarker(Marker marker) {
+            this.marker = marker;
+        }
+
+        @Override
+        public String getId() {
+            return marker.getId();
+        }
+
+        @Override
+        public void setPosition(@NonNull LatLng position) {
+            marker.setPosition(position);
+        }
+
+        @Override
+        public void setRotation(float rotation) {
+            marker.setRotation(rotation);
+        }
+
+        @Override
+        public void setIcon(@Nullable BitmapDescriptor icon) {
+            marker.setIcon(icon);
+        }
+
+        @Override
+        public void setVisible(boolean visible) {
+            marker.setVisible(visible);
+        }
+
+        @Override
+        public void remove() {
+            marker.remove();
+        }
+    }
+
+    private static class GooglePolyline implements PolylineHandle {
+        private final Polyline polyline;
+
+        GooglePolyline(Polyline polyline) {
+            this.polyline = polyline;
+        }
+
+        @Override
+        public void setPoints(@NonNull List<LatLng> points) {
+            polyline.setPoints(points);
+        }
+
+        @Override
+        public void setColor(int color) {
+            polyline.setColor(color);
+        }
+
+        @Override
+        public void setWidth(float width) {
+            polyline.setWidth(width);
+        }
+
+        @Override
+        public void setPattern(@Nullable List<PatternItem> pattern) {
+            polyline.setPattern(pattern);
+        }
+
+        @Override
+        public void remove() {
+            polyline.remove();
+        }
+    }
+
+    private static class GoogleCircle implements CircleHandle {
+        private final Circle circle;
+
+        GoogleCircle(Circle circle) {
+            this.circle = circle;
+        }
+
+        @Override
+        public void setCenter(@NonNull LatLng center) {
+            circle.setCenter(center);
+        }
+
+        @Override
+        public void setRadius(double radius) {
+            circle.setRadius(radius);
+        }
+
+        @Override
+        public void setFillColor(int color) {
+            circle.setFillColor(color);
+        }
+
+        @Override
+        public void setStrokeColor(int color) {
+            circle.setStrokeColor(color);
+        }
+
+        @Override
+        public void setStrokeWidth(float width) {
+            circle.setStrokeWidth(width);
+        }
+
+        @Override
+        public void remove() {
+            circle.remove();
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class GoogleMapConfig {
     MarkerOptions locationMarker;
     MarkerOptions bearingMarker;
     CircleOptions accuracyCircle;
+    MarkerOptions deviceMarker;
     CircleOptions arrivePlaceCircle;
     CircleOptions arrivePlacePassedCircle;
 
@@ -44,6 +45,25 @@ public class GoogleMapConfig {
     int boundingBoxHeight = -1;
 
     boolean isPassedRouteVisible = true;
+    float routeSimplificationTolerance;
+    long cameraUpdateInterval = 1000;
+    float cameraDeadZone = 0.1f;
+    boolean isViewportCullingEnabled;
+    float viewportCullingMargin = 0.5f;
+    boolean isMarkerClusteringEnabled;
+    int clusterCellSize = 64;
+    MarkerOptions clusterMarker;
+    int clusterIconSize;
+    int clusterColor;
+    long markerAnimationDuration;
+    long mutationFrameBudget;
+    boolean isLocationFilterEnabled;
+    float locationMinDistance = 2;
+    float locationMinAccuracyChange = 5;
+    float locationMinBearingChange = 10;
+    long locationMinInterval = 200;
+    long locationMaxInterval = 3000;
+    Boolean isFastProjectionMathEnabled;
 
     /**
      * Creates new GoogleMapConfig.Builder with styles from application theme or default resources.
@@ -60,7 +80,7 @@ public class GoogleMapConfig {
         return new GoogleMapConfig.TripOptions(null);
     }
 
-    private GoogleMapConfig() {
+    GoogleMapConfig() {
     }
 
     /**
@@ -194,6 +214,12 @@ public class GoogleMapConfig {
             float accuracyStrokeWidth = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 1,
                     r.getDisplayMetrics()
             );
+            config.routeSimplificationTolerance = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 1,
+                    r.getDisplayMetrics()
+            );
+            config.clusterIconSize = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 36,
+                    r.getDisplayMetrics()
+            );
 
             myLocationIcon = R.drawable.marker;
             int myLocationBearingIcon = R.drawable.bearing_arrow_green;
@@ -286,6 +312,18 @@ public class GoogleMapConfig {
             return this;
         }
 
+        /**
+         * Defines MarkerOptions for locations of fleet devices, the marker is rotated by the device bearing.
+         *
+         * @param markerOptions a new set of marker options {@link MarkerOptions}.
+         * @return this instance of the class.
+         * @see GoogleMapAdapter#updateDeviceLocation(String, android.location.Location)
+         */
+        public Builder deviceMarker(MarkerOptions markerOptions) {
+            config.deviceMarker = markerOptions;
+            return this;
+        }
+
         /**
          * Defines TripOptions for an active trips.
          *
@@ -341,6 +379,193 @@ public class GoogleMapConfig {
             return this;
         }
 
+        /**
+         * Setup max deviation of simplified trip routes. Route points that are closer than the tolerance
+         * to the simplified route aren't drawn, the last points of a route are always drawn as is.
+         *
+         * @param tolerance tolerance in pixels (px), 0 disables simplification. Default is 1dp.
+         * @return this instance of the class.
+         */
+        public Builder routeSimplificationTolerance(float tolerance) {
+            config.routeSimplificationTolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Setup min interval between camera animations in the fixed camera mode.
+         * Camera update requests during the interval are merged into one.
+         *
+         * @param interval interval in milliseconds. Default is 1000.
+         * @return this instance of the class.
+         */
+        public Builder cameraUpdateInterval(long interval) {
+            config.cameraUpdateInterval = interval;
+            return this;
+        }
+
+        /**
+         * Setup dead-zone of the fixed camera mode. The camera isn't moved while the tracked objects
+         * stay inside the visible region shrunk by the dead-zone from each side.
+         *
+         * @param deadZone fraction of the visible region size from 0 to 0.5, 0 disables the dead-zone. Default is 0.1.
+         * @return this instance of the class.
+         */
+        public Builder cameraDeadZone(float deadZone) {
+            config.cameraDeadZone = deadZone;
+            return this;
+        }
+
+        /**
+         * Enable or disable viewport culling. With culling enabled markers, polylines and circles are created
+         * only for trips in the visible region, they are created or released when the camera stops.
+         * Map objects of trips outside of the visible region don't exist, e.g. their markers can't be found.
+         *
+         * @param enabled true to enable culling, false otherwise. Default is false.
+         * @return this instance of the class.
+         */
+        public Builder viewportCulling(boolean enabled) {
+            config.isViewportCullingEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Setup margin of the visible region used by viewport culling.
+         *
+         * @param margin margin from each side as a fraction of the visible region size. Default is 0.5.
+         * @return this instance of the class.
+         */
+        public Builder viewportCullingMargin(float margin) {
+            config.viewportCullingMargin = margin;
+            return this;
+        }
+
+        /**
+         * Enable or disable clustering of trip markers. Origin, destination, end and fleet device markers that are closer
+         * to each other than the cluster cell size are replaced by one cluster marker with their count.
+         *
+         * @param enabled true to enable clustering, false otherwise. Default is false.
+         * @return this instance of the class.
+         */
+        public Builder markerClustering(boolean enabled) {
+            config.isMarkerClusteringEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Setup size of the grid cells used to cluster trip markers.
+         *
+         * @param cellSize cell size in density independent pixels (dp), rounded down to a power of two. Default is 64.
+         * @return this instance of the class.
+         */
+        public Builder clusterCellSize(int cellSize) {
+            config.clusterCellSize = cellSize;
+            return this;
+        }
+
+        /**
+         * Defines MarkerOptions for cluster markers, the icon is replaced by a circle with the count of markers.
+         *
+         * @param markerOptions a new set of marker options {@link MarkerOptions}.
+         * @return this instance of the class.
+         */
+        public Builder clusterMarker(MarkerOptions markerOptions) {
+            config.clusterMarker = markerOptions;
+            return this;
+        }
+
+        /**
+         * Setup color of cluster marker icons.
+         *
+         * @param color color of the circle with the count of markers. Default is the trip route color.
+         * @return this instance of the class.
+         */
+        public Builder clusterColor(int color) {
+            config.clusterColor = color;
+            return this;
+        }
+
+        /**
+         * Setup duration of fleet device marker animations. A marker moves and turns to a new location
+         * during this time, so a location feed with the same interval looks like constant motion,
+         * e.g. 1000 for a feed of a location per second. Markers lag behind the feed by up to the duration.
+         *
+         * @param duration duration in milliseconds, 0 moves markers at once. Default is 0.
+         * @return this instance of the class.
+         */
+        public Builder markerAnimationDuration(long duration) {
+            config.markerAnimationDuration = duration;
+            return this;
+        }
+
+        /**
+         * Setup time per frame for changes of trip map objects. Updates of many trips are queued
+         * and applied over several frames, the tracked trip and trips in the visible region go first,
+         * so map objects change a few frames after the update, e.g. 4000 leaves most of a 60 fps frame to the map.
+         *
+         * @param budget budget in microseconds, 0 applies updates at once. Default is 0.
+         * @return this instance of the class.
+         */
+        public Builder mutationFrameBudget(long budget) {
+            config.mutationFrameBudget = budget;
+            return this;
+        }
+
+        /**
+         * Enable or disable filtering of my location fixes. Fixes that wouldn't visibly move the location
+         * are dropped before they update the active trip and the camera.
+         *
+         * @param enabled true to drop fixes within the dead-band and the min interval. Default is false.
+         * @return this instance of the class.
+         * @see AdapterMetrics#getDeadBandRejectedLocationCount()
+         */
+        public Builder locationFilter(boolean enabled) {
+            config.isLocationFilterEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Setup the dead-band of my location fixes. A fix is dropped if it moved less than the distance
+         * and less than its own accuracy, and its accuracy and bearing changed less than the thresholds.
+         *
+         * @param distance       distance in meters. Default is 2.
+         * @param accuracyChange change of accuracy in meters. Default is 5.
+         * @param bearingChange  change of bearing in degrees. Default is 10.
+         * @return this instance of the class.
+         */
+        public Builder locationDeadBand(float distance, float accuracyChange, float bearingChange) {
+            config.locationMinDistance = distance;
+            config.locationMinAccuracyChange = accuracyChange;
+            config.locationMinBearingChange = bearingChange;
+            return this;
+        }
+
+        /**
+         * Setup the min interval between shown my location fixes. The interval is the time the device
+         * needs to move by the dead-band distance at its current speed, clamped to the range.
+         *
+         * @param minInterval interval of a fast device in milliseconds. Default is 200.
+         * @param maxInterval interval of a still device in milliseconds. Default is 3000.
+         * @return this instance of the class.
+         */
+        public Builder locationInterval(long minInterval, long maxInterval) {
+            config.locationMinInterval = minInterval;
+            config.locationMaxInterval = maxInterval;
+            return this;
+        }
+
+        /**
+         * Enable or disable lookup tables for projection math, e.g. ground resolution of the accuracy circle
+         * and map sizes of fractional zoom levels. The setting is global, see {@link TileSystem#setFastMathEnabled(boolean)},
+         * it's applied when an adapter is created with this config. Configs without the setting leave it as it is.
+         *
+         * @param enabled true to use lookup tables, false to use exact functions. Default is false.
+         * @return this instance of the class.
+         */
+        public Builder fastProjectionMath(boolean enabled) {
+            config.isFastProjectionMathEnabled = enabled;
+            return this;
+        }
+
         /**
          * Setup bounding box of specified dimensions.
          *
@@ -365,6 +590,11 @@ public class GoogleMapConfig {
                         .anchor(0.5f, 0.5f)
                         .icon(BitmapDescriptorFactory.fromResource(myLocationIcon));
             }
+            if (config.deviceMarker == null) {
+                config.deviceMarker = new MarkerOptions()
+                        .anchor(0.5f, 0.5f)
+                        .icon(BitmapDescriptorFactory.fromResource(myLocationIcon));
+            }
 
             if (config.tripOptions == null) {
                 config.tripOptions = new TripOptions(tripStyleAttrs).build();
@@ -372,6 +602,13 @@ public class GoogleMapConfig {
             if (config.tripCompletedOptions == null) {
                 config.tripCompletedOptions = new TripOptions(tripCompletedStyleAttrs).build();
             }
+            if (config.clusterMarker == null) {
+                config.clusterMarker = new MarkerOptions()
+                        .anchor(0.5f, 0.5f);
+            }
+            if (config.clusterColor == 0) {
+                config.clusterColor = tripStyleAttrs.tripRouteColor;
+            }
             config.maxZoomPreference = 18;
 
             return config;
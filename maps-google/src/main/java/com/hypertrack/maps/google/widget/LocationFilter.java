@@ -0,0 +1,126 @@
+package com.hypertrack.maps.google.widget;
+
+import android.location.Location;
+import android.support.annotation.NonNull;
+
+import com.hypertrack.maps.google.utils.constants.GeoConstants;
+
+/**
+ * Drops location fixes that wouldn't visibly change the map, so a still or slow device doesn't
+ * update its trip and the camera on every fix.
+ * <p>
+ * A fix is dropped if it comes sooner than the min interval after the last accepted fix, the interval
+ * is the time the device needs to move by the min distance at its speed, clamped to the configured range.
+ * A fix is also dropped if it's within the dead-band of the last accepted fix: it moved less than
+ * the min distance and less than its own accuracy, its accuracy and bearing changed less than their thresholds.
+ * The speed is taken from the fix or, if it has none, from the distance to the last accepted fix.
+ */
+class LocationFilter {
+    private static final double METERS_PER_DEGREE = GeoConstants.RADIUS_EARTH_METERS * Math.PI / 180;
+
+    private final AdapterMetrics metrics;
+    private final float minDistance;
+    private final float minAccuracyChange;
+    private final float minBearingChange;
+    private final long minInterval;
+    private final long maxInterval;
+
+    private boolean hasLast;
+    private double lastLatitude;
+    private double lastLongitude;
+    private float lastAccuracy;
+    private float lastBearing;
+    private long lastTime;
+    private float speed;
+
+    /**
+     * @param minDistance       distance in meters.
+     * @param minAccuracyChange change of accuracy in meters.
+     * @param minBearingChange  change of bearing in degrees.
+     * @param minInterval       min interval in milliseconds of a fast device.
+     * @param maxInterval       min interval in milliseconds of a still device.
+     */
+    LocationFilter(@NonNull AdapterMetrics metrics, float minDistance, float minAccuracyChange,
+                   float minBearingChange, long minInterval, long maxInterval) {
+        this.metrics = metrics;
+        this.minDistance = minDistance;
+        this.minAccuracyChange = minAccuracyChange;
+        this.minBearingChange = minBearingChange;
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(minInterval, maxInterval);
+    }
+
+    /**
+     * @return true if the fix should be shown, it becomes the last accepted fix.
+     */
+    boolean accept(@NonNull Location location) {
+        if (!hasLast) {
+            remember(location, 0);
+            return true;
+        }
+        long elapsed = location.getTime() - lastTime;
+        double distance = distance(location);
+        float speed = location.hasSpeed() ? location.getSpeed()
+                : elapsed > 0 ? (float) (distance * 1000 / elapsed) : this.speed;
+        if (elapsed < getInterval(speed)) {
+            metrics.intervalRejectedLocationCount++;
+            return false;
+        }
+        if (distance < Math.max(minDistance, location.getAccuracy())
+                && Math.abs(location.getAccuracy() - lastAccuracy) < minAccuracyChange
+                && Math.abs(turn(location.getBearing() - lastBearing)) < minBearingChange) {
+            metrics.deadBandRejectedLocationCount++;
+            return false;
+        }
+        remember(location, speed);
+        return true;
+    }
+
+    /**
+     * Forgets the last accepted fix, the next fix is accepted.
+     */
+    void reset() {
+        hasLast = false;
+        speed = 0;
+    }
+
+    /**
+     * @param speed speed in meters per second.
+     * @return min interval in milliseconds.
+     */
+    long getInterval(float speed) {
+        if (speed <= 0) {
+            return maxInterval;
+        }
+        long interval = (long) (minDistance * 1000 / speed);
+        return Math.min(maxInterval, Math.max(minInterval, interval));
+    }
+
+    private void remember(Location location, float speed) {
+        hasLast = true;
+        lastLatitude = location.getLatitude();
+        lastLongitude = location.getLongitude();
+        lastAccuracy = location.getAccuracy();
+        lastBearing = location.getBearing();
+        lastTime = location.getTime();
+        this.speed = speed;
+    }
+
+    /**
+     * Equirectangular distance in meters to the last accepted fix, it's exact enough for a few hundred meters.
+     */
+    private double distance(Location location) {
+        double y = (location.getLatitude() - lastLatitude) * METERS_PER_DEGREE;
+        double x = turn(location.getLongitude() - lastLongitude) * METERS_PER_DEGREE
+                * Math.cos(Math.toRadians(lastLatitude));
+        return Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * @return angle in degrees moved into [-180, 180).
+     */
+    private static double turn(double degrees) {
+        double wrapped = (degrees + 180) % 360;
+        return (wrapped < 0 ? wrapped + 360 : wrapped) - 180;
+    }
+}
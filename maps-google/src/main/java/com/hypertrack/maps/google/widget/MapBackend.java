@@ -0,0 +1,99 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PatternItem;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.List;
+
+/**
+ * Map operations used by the adapter. Every method is a call into the map renderer, so the count of calls
+ * is the cost of an update.
+ * <p>
+ * {@link GoogleMapBackend} forwards calls to {@link GoogleMap}, other implementations, e.g. an in-memory one,
+ * let the adapter be driven off-device.
+ */
+interface MapBackend {
+
+    interface MarkerHandle {
+        String getId();
+
+        void setPosition(@NonNull LatLng position);
+
+        void setRotation(float rotation);
+
+        void setIcon(@Nullable BitmapDescriptor icon);
+
+        void setVisible(boolean visible);
+
+        void remove();
+    }
+
+    interface PolylineHandle {
+        void setPoints(@NonNull List<LatLng> points);
+
+        void setColor(int color);
+
+        void setWidth(float width);
+
+        void setPattern(@Nullable List<PatternItem> pattern);
+
+        void remove();
+    }
+
+    interface CircleHandle {
+        void setCenter(@NonNull LatLng center);
+
+        void setRadius(double radius);
+
+        void setFillColor(int color);
+
+        void setStrokeColor(int color);
+
+        void setStrokeWidth(float width);
+
+        void remove();
+    }
+
+    MarkerHandle addMarker(@NonNull MarkerOptions options);
+
+    PolylineHandle addPolyline(@NonNull PolylineOptions options);
+
+    CircleHandle addCircle(@NonNull CircleOptions options);
+
+    CameraPosition getCameraPosition();
+
+    LatLngBounds getVisibleBounds();
+
+    float getMaxZoomLevel();
+
+    void setMaxZoomPreference(float maxZoomPreference);
+
+    void setOnCameraIdleListener(@Nullable GoogleMap.OnCameraIdleListener listener);
+
+    /**
+     * Animates the camera to the target with the zoom.
+     *
+     * @param callback notified when the animation finishes or is cancelled by another animation or a gesture.
+     */
+    void animateCamera(@NonNull LatLng target, float zoom, int duration,
+                       @Nullable GoogleMap.CancelableCallback callback);
+
+    /**
+     * Animates the camera to fit the bounds.
+     *
+     * @param width  width of the bounding box in pixels, -1 together with the height for the size of the map.
+     * @param height height of the bounding box in pixels.
+     */
+    void animateCamera(@NonNull LatLngBounds bounds, int width, int height, int padding, int duration,
+                       @Nullable GoogleMap.CancelableCallback callback);
+}
@@ -0,0 +1,221 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Moves markers smoothly to new positions and bearings. All animations are driven by one frame callback,
+ * so the cost of a frame is a loop over moving markers instead of an animator per marker.
+ * <p>
+ * State of animations is kept in parallel arrays indexed by slot, a frame doesn't allocate except for
+ * the positions passed to the map. Markers whose path is outside of the viewport aren't moved
+ * until the last frame of their animation, that puts them to the target.
+ * An animation starts at the first frame after it's requested and takes the configured duration,
+ * a new target starts from the current interpolated position, so a steady feed looks like constant motion.
+ * Must be used on the main thread.
+ */
+class MarkerAnimator implements Choreographer.FrameCallback {
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final FrameScheduler frameScheduler;
+    private final ViewportCuller culler;
+    private final long duration;
+
+    private final Map<MapBackend.MarkerHandle, Integer> slots = new HashMap<>();
+    private MapBackend.MarkerHandle[] markers = new MapBackend.MarkerHandle[16];
+    private double[] fromLatitude = new double[16];
+    private double[] fromLongitude = new double[16];
+    private double[] latitude = new double[16];
+    private double[] longitude = new double[16];
+    private double[] toLatitude = new double[16];
+    private double[] toLongitude = new double[16];
+    private float[] fromBearing = new float[16];
+    private float[] bearing = new float[16];
+    private float[] toBearing = new float[16];
+    private long[] startTime = new long[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int size;
+    private int count;
+    private boolean isPosted;
+
+    /**
+     * @param duration duration of an animation in milliseconds.
+     */
+    MarkerAnimator(@NonNull FrameScheduler frameScheduler, @NonNull ViewportCuller culler, long duration) {
+        this.frameScheduler = frameScheduler;
+        this.culler = culler;
+        this.duration = duration * 1000000;
+    }
+
+    /**
+     * @return count of running animations.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Animates the marker from its current position and bearing to the target.
+     *
+     * @param position current position of the marker, it's ignored if the marker is already animated.
+     * @param bearing  current bearing of the marker.
+     */
+    void animate(@NonNull MapBackend.MarkerHandle marker, @NonNull LatLng position, float bearing,
+                 @NonNull LatLng target, float targetBearing) {
+        Integer slot = slots.get(marker);
+        int i;
+        if (slot == null) {
+            i = allocate(marker);
+            latitude[i] = position.latitude;
+            longitude[i] = position.longitude;
+            this.bearing[i] = bearing;
+        } else {
+            i = slot;
+        }
+        fromLatitude[i] = latitude[i];
+        fromLongitude[i] = longitude[i];
+        fromBearing[i] = this.bearing[i];
+        toLatitude[i] = target.latitude;
+        // the shortest way across the antimeridian
+        toLongitude[i] = longitude[i] + wrap(target.longitude - longitude[i], 180);
+        // the shortest turn
+        toBearing[i] = this.bearing[i] + (float) wrap(targetBearing - this.bearing[i], 180);
+        startTime[i] = NOT_STARTED;
+        if (!isPosted) {
+            isPosted = true;
+            frameScheduler.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Stops the animation of the marker where it is, e.g. before the marker is removed.
+     */
+    void cancel(@NonNull MapBackend.MarkerHandle marker) {
+        Integer slot = slots.get(marker);
+        if (slot != null) {
+            release(slot);
+        }
+    }
+
+    void clear() {
+        if (isPosted) {
+            isPosted = false;
+            frameScheduler.removeFrameCallback(this);
+        }
+        slots.clear();
+        Arrays.fill(markers, 0, size, null);
+        size = 0;
+        count = 0;
+        freeCount = 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isPosted = false;
+        for (int i = 0; i < size; i++) {
+            MapBackend.MarkerHandle marker = markers[i];
+            if (marker == null) {
+                continue;
+            }
+            if (startTime[i] == NOT_STARTED) {
+                startTime[i] = frameTimeNanos;
+            }
+            float fraction = duration <= 0 ? 1 : (float) (frameTimeNanos - startTime[i]) / duration;
+            boolean isFinished = fraction >= 1;
+            if (isFinished) {
+                fraction = 1;
+            }
+            double latitude = fromLatitude[i] + (toLatitude[i] - fromLatitude[i]) * fraction;
+            double longitude = fromLongitude[i] + (toLongitude[i] - fromLongitude[i]) * fraction;
+            float bearing = fromBearing[i] + (toBearing[i] - fromBearing[i]) * fraction;
+            if (isFinished || isPathVisible(i, latitude, longitude)) {
+                marker.setPosition(new LatLng(latitude, wrap(longitude, 180)));
+                marker.setRotation((float) wrap(bearing - 180, 180) + 180);
+            }
+            this.latitude[i] = latitude;
+            this.longitude[i] = longitude;
+            this.bearing[i] = bearing;
+            if (isFinished) {
+                release(i);
+            }
+        }
+        if (count > 0) {
+            isPosted = true;
+            frameScheduler.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Checks if the rest of the path from the current position to the target is in the viewport.
+     */
+    private boolean isPathVisible(int i, double latitude, double longitude) {
+        double west = Math.min(longitude, toLongitude[i]);
+        double east = Math.max(longitude, toLongitude[i]);
+        return culler.isVisible(Math.min(latitude, toLatitude[i]), wrap(west, 180),
+                Math.max(latitude, toLatitude[i]), wrap(east, 180));
+    }
+
+    private int allocate(MapBackend.MarkerHandle marker) {
+        int i;
+        if (freeCount > 0) {
+            i = freeSlots[--freeCount];
+        } else {
+            if (size == markers.length) {
+                grow(size * 2);
+            }
+            i = size++;
+        }
+        markers[i] = marker;
+        slots.put(marker, i);
+        count++;
+        return i;
+    }
+
+    private void release(int i) {
+        slots.remove(markers[i]);
+        markers[i] = null;
+        count--;
+        if (i == size - 1) {
+            size--;
+        } else {
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = i;
+        }
+        if (count == 0) {
+            size = 0;
+            freeCount = 0;
+        }
+    }
+
+    private void grow(int capacity) {
+        markers = Arrays.copyOf(markers, capacity);
+        fromLatitude = Arrays.copyOf(fromLatitude, capacity);
+        fromLongitude = Arrays.copyOf(fromLongitude, capacity);
+        latitude = Arrays.copyOf(latitude, capacity);
+        longitude = Arrays.copyOf(longitude, capacity);
+        toLatitude = Arrays.copyOf(toLatitude, capacity);
+        toLongitude = Arrays.copyOf(toLongitude, capacity);
+        fromBearing = Arrays.copyOf(fromBearing, capacity);
+        bearing = Arrays.copyOf(bearing, capacity);
+        toBearing = Arrays.copyOf(toBearing, capacity);
+        startTime = Arrays.copyOf(startTime, capacity);
+    }
+
+    /**
+     * @return the value moved into [-half, half) by whole turns of 2 * half.
+     */
+    private static double wrap(double value, double half) {
+        double turn = 2 * half;
+        double wrapped = (value + half) % turn;
+        return (wrapped < 0 ? wrapped + turn : wrapped) - half;
+    }
+}
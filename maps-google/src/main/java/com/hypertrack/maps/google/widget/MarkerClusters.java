@@ -0,0 +1,199 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.hypertrack.maps.google.utils.GridClusterer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces trip markers that are close to each other on the screen by cluster markers with a count.
+ * <p>
+ * Markers are grouped by {@link GridClusterer}, a marker is hidden while its grid cell has other markers,
+ * and the cell is shown by one cluster marker at the centroid of its markers. Adding, moving or removing
+ * a marker updates only cells it leaves or enters, a zoom change reuses cluster markers of the previous zoom level.
+ */
+class MarkerClusters {
+    private final MapBackend map;
+    private final MarkerOptions clusterMarker;
+    private final ClusterIcons icons;
+    private final GridClusterer clusterer;
+    private int zoomLevel;
+
+    private final Map<String, Integer> items = new HashMap<>();
+    private final List<MapBackend.MarkerHandle> markers = new ArrayList<>();
+    private final BitSet hiddenItems = new BitSet();
+    private final Map<Long, Cluster> clusters = new HashMap<>();
+    private final List<Cluster> spareClusters = new ArrayList<>();
+
+    private static class Cluster {
+        MapBackend.MarkerHandle marker;
+        int count;
+    }
+
+    private final GridClusterer.CellVisitor clusterVisitor = new GridClusterer.CellVisitor() {
+        @Override
+        public void visit(long cell, int count, int item, double latitude, double longitude) {
+            if (count > 1) {
+                Cluster cluster = spareClusters.isEmpty() ? null : spareClusters.remove(spareClusters.size() - 1);
+                clusters.put(cell, showCluster(cluster, count, new LatLng(latitude, longitude)));
+            }
+        }
+    };
+
+    /**
+     * @param cellSize cell size in density independent pixels.
+     */
+    MarkerClusters(@NonNull MapBackend map, @NonNull MarkerOptions clusterMarker, @NonNull ClusterIcons icons,
+                   int cellSize, int zoomLevel) {
+        this.map = map;
+        this.clusterMarker = clusterMarker;
+        this.icons = icons;
+        this.clusterer = new GridClusterer(cellSize);
+        this.zoomLevel = zoomLevel;
+    }
+
+    /**
+     * Adds the marker to clustering or moves it. Visibility of the marker is controlled by clusters after that.
+     */
+    void put(@NonNull MapBackend.MarkerHandle marker, @NonNull LatLng position) {
+        Integer item = items.get(marker.getId());
+        if (item == null) {
+            long cell = getCell(position);
+            int single = clusterer.getCellItem(cell, zoomLevel);
+            item = clusterer.add(position.latitude, position.longitude);
+            items.put(marker.getId(), item);
+            while (markers.size() <= item) {
+                markers.add(null);
+            }
+            markers.set(item, marker);
+            boolean isHidden = clusterer.getCellCount(cell, zoomLevel) > 1;
+            marker.setVisible(!isHidden);
+            hiddenItems.set(item, isHidden);
+            updateItem(single);
+            updateCluster(cell);
+            return;
+        }
+        long oldCell = clusterer.getCell(item, zoomLevel);
+        int oldSingle = clusterer.getCellItem(oldCell, zoomLevel);
+        long cell = getCell(position);
+        int single = clusterer.getCellItem(cell, zoomLevel);
+        if (!clusterer.move(item, position.latitude, position.longitude)) {
+            return;
+        }
+        updateItem(item);
+        updateCluster(cell);
+        if (oldCell != cell) {
+            updateItem(oldSingle);
+            updateItem(single);
+            updateItem(clusterer.getCellItem(oldCell, zoomLevel));
+            updateCluster(oldCell);
+        }
+    }
+
+    /**
+     * Removes the marker from clustering, the marker itself isn't removed from the map.
+     */
+    void remove(@NonNull MapBackend.MarkerHandle marker) {
+        Integer item = items.remove(marker.getId());
+        if (item == null) {
+            return;
+        }
+        long cell = clusterer.getCell(item, zoomLevel);
+        clusterer.remove(item);
+        markers.set(item, null);
+        hiddenItems.clear(item);
+        updateItem(clusterer.getCellItem(cell, zoomLevel));
+        updateCluster(cell);
+    }
+
+    /**
+     * Shows clusters of the zoom level. Cell counts of every zoom level are already known,
+     * so only visibility of markers and cluster markers is updated.
+     */
+    void setZoomLevel(int zoomLevel) {
+        if (this.zoomLevel == zoomLevel) {
+            return;
+        }
+        this.zoomLevel = zoomLevel;
+        spareClusters.addAll(clusters.values());
+        clusters.clear();
+        clusterer.visitCells(zoomLevel, clusterVisitor);
+        for (Cluster cluster : spareClusters) {
+            cluster.marker.remove();
+        }
+        spareClusters.clear();
+        for (int item = 0; item < markers.size(); item++) {
+            updateItem(item);
+        }
+    }
+
+    /**
+     * Removes cluster markers, markers of trips are removed by trips.
+     */
+    void clear() {
+        for (Cluster cluster : clusters.values()) {
+            cluster.marker.remove();
+        }
+        clusters.clear();
+        items.clear();
+        markers.clear();
+        hiddenItems.clear();
+        clusterer.clear();
+    }
+
+    private long getCell(LatLng position) {
+        return clusterer.getCell(position.latitude, position.longitude, zoomLevel);
+    }
+
+    /**
+     * Shows the marker if it's alone in its cell, hides it otherwise.
+     */
+    private void updateItem(int item) {
+        MapBackend.MarkerHandle marker = item == GridClusterer.NO_ITEM ? null : markers.get(item);
+        if (marker == null) {
+            return;
+        }
+        long cell = clusterer.getCell(item, zoomLevel);
+        boolean isHidden = clusterer.getCellCount(cell, zoomLevel) > 1;
+        if (hiddenItems.get(item) != isHidden) {
+            marker.setVisible(!isHidden);
+            hiddenItems.set(item, isHidden);
+        }
+    }
+
+    private void updateCluster(long cell) {
+        int count = clusterer.getCellCount(cell, zoomLevel);
+        Cluster cluster = clusters.get(cell);
+        if (count > 1) {
+            LatLng position = new LatLng(clusterer.getCellLatitude(cell, zoomLevel),
+                    clusterer.getCellLongitude(cell, zoomLevel));
+            clusters.put(cell, showCluster(cluster, count, position));
+        } else if (cluster != null) {
+            cluster.marker.remove();
+            clusters.remove(cell);
+        }
+    }
+
+    private Cluster showCluster(Cluster cluster, int count, LatLng position) {
+        if (cluster == null) {
+            cluster = new Cluster();
+            cluster.marker = map.addMarker(clusterMarker
+                    .position(position)
+                    .icon(icons.getIcon(count)));
+        } else {
+            cluster.marker.setPosition(position);
+            if (!ClusterIcons.getLabel(cluster.count).equals(ClusterIcons.getLabel(count))) {
+                cluster.marker.setIcon(icons.getIcon(count));
+            }
+        }
+        cluster.count = count;
+        return cluster;
+    }
+}
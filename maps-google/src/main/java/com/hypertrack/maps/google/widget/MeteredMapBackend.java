@@ -0,0 +1,245 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PatternItem;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.List;
+
+/**
+ * {@link MapBackend} that counts map mutations and camera animations into {@link AdapterMetrics}
+ * and forwards calls to another backend.
+ */
+class MeteredMapBackend implements MapBackend {
+    private final MapBackend map;
+    private final AdapterMetrics metrics;
+    private final GoogleMap.CancelableCallback cameraCallback = new CameraCallback(null);
+
+    MeteredMapBackend(@NonNull MapBackend map, @NonNull AdapterMetrics metrics) {
+        this.map = map;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return handle of the underlying backend.
+     */
+    @Nullable
+    static MarkerHandle unwrap(@Nullable MarkerHandle handle) {
+        return handle instanceof MeteredMarker ? ((MeteredMarker) handle).marker : handle;
+    }
+
+    @Override
+    public MarkerHandle addMarker(@NonNull MarkerOptions options) {
+        metrics.markerMutationCount++;
+        return new MeteredMarker(map.addMarker(options));
+    }
+
+    @Override
+    public PolylineHandle addPolyline(@NonNull PolylineOptions options) {
+        metrics.uploadedPointCount += options.getPoints().size();
+        return new MeteredPolyline(map.addPolyline(options));
+    }
+
+    @Override
+    public CircleHandle addCircle(@NonNull CircleOptions options) {
+        metrics.circleMutationCount++;
+        return new MeteredCircle(map.addCircle(options));
+    }
+
+    @Override
+    public CameraPosition getCameraPosition() {
+        return map.getCameraPosition();
+    }
+
+    @Override
+    public LatLngBounds getVisibleBounds() {
+        return map.getVisibleBounds();
+    }
+
+    @Override
+    public float getMaxZoomLevel() {
+        return map.getMaxZoomLevel();
+    }
+
+    @Override
+    public void setMaxZoomPreference(float maxZoomPreference) {
+        map.setMaxZoomPreference(maxZoomPreference);
+    }
+
+    @Override
+    public void setOnCameraIdleListener(@Nullable GoogleMap.OnCameraIdleListener listener) {
+        map.setOnCameraIdleListener(listener);
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLng target, float zoom, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        metrics.cameraAnimationCount++;
+        map.animateCamera(target, zoom, duration, getCameraCallback(callback));
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLngBounds bounds, int width, int height, int padding, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        metrics.cameraAnimationCount++;
+        map.animateCamera(bounds, width, height, padding, duration, getCameraCallback(callback));
+    }
+
+    private GoogleMap.CancelableCallback getCameraCallback(@Nullable GoogleMap.CancelableCallback callback) {
+        return callback == null ? cameraCallback : new CameraCallback(callback);
+    }
+
+    private class CameraCallback implements GoogleMap.CancelableCallback {
+        private final GoogleMap.CancelableCallback callback;
+
+        CameraCallback(@Nullable GoogleMap.CancelableCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onFinish() {
+            if (callback != null) {
+                callback.onFinish();
+            }
+        }
+
+        @Override
+        public void onCancel() {
+            metrics.cancelledCameraAnimationCount++;
+            if (callback != null) {
+                callback.onCancel();
+            }
+        }
+    }
+
+    private class MeteredMarker implements MarkerHandle {
+        private final MarkerHandle marker;
+
+        MeteredMarker(MarkerHandle marker) {
+            this.marker = marker;
+        }
+
+        @Override
+        public String getId() {
+            return marker.getId();
+        }
+
+        @Override
+        public void setPosition(@NonNull LatLng position) {
+            metrics.markerMutationCount++;
+            marker.setPosition(position);
+        }
+
+        @Override
+        public void setRotation(float rotation) {
+            metrics.markerMutationCount++;
+            marker.setRotation(rotation);
+        }
+
+        @Override
+        public void setIcon(@Nullable BitmapDescriptor icon) {
+            metrics.markerMutationCount++;
+            marker.setIcon(icon);
+        }
+
+        @Override
+        public void setVisible(boolean visible) {
+            metrics.markerMutationCount++;
+            marker.setVisible(visible);
+        }
+
+        @Override
+        public void remove() {
+            metrics.markerMutationCount++;
+            marker.remove();
+        }
+    }
+
+    private class MeteredPolyline implements PolylineHandle {
+        private final PolylineHandle polyline;
+
+        MeteredPolyline(PolylineHandle polyline) {
+            this.polyline = polyline;
+        }
+
+        @Override
+        public void setPoints(@NonNull List<LatLng> points) {
+            metrics.setPointsCount++;
+            metrics.uploadedPointCount += points.size();
+            polyline.setPoints(points);
+        }
+
+        @Override
+        public void setColor(int color) {
+            polyline.setColor(color);
+        }
+
+        @Override
+        public void setWidth(float width) {
+            polyline.setWidth(width);
+        }
+
+        @Override
+        public void setPattern(@Nullable List<PatternItem> pattern) {
+            polyline.setPattern(pattern);
+        }
+
+        @Override
+        public void remove() {
+            polyline.remove();
+        }
+    }
+
+    private class MeteredCircle implements CircleHandle {
+        private final CircleHandle circle;
+
+        MeteredCircle(CircleHandle circle) {
+            this.circle = circle;
+        }
+
+        @Override
+        public void setCenter(@NonNull LatLng center) {
+            metrics.circleMutationCount++;
+            circle.setCenter(center);
+        }
+
+        @Override
+        public void setRadius(double radius) {
+            metrics.circleMutationCount++;
+            circle.setRadius(radius);
+        }
+
+        @Override
+        public void setFillColor(int color) {
+            metrics.circleMutationCount++;
+            circle.setFillColor(color);
+        }
+
+        @Override
+        public void setStrokeColor(int color) {
+            metrics.circleMutationCount++;
+            circle.setStrokeColor(color);
+        }
+
+        @Override
+        public void setStrokeWidth(float width) {
+            metrics.circleMutationCount++;
+            circle.setStrokeWidth(width);
+        }
+
+        @Override
+        public void remove() {
+            metrics.circleMutationCount++;
+            circle.remove();
+        }
+    }
+}
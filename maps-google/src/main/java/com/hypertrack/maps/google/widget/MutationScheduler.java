@@ -0,0 +1,170 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Queues map object mutations and runs them before frames within a time budget, so an update of
+ * many trips is spread over several frames instead of dropping them.
+ * <p>
+ * A mutation is keyed by the object it changes and reads the latest state of the object when it runs,
+ * so a mutation scheduled for an object that already has a pending one is merged into it.
+ * Mutations run by priority: the tracked trip first, then objects in the visible region, then the rest,
+ * in the order they were scheduled. At least one mutation runs per frame, a frame that takes longer
+ * than the budget is counted as an overrun. Must be used on the main thread.
+ */
+class MutationScheduler implements Choreographer.FrameCallback {
+    static final int PRIORITY_TRACKED = 0;
+    static final int PRIORITY_VISIBLE = 1;
+    static final int PRIORITY_BACKGROUND = 2;
+    private static final int PRIORITY_COUNT = 3;
+
+    interface Priorities {
+        /**
+         * @return one of PRIORITY_ constants for the object.
+         */
+        int getPriority(@NonNull String key);
+    }
+
+    private final FrameScheduler frameScheduler;
+    private final Priorities priorities;
+    private final AdapterMetrics metrics;
+    private final long budget;
+
+    @SuppressWarnings("unchecked")
+    private final LinkedHashMap<String, Runnable>[] queues = new LinkedHashMap[PRIORITY_COUNT];
+    private int size;
+    private boolean isPosted;
+
+    /**
+     * @param budget max time of mutations per frame in microseconds.
+     */
+    MutationScheduler(@NonNull FrameScheduler frameScheduler, @NonNull Priorities priorities,
+                      @NonNull AdapterMetrics metrics, long budget) {
+        this.frameScheduler = frameScheduler;
+        this.priorities = priorities;
+        this.metrics = metrics;
+        this.budget = budget * 1000;
+        for (int i = 0; i < PRIORITY_COUNT; i++) {
+            queues[i] = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * @return count of pending mutations.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the mutation of the object, it replaces a pending mutation of the same object.
+     *
+     * @param key      id of the object.
+     * @param mutation mutation that applies the latest state of the object.
+     */
+    void schedule(@NonNull String key, @NonNull Runnable mutation) {
+        int priority = priorities.getPriority(key);
+        LinkedHashMap<String, Runnable> queue = queues[priority];
+        if (queue.containsKey(key)) {
+            metrics.mergedMutationCount++;
+        } else if (remove(key)) {
+            // the priority has changed, e.g. the object got into the visible region
+            metrics.mergedMutationCount++;
+        }
+        if (queue.put(key, mutation) == null) {
+            size++;
+        }
+        onSizeChanged();
+        if (!isPosted) {
+            isPosted = true;
+            frameScheduler.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Drops the pending mutation of the object, e.g. when the object is removed.
+     */
+    void cancel(@NonNull String key) {
+        if (remove(key)) {
+            onSizeChanged();
+        }
+    }
+
+    /**
+     * Runs all pending mutations now.
+     */
+    void flush() {
+        while (size > 0) {
+            runNext();
+        }
+    }
+
+    void clear() {
+        for (LinkedHashMap<String, Runnable> queue : queues) {
+            queue.clear();
+        }
+        size = 0;
+        onSizeChanged();
+        if (isPosted) {
+            isPosted = false;
+            frameScheduler.removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isPosted = false;
+        if (size == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            runNext();
+            elapsed = System.nanoTime() - start;
+        } while (size > 0 && elapsed < budget);
+        if (elapsed > budget) {
+            metrics.frameBudgetOverrunCount++;
+        }
+        if (size > 0 && !isPosted) {
+            isPosted = true;
+            frameScheduler.postFrameCallback(this);
+        }
+    }
+
+    private void runNext() {
+        for (LinkedHashMap<String, Runnable> queue : queues) {
+            Iterator<Map.Entry<String, Runnable>> iterator = queue.entrySet().iterator();
+            if (iterator.hasNext()) {
+                Runnable mutation = iterator.next().getValue();
+                iterator.remove();
+                size--;
+                onSizeChanged();
+                mutation.run();
+                return;
+            }
+        }
+    }
+
+    private boolean remove(String key) {
+        for (LinkedHashMap<String, Runnable> queue : queues) {
+            if (queue.remove(key) != null) {
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onSizeChanged() {
+        metrics.mutationQueueDepth = size;
+        if (size > metrics.maxMutationQueueDepth) {
+            metrics.maxMutationQueueDepth = size;
+        }
+    }
+}
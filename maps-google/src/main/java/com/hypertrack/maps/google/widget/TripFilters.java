@@ -3,23 +3,93 @@ package com.hypertrack.maps.google.widget;
 import com.hypertrack.sdk.views.maps.Predicate;
 import com.hypertrack.sdk.views.dao.Trip;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Set of trip predicates with memoized results. A result is cached per trip id and trip instance,
+ * every trip update comes as a new instance, so it's evaluated again.
+ * <p>
+ * Adding a filter re-checks only passing trips against the new filter, removing a filter re-checks
+ * only failing trips, because results of other trips can't change.
+ */
 class TripFilters {
     private Set<Predicate<Trip>> filters = new HashSet<>();
+    private final Map<String, Result> results = new HashMap<>();
 
-    void add(Predicate<Trip> predicate) {
-        filters.add(predicate);
+    private static class Result {
+        Trip trip;
+        boolean isPassed;
     }
 
-    void remove(Predicate<Trip> predicate) {
-        filters.remove(predicate);
+    /**
+     * @return ids of cached trips whose result has changed.
+     */
+    List<String> add(Predicate<Trip> predicate) {
+        List<String> changed = new ArrayList<>();
+        if (filters.add(predicate)) {
+            for (Map.Entry<String, Result> entry : results.entrySet()) {
+                Result result = entry.getValue();
+                if (result.isPassed && !predicate.apply(result.trip)) {
+                    result.isPassed = false;
+                    changed.add(entry.getKey());
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return ids of cached trips whose result has changed.
+     */
+    List<String> remove(Predicate<Trip> predicate) {
+        List<String> changed = new ArrayList<>();
+        if (filters.remove(predicate)) {
+            for (Map.Entry<String, Result> entry : results.entrySet()) {
+                Result result = entry.getValue();
+                if (!result.isPassed && evaluate(result.trip)) {
+                    result.isPassed = true;
+                    changed.add(entry.getKey());
+                }
+            }
+        }
+        return changed;
     }
 
     boolean apply(Trip trip) {
+        Result result = results.get(trip.getTripId());
+        if (result == null) {
+            result = new Result();
+            results.put(trip.getTripId(), result);
+        } else if (result.trip == trip) {
+            return result.isPassed;
+        }
+        result.trip = trip;
+        result.isPassed = evaluate(trip);
+        return result.isPassed;
+    }
+
+    /**
+     * Drops the cached result of a removed trip.
+     */
+    void remove(String tripId) {
+        results.remove(tripId);
+    }
+
+    /**
+     * Drops cached results, e.g. when filters depend on data that has changed.
+     */
+    void invalidate() {
+        results.clear();
+    }
+
+    private boolean evaluate(Trip trip) {
         for (Predicate<Trip> filter : filters) if (!filter.apply(trip)) return false;
 
         return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.hypertrack.sdk.views.dao.Trip;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable snapshot of trip geometry prepared by {@link TripGeometryBuilder}, ready to be applied to map objects.
+ * <p>
+ * Lists are never modified after the snapshot is created, unchanged lists are shared between snapshots
+ * so the main thread can skip uploading them by comparing references.
+ */
+final class TripGeometry {
+
+    final Trip trip;
+    final int zoomLevel;
+
+    final LatLng destination;
+    final int destinationRadius;
+    final Date destinationArrivedDate;
+    final LatLng origin;
+    final LatLng end;
+
+    /**
+     * Changes when the simplified passed route is rebuilt and the frozen chunks are not valid anymore.
+     */
+    final int passedRouteGeneration;
+    /**
+     * Frozen parts of the passed route, each chunk starts with the last point of the previous one.
+     */
+    final List<List<LatLng>> passedRouteChunks;
+    final List<LatLng> passedRouteTail;
+    final List<LatLng> comingRoute;
+    /**
+     * Simplified estimate with the destination, the coming route is my position followed by the base from the offset.
+     * The base is shared between snapshots until the estimate, the zoom level or the destination change.
+     */
+    final List<LatLng> comingRouteBase;
+    final int comingRouteOffset;
+    /**
+     * First point of the coming route, null if the coming route is the whole base.
+     */
+    final LatLng comingRoutePosition;
+
+    /**
+     * Bounds of the routes and the destination, null if the trip has no geometry.
+     */
+    final LatLngBounds bounds;
+
+    TripGeometry(Trip trip, int zoomLevel,
+                 LatLng destination, int destinationRadius, Date destinationArrivedDate,
+                 LatLng origin, LatLng end,
+                 int passedRouteGeneration, List<List<LatLng>> passedRouteChunks, List<LatLng> passedRouteTail,
+                 List<LatLng> comingRoute, List<LatLng> comingRouteBase, int comingRouteOffset,
+                 LatLng comingRoutePosition, LatLngBounds bounds) {
+        this.trip = trip;
+        this.zoomLevel = zoomLevel;
+        this.destination = destination;
+        this.destinationRadius = destinationRadius;
+        this.destinationArrivedDate = destinationArrivedDate;
+        this.origin = origin;
+        this.end = end;
+        this.passedRouteGeneration = passedRouteGeneration;
+        this.passedRouteChunks = passedRouteChunks;
+        this.passedRouteTail = passedRouteTail;
+        this.comingRoute = comingRoute;
+        this.comingRouteBase = comingRouteBase;
+        this.comingRouteOffset = comingRouteOffset;
+        this.comingRoutePosition = comingRoutePosition;
+        this.bounds = bounds;
+    }
+}
@@ -0,0 +1,372 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.WorkerThread;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.hypertrack.maps.google.utils.PackedRoute;
+import com.hypertrack.maps.google.utils.RouteBounds;
+import com.hypertrack.maps.google.utils.RouteMatcher;
+import com.hypertrack.maps.google.utils.RouteSimplifier;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Converts updates of a single trip into {@link TripGeometry} snapshots.
+ * <p>
+ * The builder keeps packed routes, simplifiers and the route matcher between updates, so an update of a live trip
+ * costs about the count of new points. It's confined to the geometry worker thread.
+ */
+@WorkerThread
+class TripGeometryBuilder {
+    /**
+     * Max count of points in a single passed route polyline. Passed route of a live trip only grows,
+     * so it's split into frozen chunks and only the last chunk is uploaded on every update.
+     */
+    private static final int PASSED_ROUTE_CHUNK_SIZE = 256;
+
+    /**
+     * Immutable input of the builder.
+     */
+    static final class Request {
+        final Trip trip;
+        final LatLng myPosition;
+        final int zoomLevel;
+
+        Request(Trip trip, LatLng myPosition, int zoomLevel) {
+            this.trip = trip;
+            this.myPosition = myPosition;
+            this.zoomLevel = zoomLevel;
+        }
+    }
+
+    private final float tolerance;
+
+    private final PackedRoute summaryRoute = new PackedRoute();
+    private final PackedRoute estimateRoute = new PackedRoute();
+    private final RouteSimplifier summarySimplifier = new RouteSimplifier();
+    private final RouteSimplifier estimateSimplifier = new RouteSimplifier();
+    private final RouteMatcher estimateMatcher = new RouteMatcher();
+    private final RouteBounds bounds = new RouteBounds();
+
+    private boolean isSummaryRouteReset = true;
+    private boolean isEstimateRouteChanged = true;
+    private List<Trip.Point2D> estimatePoints;
+
+    private int passedRouteGeneration;
+    private final List<List<LatLng>> passedRouteChunks = new ArrayList<>();
+    private int passedRouteChunkStart;
+    private List<List<LatLng>> passedRouteChunksSnapshot = Collections.emptyList();
+    private List<LatLng> passedRouteTail;
+    private int passedRouteTailSize;
+    private LatLng passedRouteTailPosition;
+
+    private List<LatLng> comingRouteBase = Collections.emptyList();
+    private int[] comingRouteBaseIndexes = new int[0];
+    private boolean isComingRouteBaseValid;
+    private LatLng comingRouteDestination;
+    private List<LatLng> comingRoute;
+    private int comingRouteOffset;
+    private LatLng comingRoutePosition;
+
+    /**
+     * @param tolerance simplification tolerance in pixels.
+     */
+    TripGeometryBuilder(float tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    TripGeometry build(Request request) {
+        Trip trip = request.trip;
+
+        List<Location> locations = trip.getSummary() == null ?
+                Collections.<Location>emptyList()
+                : trip.getSummary().getLocations();
+        if (!isSummaryAppended(locations)) {
+            summaryRoute.clear();
+            isSummaryRouteReset = true;
+        }
+        for (int i = summaryRoute.size(); i < locations.size(); i++) {
+            Location location = locations.get(i);
+            summaryRoute.add(location.getLatitude(), location.getLongitude());
+        }
+
+        List<Trip.Point2D> points = trip.getEstimate() == null || trip.getEstimate().getRoute() == null ?
+                Collections.<Trip.Point2D>emptyList()
+                : trip.getEstimate().getRoute().getPoints();
+        if (!isSameEstimate(points)) {
+            estimateRoute.clear();
+            estimateMatcher.reset();
+            for (Trip.Point2D item : points) {
+                estimateRoute.add(item.getLatitude(), item.getLongitude());
+            }
+            for (int i = 0; i < estimateRoute.size(); i++) {
+                estimateMatcher.add(estimateRoute.getLatitude(i), estimateRoute.getLongitude(i));
+            }
+            isEstimateRouteChanged = true;
+        }
+        estimatePoints = points;
+
+        LatLng destination = null;
+        int destinationRadius = 0;
+        Date destinationArrivedDate = null;
+        if (trip.getDestination() != null
+                && trip.getDestination().getLatitude() != null && trip.getDestination().getLongitude() != null) {
+            destination = new LatLng(trip.getDestination().getLatitude(), trip.getDestination().getLongitude());
+            destinationRadius = trip.getDestination().radius;
+            destinationArrivedDate = trip.getDestination().getArrivedDate();
+        }
+
+        simplifyRoutes(request.zoomLevel);
+        updatePassedRoute(request.myPosition);
+        updateComingRoute(request.myPosition, destination);
+
+        LatLng origin = request.myPosition;
+        if (!summaryRoute.isEmpty()) {
+            origin = summaryRoute.get(0);
+        } else if (!estimateRoute.isEmpty()) {
+            origin = estimateRoute.get(0);
+        }
+        LatLng end = summaryRoute.isEmpty() ? null : summaryRoute.get(summaryRoute.size() - 1);
+
+        return new TripGeometry(trip, request.zoomLevel,
+                destination, destinationRadius, destinationArrivedDate,
+                origin, end,
+                passedRouteGeneration, passedRouteChunksSnapshot, passedRouteTail,
+                comingRoute, comingRouteBase, comingRouteOffset,
+                comingRouteBase.isEmpty() ? null : comingRoutePosition, getBounds(destination));
+    }
+
+    /**
+     * Checks if summary locations only extend already converted summary route.
+     * Locations of a live trip are appended, so the first and the last known points stay the same.
+     */
+    private boolean isSummaryAppended(List<Location> locations) {
+        int size = summaryRoute.size();
+        if (size == 0) {
+            return true;
+        }
+        if (locations.size() < size) {
+            return false;
+        }
+        Location first = locations.get(0);
+        Location last = locations.get(size - 1);
+        return summaryRoute.isSame(0, first.getLatitude(), first.getLongitude())
+                && summaryRoute.isSame(size - 1, last.getLatitude(), last.getLongitude());
+    }
+
+    /**
+     * Checks if the estimate is the converted one. Updates caused by my location and the camera pass the same trip,
+     * so its list is recognized by reference, only a new list from the SDK is compared point by point.
+     */
+    private boolean isSameEstimate(List<Trip.Point2D> points) {
+        if (points.size() != estimateRoute.size()) {
+            return false;
+        }
+        if (points == estimatePoints) {
+            return true;
+        }
+        for (int i = 0; i < points.size(); i++) {
+            Trip.Point2D point = points.get(i);
+            if (!estimateRoute.isSame(i, point.getLatitude(), point.getLongitude())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Feeds new route points into the simplifiers. Simplified routes are rebuilt only if the zoom level
+     * has changed or the route was replaced.
+     */
+    private void simplifyRoutes(int zoomLevel) {
+        if (isSummaryRouteReset || summarySimplifier.getZoomLevel() != zoomLevel) {
+            summarySimplifier.reset(tolerance, zoomLevel);
+            passedRouteGeneration++;
+            passedRouteChunks.clear();
+            passedRouteChunkStart = 0;
+            passedRouteChunksSnapshot = Collections.emptyList();
+            passedRouteTail = null;
+            isSummaryRouteReset = false;
+        }
+        for (int i = summarySimplifier.getCount(); i < summaryRoute.size(); i++) {
+            summarySimplifier.add(summaryRoute.getLatitude(i), summaryRoute.getLongitude(i));
+        }
+
+        if (isEstimateRouteChanged || estimateSimplifier.getZoomLevel() != zoomLevel) {
+            estimateSimplifier.reset(tolerance, zoomLevel);
+            for (int i = 0; i < estimateRoute.size(); i++) {
+                estimateSimplifier.add(estimateRoute.getLatitude(i), estimateRoute.getLongitude(i));
+            }
+            isComingRouteBaseValid = false;
+            isEstimateRouteChanged = false;
+        }
+    }
+
+    /**
+     * Freezes full chunks of the simplified passed route and rebuilds the tail if it has changed.
+     */
+    private void updatePassedRoute(LatLng myPosition) {
+        boolean isChunkAdded = false;
+        while (summarySimplifier.getKeptCount() - passedRouteChunkStart > PASSED_ROUTE_CHUNK_SIZE) {
+            int chunkEnd = passedRouteChunkStart + PASSED_ROUTE_CHUNK_SIZE;
+            List<LatLng> chunk = new ArrayList<>(PASSED_ROUTE_CHUNK_SIZE + 1);
+            for (int i = passedRouteChunkStart; i <= chunkEnd; i++) {
+                chunk.add(summaryRoute.get(summarySimplifier.getKeptIndex(i)));
+            }
+            passedRouteChunks.add(Collections.unmodifiableList(chunk));
+            passedRouteChunkStart = chunkEnd;
+            isChunkAdded = true;
+        }
+        if (isChunkAdded) {
+            passedRouteChunksSnapshot = Collections.unmodifiableList(new ArrayList<>(passedRouteChunks));
+        }
+
+        LatLng position = summaryRoute.isEmpty() ? null : myPosition;
+        if (passedRouteTail != null && !isChunkAdded
+                && passedRouteTailSize == summaryRoute.size()
+                && (position == null ? passedRouteTailPosition == null : position.equals(passedRouteTailPosition))) {
+            return;
+        }
+        List<LatLng> tail = new ArrayList<>();
+        for (int i = passedRouteChunkStart; i < summarySimplifier.getKeptCount(); i++) {
+            tail.add(summaryRoute.get(summarySimplifier.getKeptIndex(i)));
+        }
+        for (int i = summarySimplifier.getPendingStart(); i < summaryRoute.size(); i++) {
+            tail.add(summaryRoute.get(i));
+        }
+        if (position != null) {
+            tail.add(position);
+        }
+        passedRouteTail = Collections.unmodifiableList(tail);
+        passedRouteTailSize = summaryRoute.size();
+        passedRouteTailPosition = position;
+    }
+
+    /**
+     * Cuts the coming route at my position. The simplified estimate with the destination is kept as a base list
+     * that is rebuilt only when the estimate, the zoom level or the destination change, an update of my position
+     * only finds the first base point ahead of it and shares the base with the previous snapshot.
+     */
+    private void updateComingRoute(LatLng myPosition, LatLng destination) {
+        if (!isComingRouteBaseValid
+                || !(destination == null ? comingRouteDestination == null : destination.equals(comingRouteDestination))) {
+            buildComingRouteBase(destination);
+        } else if (comingRoute != null
+                && (myPosition == null ? comingRoutePosition == null : myPosition.equals(comingRoutePosition))) {
+            return;
+        }
+        int offset = 0;
+        LatLng position = null;
+        if (myPosition != null && !comingRouteBase.isEmpty()) {
+            int matched = estimateMatcher.match(myPosition.latitude, myPosition.longitude);
+            offset = findComingRouteOffset(matched);
+            position = myPosition;
+        }
+        comingRoute = comingRouteBase.isEmpty() ?
+                Collections.<LatLng>emptyList()
+                : new ComingRoute(position, comingRouteBase, offset);
+        comingRouteOffset = offset;
+        comingRoutePosition = myPosition;
+    }
+
+    private void buildComingRouteBase(LatLng destination) {
+        List<LatLng> points = new ArrayList<>();
+        int[] indexes = new int[estimateSimplifier.getKeptCount() + estimateRoute.size() + 1];
+        if (!estimateRoute.isEmpty()) {
+            int last = -1;
+            for (int i = 0; i < estimateSimplifier.getKeptCount(); i++) {
+                last = estimateSimplifier.getKeptIndex(i);
+                indexes[points.size()] = last;
+                points.add(estimateRoute.get(last));
+            }
+            for (int i = Math.max(estimateSimplifier.getPendingStart(), last + 1); i < estimateRoute.size(); i++) {
+                indexes[points.size()] = i;
+                points.add(estimateRoute.get(i));
+            }
+            if (destination != null) {
+                indexes[points.size()] = Integer.MAX_VALUE;
+                points.add(destination);
+            }
+        }
+        comingRouteBase = Collections.unmodifiableList(points);
+        comingRouteBaseIndexes = Arrays.copyOf(indexes, points.size());
+        comingRouteDestination = destination;
+        isComingRouteBaseValid = true;
+        comingRoute = null;
+    }
+
+    /**
+     * @return index of the first base point after the estimate point, the base size if there is none.
+     */
+    private int findComingRouteOffset(int estimateIndex) {
+        int low = 0;
+        int high = comingRouteBaseIndexes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comingRouteBaseIndexes[middle] > estimateIndex) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private LatLngBounds getBounds(LatLng destination) {
+        bounds.clear();
+        if (destination != null) {
+            bounds.include(destination.latitude, destination.longitude);
+        }
+        bounds.include(summaryRoute.getBounds());
+        bounds.include(estimateRoute.getBounds());
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        return new LatLngBounds(
+                new LatLng(bounds.getMinLatitude(), bounds.getMinLongitude()),
+                new LatLng(bounds.getMaxLatitude(), bounds.getMaxLongitude())
+        );
+    }
+
+    /**
+     * Coming route as my position followed by the base points from the offset, it's a view that doesn't copy the base.
+     */
+    private static final class ComingRoute extends AbstractList<LatLng> implements RandomAccess {
+        private final LatLng position;
+        private final List<LatLng> base;
+        private final int offset;
+        private final int size;
+
+        ComingRoute(LatLng position, List<LatLng> base, int offset) {
+            this.position = position;
+            this.base = base;
+            this.offset = offset;
+            size = (position == null ? 0 : 1) + base.size() - offset;
+        }
+
+        @Override
+        public LatLng get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+            }
+            if (position == null) {
+                return base.get(offset + index);
+            }
+            return index == 0 ? position : base.get(offset + index - 1);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
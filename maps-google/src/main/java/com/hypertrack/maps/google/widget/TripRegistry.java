@@ -0,0 +1,147 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.hypertrack.maps.google.widget.GoogleMapAdapter.GMapLocation;
+import com.hypertrack.maps.google.widget.GoogleMapAdapter.GMapTrip;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map objects of the adapter with indexes of trips by status and by visibility.
+ * <p>
+ * Removed trips are dropped, so lookups of the active or the visible trip don't depend on the count
+ * of removed or completed trips and a long session doesn't accumulate them.
+ */
+class TripRegistry {
+    static final String STATUS_ACTIVE = "active";
+
+    private final Map<String, GMapTrip> trips = new LinkedHashMap<>();
+    private final Map<String, Map<String, GMapTrip>> tripsByStatus = new HashMap<>();
+    private final Map<String, String> indexedStatuses = new HashMap<>();
+    private final Map<String, GMapTrip> visibleTrips = new LinkedHashMap<>();
+    private final Map<String, GMapLocation> locations = new LinkedHashMap<>();
+
+    @Nullable
+    GMapTrip getTrip(String tripId) {
+        return trips.get(tripId);
+    }
+
+    void putTrip(@NonNull GMapTrip mapTrip) {
+        trips.put(mapTrip.trip.getTripId(), mapTrip);
+    }
+
+    /**
+     * @return all added trips, in order of addition.
+     */
+    Collection<GMapTrip> getTrips() {
+        return trips.values();
+    }
+
+    /**
+     * @return added trips with the status.
+     */
+    Collection<GMapTrip> getTrips(String status) {
+        Map<String, GMapTrip> index = tripsByStatus.get(status);
+        return index == null ? Collections.<GMapTrip>emptyList() : index.values();
+    }
+
+    /**
+     * @return the first added trip with active status.
+     */
+    @Nullable
+    GMapTrip getActiveTrip() {
+        Map<String, GMapTrip> index = tripsByStatus.get(STATUS_ACTIVE);
+        return index == null || index.isEmpty() ? null : index.values().iterator().next();
+    }
+
+    /**
+     * @return added trips that are shown on the map, in order they were shown.
+     */
+    Collection<GMapTrip> getVisibleTrips() {
+        return visibleTrips.values();
+    }
+
+    @Nullable
+    GMapTrip getFirstVisibleTrip() {
+        return visibleTrips.isEmpty() ? null : visibleTrips.values().iterator().next();
+    }
+
+    /**
+     * Moves the trip to the index of its current status.
+     */
+    void indexStatus(@NonNull GMapTrip mapTrip) {
+        String tripId = mapTrip.trip.getTripId();
+        String status = mapTrip.trip.getStatus();
+        String indexedStatus = indexedStatuses.get(tripId);
+        if (status.equals(indexedStatus)) {
+            return;
+        }
+        if (indexedStatus != null) {
+            tripsByStatus.get(indexedStatus).remove(tripId);
+        }
+        Map<String, GMapTrip> index = tripsByStatus.get(status);
+        if (index == null) {
+            index = new LinkedHashMap<>();
+            tripsByStatus.put(status, index);
+        }
+        index.put(tripId, mapTrip);
+        indexedStatuses.put(tripId, status);
+    }
+
+    void setVisible(@NonNull GMapTrip mapTrip, boolean isVisible) {
+        String tripId = mapTrip.trip.getTripId();
+        if (!isVisible) {
+            visibleTrips.remove(tripId);
+        } else if (!visibleTrips.containsKey(tripId)) {
+            visibleTrips.put(tripId, mapTrip);
+        }
+    }
+
+    /**
+     * Removes the trip and its indexes, a trip with the same id that replaced it is kept.
+     */
+    void removeTrip(@NonNull GMapTrip mapTrip) {
+        String tripId = mapTrip.trip.getTripId();
+        if (trips.get(tripId) != mapTrip) {
+            return;
+        }
+        trips.remove(tripId);
+        String indexedStatus = indexedStatuses.remove(tripId);
+        if (indexedStatus != null) {
+            tripsByStatus.get(indexedStatus).remove(tripId);
+        }
+        visibleTrips.remove(tripId);
+    }
+
+    @Nullable
+    GMapLocation getLocation(String key) {
+        return locations.get(key);
+    }
+
+    void putLocation(String key, @NonNull GMapLocation mapLocation) {
+        locations.put(key, mapLocation);
+    }
+
+    @Nullable
+    GMapLocation removeLocation(String key) {
+        return locations.remove(key);
+    }
+
+    Collection<GMapLocation> getLocations() {
+        return locations.values();
+    }
+
+    void clear() {
+        trips.clear();
+        tripsByStatus.clear();
+        indexedStatuses.clear();
+        visibleTrips.clear();
+        locations.clear();
+    }
+}
@@ -0,0 +1,189 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.hypertrack.maps.google.utils.QuadTreeIndex;
+import com.hypertrack.sdk.views.maps.models.MapObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entries of one trip in the spatial index of the adapter: route segments and origin, destination and end points.
+ * <p>
+ * Frozen chunks of the passed route are indexed once per generation, the tail of the passed route
+ * is indexed again only when its list changes. Segments of the coming route base are indexed once per base,
+ * a move of my position removes or restores only the segments it passed and replaces the segment
+ * from my position to the base. Points are indexed again only when they move.
+ */
+class TripSpatialEntries {
+    private final QuadTreeIndex<MapObject> index;
+    private final MapObject owner;
+
+    private int passedRouteGeneration;
+    private int passedRouteChunkCount;
+    private final List<QuadTreeIndex.Entry<MapObject>> passedRouteChunkEntries = new ArrayList<>();
+    private List<LatLng> passedRouteTail;
+    private final List<QuadTreeIndex.Entry<MapObject>> passedRouteTailEntries = new ArrayList<>();
+    private List<LatLng> comingRouteBase;
+    private final List<QuadTreeIndex.Entry<MapObject>> comingRouteEntries = new ArrayList<>();
+    private int comingRouteCut;
+    private LatLng comingRoutePosition;
+    private int comingRouteOffset;
+    private QuadTreeIndex.Entry<MapObject> comingRouteHeadEntry;
+    private LatLng origin;
+    private LatLng destination;
+    private LatLng end;
+    private final List<QuadTreeIndex.Entry<MapObject>> pointEntries = new ArrayList<>();
+    private double[] latitudes = new double[0];
+    private double[] longitudes = new double[0];
+
+    TripSpatialEntries(@NonNull QuadTreeIndex<MapObject> index, @NonNull MapObject owner) {
+        this.index = index;
+        this.owner = owner;
+    }
+
+    void update(@NonNull TripGeometry geometry) {
+        if (geometry.passedRouteGeneration != passedRouteGeneration) {
+            remove(passedRouteChunkEntries);
+            passedRouteChunkCount = 0;
+            passedRouteGeneration = geometry.passedRouteGeneration;
+        }
+        for (; passedRouteChunkCount < geometry.passedRouteChunks.size(); passedRouteChunkCount++) {
+            add(geometry.passedRouteChunks.get(passedRouteChunkCount), passedRouteChunkEntries);
+        }
+        if (geometry.passedRouteTail != passedRouteTail) {
+            remove(passedRouteTailEntries);
+            add(geometry.passedRouteTail, passedRouteTailEntries);
+            passedRouteTail = geometry.passedRouteTail;
+        }
+        updateComingRoute(geometry);
+        if (!isEqual(geometry.origin, origin) || !isEqual(geometry.destination, destination)
+                || !isEqual(geometry.end, end)) {
+            remove(pointEntries);
+            add(geometry.origin, pointEntries);
+            add(geometry.destination, pointEntries);
+            add(geometry.end, pointEntries);
+            origin = geometry.origin;
+            destination = geometry.destination;
+            end = geometry.end;
+        }
+    }
+
+    private void updateComingRoute(TripGeometry geometry) {
+        List<LatLng> base = geometry.comingRouteBase;
+        if (base != comingRouteBase) {
+            removeComingRoute();
+            if (base.size() > 1) {
+                add(base, comingRouteEntries);
+            }
+            comingRouteBase = base;
+        }
+        int offset = geometry.comingRouteOffset;
+        // segment i connects base points i and i + 1, segments before the offset are passed
+        int cut = Math.min(offset, comingRouteEntries.size());
+        for (; comingRouteCut < cut; comingRouteCut++) {
+            index.remove(comingRouteEntries.get(comingRouteCut));
+            comingRouteEntries.set(comingRouteCut, null);
+        }
+        for (; comingRouteCut > cut; comingRouteCut--) {
+            int i = comingRouteCut - 1;
+            LatLng from = base.get(i);
+            LatLng to = base.get(i + 1);
+            comingRouteEntries.set(i, index.addSegment(owner, from.latitude, from.longitude, to.latitude, to.longitude));
+        }
+        if (comingRouteHeadEntry == null || offset != comingRouteOffset
+                || !isEqual(geometry.comingRoutePosition, comingRoutePosition)) {
+            if (comingRouteHeadEntry != null) {
+                index.remove(comingRouteHeadEntry);
+                comingRouteHeadEntry = null;
+            }
+            comingRouteHeadEntry = addHead(base, offset, geometry.comingRoutePosition);
+            comingRoutePosition = geometry.comingRoutePosition;
+            comingRouteOffset = offset;
+        }
+    }
+
+    /**
+     * @return entry of the segment from my position to the first base point ahead of it,
+     * or of the only point of a base without segments.
+     */
+    private QuadTreeIndex.Entry<MapObject> addHead(List<LatLng> base, int offset, LatLng position) {
+        if (position != null) {
+            if (offset < base.size()) {
+                LatLng to = base.get(offset);
+                return index.addSegment(owner, position.latitude, position.longitude, to.latitude, to.longitude);
+            }
+            return index.addPoint(owner, position.latitude, position.longitude);
+        }
+        if (base.size() == 1) {
+            return index.addPoint(owner, base.get(0).latitude, base.get(0).longitude);
+        }
+        return null;
+    }
+
+    private void removeComingRoute() {
+        for (QuadTreeIndex.Entry<MapObject> entry : comingRouteEntries) {
+            if (entry != null) {
+                index.remove(entry);
+            }
+        }
+        comingRouteEntries.clear();
+        comingRouteCut = 0;
+        if (comingRouteHeadEntry != null) {
+            index.remove(comingRouteHeadEntry);
+            comingRouteHeadEntry = null;
+        }
+        comingRoutePosition = null;
+        comingRouteOffset = 0;
+    }
+
+    void clear() {
+        remove(passedRouteChunkEntries);
+        remove(passedRouteTailEntries);
+        removeComingRoute();
+        remove(pointEntries);
+        passedRouteGeneration = 0;
+        passedRouteChunkCount = 0;
+        passedRouteTail = null;
+        comingRouteBase = null;
+        origin = null;
+        destination = null;
+        end = null;
+    }
+
+    private void add(List<LatLng> route, List<QuadTreeIndex.Entry<MapObject>> entries) {
+        if (route == null || route.isEmpty()) {
+            return;
+        }
+        int count = route.size();
+        if (latitudes.length < count) {
+            latitudes = new double[count];
+            longitudes = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            LatLng point = route.get(i);
+            latitudes[i] = point.latitude;
+            longitudes[i] = point.longitude;
+        }
+        index.addPolyline(owner, latitudes, longitudes, count, entries);
+    }
+
+    private void add(LatLng point, List<QuadTreeIndex.Entry<MapObject>> entries) {
+        if (point != null) {
+            entries.add(index.addPoint(owner, point.latitude, point.longitude));
+        }
+    }
+
+    private static boolean isEqual(LatLng a, LatLng b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private void remove(List<QuadTreeIndex.Entry<MapObject>> entries) {
+        for (QuadTreeIndex.Entry<MapObject> entry : entries) {
+            index.remove(entry);
+        }
+        entries.clear();
+    }
+}
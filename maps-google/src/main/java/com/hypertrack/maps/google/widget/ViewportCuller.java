@@ -0,0 +1,81 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLngBounds;
+
+/**
+ * Checks if objects intersect the visible region of the map extended by a margin.
+ * The region is updated on camera idle, until then every object is treated as visible.
+ */
+class ViewportCuller {
+    private final boolean isEnabled;
+    private final float margin;
+
+    private boolean hasViewport;
+    private boolean isWholeWorld;
+    private double south;
+    private double north;
+    private double west;
+    /**
+     * East edge, it's greater than 180 if the region crosses the antimeridian.
+     */
+    private double east;
+
+    /**
+     * @param margin margin from each side as a fraction of the visible region size.
+     */
+    ViewportCuller(boolean isEnabled, float margin) {
+        this.isEnabled = isEnabled;
+        this.margin = Math.max(0, margin);
+    }
+
+    void setViewport(LatLngBounds viewport) {
+        setViewport(viewport.southwest.latitude, viewport.southwest.longitude,
+                viewport.northeast.latitude, viewport.northeast.longitude);
+    }
+
+    void setViewport(double south, double west, double north, double east) {
+        double latitudeSpan = north - south;
+        double longitudeSpan = east - west;
+        if (longitudeSpan < 0) {
+            longitudeSpan += 360;
+        }
+        this.south = south - latitudeSpan * margin;
+        this.north = north + latitudeSpan * margin;
+        this.west = west - longitudeSpan * margin;
+        this.east = west + longitudeSpan * (1 + margin);
+        isWholeWorld = longitudeSpan * (1 + 2 * margin) >= 360;
+        hasViewport = true;
+    }
+
+    /**
+     * @param bounds bounds of an object, null bounds are always visible.
+     */
+    boolean isVisible(LatLngBounds bounds) {
+        if (bounds == null) {
+            return true;
+        }
+        return isVisible(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+    }
+
+    boolean isVisible(double south, double west, double north, double east) {
+        if (!isEnabled || !hasViewport) {
+            return true;
+        }
+        if (north < this.south || south > this.north) {
+            return false;
+        }
+        if (isWholeWorld) {
+            return true;
+        }
+        if (east < west) {
+            east += 360;
+        }
+        for (int shift = -360; shift <= 360; shift += 360) {
+            if (west + shift <= this.east && east + shift >= this.west) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
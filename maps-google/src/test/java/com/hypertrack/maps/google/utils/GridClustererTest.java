@@ -0,0 +1,113 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GridClustererTest {
+
+    @Test
+    public void groupsNearbyPointsIntoOneCell() {
+        GridClusterer clusterer = new GridClusterer(64);
+        int first = clusterer.add(37.7749, -122.4194);
+        int second = clusterer.add(37.7750, -122.4195);
+        int third = clusterer.add(40.7128, -74.0060);
+
+        assertEquals(2, clusterer.getClusterCount(3));
+        long cell = clusterer.getCell(first, 3);
+        assertEquals(cell, clusterer.getCell(second, 3));
+        assertEquals(2, clusterer.getCellCount(cell, 3));
+        assertEquals(GridClusterer.NO_ITEM, clusterer.getCellItem(cell, 3));
+        assertEquals(37.77495, clusterer.getCellLatitude(cell, 3), 1e-5);
+        assertEquals(-122.41945, clusterer.getCellLongitude(cell, 3), 1e-5);
+        assertEquals(third, clusterer.getCellItem(clusterer.getCell(third, 3), 3));
+
+        assertEquals(3, clusterer.getClusterCount(GridClusterer.MAX_ZOOM_LEVEL));
+    }
+
+    @Test
+    public void roundsCellSizeToPowerOfTwo() {
+        GridClusterer clusterer = new GridClusterer(300);
+        assertEquals(256, clusterer.getCellSize());
+        clusterer.add(37.7749, -122.4194);
+        clusterer.add(-33.8688, 151.2093);
+        assertEquals(1, clusterer.getClusterCount(0));
+        assertEquals(2, clusterer.getClusterCount(1));
+        assertEquals(32, new GridClusterer(40).getCellSize());
+    }
+
+    @Test
+    public void updatesCellsOnMoveAndRemove() {
+        GridClusterer clusterer = new GridClusterer(64);
+        int first = clusterer.add(37.7749, -122.4194);
+        int second = clusterer.add(37.7750, -122.4195);
+        long cell = clusterer.getCell(first, 10);
+
+        assertTrue(clusterer.move(second, 40.7128, -74.0060));
+        assertEquals(1, clusterer.getCellCount(cell, 10));
+        assertEquals(first, clusterer.getCellItem(cell, 10));
+        assertNotEquals(cell, clusterer.getCell(second, 10));
+        assertTrue(!clusterer.move(second, 40.7128, -74.0060));
+
+        clusterer.remove(first);
+        assertEquals(0, clusterer.getCellCount(cell, 10));
+        assertEquals(1, clusterer.getCount());
+        assertEquals(first, clusterer.add(37.7749, -122.4194));
+    }
+
+    @Test
+    public void keepsCountsOfAllZoomLevels() {
+        GridClusterer clusterer = new GridClusterer(64);
+        Random random = new Random(42);
+        int[] items = new int[1000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = clusterer.add(30 + random.nextDouble() * 20, -120 + random.nextDouble() * 40);
+        }
+        for (int i = 0; i < items.length; i += 2) {
+            clusterer.move(items[i], 30 + random.nextDouble() * 20, -120 + random.nextDouble() * 40);
+        }
+        for (int i = 0; i < items.length; i += 3) {
+            clusterer.remove(items[i]);
+        }
+
+        for (int zoom = 0; zoom <= GridClusterer.MAX_ZOOM_LEVEL; zoom++) {
+            final int[] total = new int[1];
+            clusterer.visitCells(zoom, new GridClusterer.CellVisitor() {
+                @Override
+                public void visit(long cell, int count, int item, double latitude, double longitude) {
+                    total[0] += count;
+                }
+            });
+            assertEquals(clusterer.getCount(), total[0]);
+        }
+    }
+
+    @Test
+    public void visitsOnlyCellsOnZoomChange() {
+        GridClusterer clusterer = new GridClusterer(64);
+        Random random = new Random(7);
+        int items = 10000;
+        for (int i = 0; i < items; i++) {
+            clusterer.add(37 + random.nextDouble(), -123 + random.nextDouble());
+        }
+
+        for (int zoom = 8; zoom <= 14; zoom++) {
+            final int[] visits = new int[2];
+            clusterer.visitCells(zoom, new GridClusterer.CellVisitor() {
+                @Override
+                public void visit(long cell, int count, int item, double latitude, double longitude) {
+                    visits[0]++;
+                    visits[1] += count;
+                }
+            });
+            assertEquals(clusterer.getClusterCount(zoom), visits[0]);
+            assertEquals(items, visits[1]);
+        }
+        // a degree of a fleet is a few cells of 64 pixels at zoom 8, points aren't visited
+        assertTrue(clusterer.getClusterCount(8) < items / 100);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void putsDurationsIntoPowerOfTwoBuckets() {
+        assertEquals(0, LatencyHistogram.getBucket(999));
+        assertEquals(1, LatencyHistogram.getBucket(1000));
+        assertEquals(1, LatencyHistogram.getBucket(1999));
+        assertEquals(2, LatencyHistogram.getBucket(2000));
+        assertEquals(11, LatencyHistogram.getBucket(1500000));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucket(Long.MAX_VALUE));
+        assertEquals(2048000, LatencyHistogram.getBucketUpperBound(11));
+    }
+
+    @Test
+    public void reportsPercentilesWithBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100000);
+        }
+        histogram.record(5000000);
+        histogram.record(20000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(20000000, histogram.getMaxNanos());
+        assertEquals((98 * 100000L + 25000000) / 100, histogram.getMeanNanos());
+        assertEquals(128000, histogram.getPercentileNanos(50));
+        assertEquals(8192000, histogram.getPercentileNanos(99));
+        assertEquals(20000000, histogram.getPercentileNanos(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+}
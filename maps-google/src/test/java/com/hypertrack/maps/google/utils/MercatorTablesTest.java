@@ -0,0 +1,64 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MercatorTablesTest {
+
+    @After
+    public void tearDown() {
+        TileSystem.setFastMathEnabled(false);
+    }
+
+    @Test
+    public void cosIsWithinErrorBound() {
+        double maxError = 0;
+        for (double latitude = -90; latitude <= 90; latitude += 0.001) {
+            maxError = Math.max(maxError, Math.abs(MercatorTables.cos(latitude) - Math.cos(Math.toRadians(latitude))));
+        }
+        assertTrue("error " + maxError, maxError < MercatorTables.COS_MAX_ERROR);
+    }
+
+    @Test
+    public void mercatorIsWithinErrorBound() {
+        double maxError = 0;
+        for (double latitude = -TileSystem.MaxLatitude; latitude <= TileSystem.MaxLatitude; latitude += 0.0007) {
+            double exact = Math.log(Math.tan(Math.PI / 4 + Math.toRadians(latitude) / 2));
+            maxError = Math.max(maxError, Math.abs(MercatorTables.mercator(latitude) - exact));
+        }
+        assertTrue("error " + maxError, maxError < MercatorTables.MERCATOR_MAX_ERROR);
+        assertEquals(Math.log(Math.tan(Math.PI / 4 + Math.toRadians(89.0) / 2)), MercatorTables.mercator(89), 0);
+    }
+
+    @Test
+    public void exp2IsWithinErrorBound() {
+        double maxError = 0;
+        for (double fraction = 0; fraction <= 1; fraction += 0.00001) {
+            double exact = Math.pow(2, fraction);
+            maxError = Math.max(maxError, Math.abs(MercatorTables.exp2(fraction) - exact) / exact);
+        }
+        assertTrue("error " + maxError, maxError < MercatorTables.EXP2_MAX_RELATIVE_ERROR);
+    }
+
+    @Test
+    public void tileSystemMatchesExactFunctions() {
+        for (double zoom = 0; zoom <= 21; zoom += 0.01) {
+            for (double latitude = -85; latitude <= 85; latitude += 0.37) {
+                TileSystem.setFastMathEnabled(false);
+                double mapSize = TileSystem.MapSize(zoom);
+                double groundResolution = TileSystem.GroundResolution(latitude, zoom);
+                double y = TileSystem.getY01FromLatitude(latitude);
+                double gudermannInverse = MyMath.gudermannInverse(latitude);
+
+                TileSystem.setFastMathEnabled(true);
+                assertEquals(mapSize, TileSystem.MapSize(zoom), mapSize * MercatorTables.EXP2_MAX_RELATIVE_ERROR);
+                assertEquals(groundResolution, TileSystem.GroundResolution(latitude, zoom), groundResolution * 2e-6);
+                assertEquals(y * mapSize, TileSystem.getY01FromLatitude(latitude) * mapSize, 0.01);
+                assertEquals(gudermannInverse, MyMath.gudermannInverse(latitude), MercatorTables.MERCATOR_MAX_ERROR);
+            }
+        }
+    }
+}
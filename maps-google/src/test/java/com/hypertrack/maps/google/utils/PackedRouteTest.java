@@ -0,0 +1,81 @@
+package com.hypertrack.maps.google.utils;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PackedRouteTest {
+
+    @Test
+    public void storesPointsWithE7Precision() {
+        PackedRoute route = new PackedRoute(1);
+        for (int i = 0; i < 100; i++) {
+            route.add(37.123456789 + i * 0.1, -122.987654321 - i * 0.1);
+        }
+
+        assertEquals(100, route.size());
+        assertEquals(37.1234568 + 9.9, route.getLatitude(99), 1e-9);
+        assertEquals(-122.9876543 - 9.9, route.getLongitude(99), 1e-9);
+        assertTrue(route.isSame(0, 37.12345679, -122.98765432));
+        assertFalse(route.isSame(0, 37.1234569, -122.9876543));
+
+        List<LatLng> list = route.asList();
+        assertEquals(100, list.size());
+        assertEquals(route.getLatitude(42), list.get(42).latitude, 0);
+        assertEquals(route.getLongitude(42), list.get(42).longitude, 0);
+
+        route.clear();
+        assertTrue(route.isEmpty());
+        assertEquals(0, list.size());
+    }
+
+    @Test
+    public void keepsBoundingBox() {
+        PackedRoute route = new PackedRoute();
+        assertTrue(route.getBounds().isEmpty());
+
+        route.add(37.5, -122.5);
+        route.add(37.7, -122.1);
+        route.add(37.6, -122.8);
+        RouteBounds bounds = route.getBounds();
+        assertFalse(bounds.isEmpty());
+        assertEquals(37.5, bounds.getMinLatitude(), 1e-7);
+        assertEquals(37.7, bounds.getMaxLatitude(), 1e-7);
+        assertEquals(-122.8, bounds.getMinLongitude(), 1e-7);
+        assertEquals(-122.1, bounds.getMaxLongitude(), 1e-7);
+
+        RouteBounds merged = new RouteBounds();
+        merged.include(38, -122.3);
+        merged.include(bounds);
+        assertEquals(37.5, merged.getMinLatitude(), 1e-7);
+        assertEquals(38, merged.getMaxLatitude(), 1e-7);
+        assertEquals(-122.8, merged.getMinLongitude(), 1e-7);
+
+        route.clear();
+        assertTrue(route.getBounds().isEmpty());
+        route.add(1, 2);
+        assertEquals(1, route.getBounds().getMaxLatitude(), 1e-7);
+        assertEquals(2, route.getBounds().getMinLongitude(), 1e-7);
+    }
+
+    @Test
+    public void takesEightBytesPerPoint() {
+        PackedRoute route = new PackedRoute(10000);
+        for (int i = 0; i < 10000; i++) {
+            route.add(37.7 + i * 1e-5, -122.4);
+        }
+        assertEquals(10000 * 8, route.getCapacityInBytes());
+
+        // the array doubles when it's full
+        route.add(37.8, -122.4);
+        assertEquals(20000 * 8, route.getCapacityInBytes());
+        route.clear();
+        assertEquals(20000 * 8, route.getCapacityInBytes());
+    }
+}
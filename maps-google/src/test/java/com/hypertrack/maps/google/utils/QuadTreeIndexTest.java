@@ -0,0 +1,146 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class QuadTreeIndexTest {
+
+    @Test
+    public void encodesQuadKeysAsLongs() {
+        long quadKey = TileSystem.getQuadKey(3, 5, 3);
+        assertEquals("213", TileSystem.QuadKeyToString(quadKey));
+        assertEquals(3, TileSystem.getQuadKeyTileX(quadKey));
+        assertEquals(5, TileSystem.getQuadKeyTileY(quadKey));
+        assertEquals(3, TileSystem.getQuadKeyZoomLevel(quadKey));
+
+        assertEquals("21", TileSystem.QuadKeyToString(TileSystem.getQuadKeyParent(quadKey)));
+        assertEquals("2130", TileSystem.QuadKeyToString(TileSystem.getQuadKeyChild(quadKey, 0)));
+        assertEquals(quadKey, TileSystem.getQuadKeyParent(TileSystem.getQuadKeyChild(quadKey, 3)));
+        assertEquals(TileSystem.getQuadKey(0, 5, 3), TileSystem.getQuadKeyNeighbor(TileSystem.getQuadKey(7, 5, 3), 1, 0));
+        assertEquals(TileSystem.NO_QUAD_KEY, TileSystem.getQuadKeyNeighbor(quadKey, 0, 3));
+
+        int max = (1 << TileSystem.primaryKeyMaxZoomLevel) - 1;
+        long deepest = TileSystem.getQuadKey(max, 12345, TileSystem.primaryKeyMaxZoomLevel);
+        assertEquals(max, TileSystem.getQuadKeyTileX(deepest));
+        assertEquals(12345, TileSystem.getQuadKeyTileY(deepest));
+        assertEquals(TileSystem.TileXYToQuadKey(max, 12345, TileSystem.primaryKeyMaxZoomLevel),
+                TileSystem.QuadKeyToString(deepest));
+    }
+
+    @Test
+    public void hasNoChildrenOfDeepestQuadKey() {
+        long deepest = TileSystem.getQuadKey(1, 2, TileSystem.primaryKeyMaxZoomLevel);
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            assertEquals(TileSystem.NO_QUAD_KEY, TileSystem.getQuadKeyChild(deepest, quadrant));
+        }
+        long parent = TileSystem.getQuadKey(1, 2, TileSystem.primaryKeyMaxZoomLevel - 1);
+        assertEquals(TileSystem.getQuadKey(3, 4, TileSystem.primaryKeyMaxZoomLevel),
+                TileSystem.getQuadKeyChild(parent, 1));
+    }
+
+    @Test
+    public void findsEntriesInBounds() {
+        QuadTreeIndex<String> index = new QuadTreeIndex<>();
+        index.addPoint("sf", 37.7749, -122.4194);
+        index.addSegment("route", 37.0, -123.0, 38.0, -121.0);
+        index.addPoint("ny", 40.7128, -74.0060);
+        QuadTreeIndex.Entry<String> fiji = index.addPoint("fiji", -17.7, 179.5);
+
+        assertEquals(set("sf", "route"), query(index, 37.5, -122.5, 38.0, -122.0));
+        assertEquals(set("route"), query(index, 37.6, -121.8, 37.7, -121.5));
+        assertEquals(set(), query(index, 37.0, -121.8, 37.1, -121.5));
+        assertEquals(set("fiji"), query(index, -20, 170, -10, -170));
+
+        index.remove(fiji);
+        assertEquals(set(), query(index, -20, 170, -10, -170));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void indexesPolylineSegments() {
+        QuadTreeIndex<String> index = new QuadTreeIndex<>();
+        List<QuadTreeIndex.Entry<String>> entries = new ArrayList<>();
+        index.addPolyline("route", new double[]{37.0, 37.5, 38.0}, new double[]{-123.0, -122.0, -121.0}, 3, entries);
+
+        assertEquals(2, entries.size());
+        assertEquals(set("route"), query(index, 37.2, -122.6, 37.3, -122.4));
+        assertEquals("route", index.nearest(37.75, -121.5));
+        for (QuadTreeIndex.Entry<String> entry : entries) {
+            index.remove(entry);
+        }
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        QuadTreeIndex<Integer> index = new QuadTreeIndex<>();
+        Random random = new Random(3);
+        List<double[]> segments = new ArrayList<>();
+        List<QuadTreeIndex.Entry<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            double latitude = 37 + random.nextDouble();
+            double longitude = -123 + random.nextDouble();
+            double[] segment = {latitude, longitude,
+                    latitude + random.nextDouble() * 0.01, longitude + random.nextDouble() * 0.01};
+            segments.add(segment);
+            entries.add(index.addSegment(i, segment[0], segment[1], segment[2], segment[3]));
+        }
+        for (int i = 0; i < 2000; i += 2) {
+            index.remove(entries.get(i));
+        }
+
+        for (int query = 0; query < 100; query++) {
+            double latitude = 37 + random.nextDouble();
+            double longitude = -123 + random.nextDouble();
+            double x = TileSystem.getX01FromLongitude(longitude);
+            double y = TileSystem.getY01FromLatitude(latitude);
+            int expected = -1;
+            double best = Double.MAX_VALUE;
+            for (int i = 1; i < segments.size(); i += 2) {
+                double distance = distance(segments.get(i), x, y);
+                if (distance < best) {
+                    best = distance;
+                    expected = i;
+                }
+            }
+            assertEquals(expected, (int) index.nearest(latitude, longitude));
+        }
+        assertNull(index.nearest(10, 10, 1e-6));
+
+        index.clear();
+        assertNull(index.nearest(37.5, -122.5));
+    }
+
+    private static double distance(double[] segment, double x, double y) {
+        double x1 = TileSystem.getX01FromLongitude(segment[1]);
+        double y1 = TileSystem.getY01FromLatitude(segment[0]);
+        double x2 = TileSystem.getX01FromLongitude(segment[3]);
+        double y2 = TileSystem.getY01FromLatitude(segment[2]);
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double fraction = Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy)));
+        return Math.hypot(x1 + fraction * dx - x, y1 + fraction * dy - y);
+    }
+
+    private static Set<String> query(QuadTreeIndex<String> index, double south, double west, double north, double east) {
+        Set<String> result = new HashSet<>();
+        index.query(south, west, north, east, result);
+        return result;
+    }
+
+    private static Set<String> set(String... values) {
+        Set<String> result = new HashSet<>();
+        for (String value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+}
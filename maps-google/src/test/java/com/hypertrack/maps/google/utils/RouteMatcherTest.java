@@ -0,0 +1,102 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RouteMatcherTest {
+
+    @Test
+    public void projectsLocationOntoSegment() {
+        RouteMatcher matcher = new RouteMatcher();
+        matcher.add(0, 0);
+        matcher.add(0, 0.01);
+        matcher.add(0.01, 0.01);
+
+        assertEquals(0, matcher.match(0.0001, 0.004));
+        assertEquals(0.4, matcher.getFraction(), 1e-6);
+        assertEquals(0, matcher.getLatitude(), 1e-9);
+        assertEquals(0.004, matcher.getLongitude(), 1e-9);
+        assertEquals(11.1, matcher.getDistance(), 0.1);
+
+        assertEquals(1, matcher.match(0.006, 0.0101));
+        assertEquals(0.6, matcher.getFraction(), 1e-6);
+    }
+
+    @Test
+    public void emptyAndSinglePointRoutes() {
+        RouteMatcher matcher = new RouteMatcher();
+        assertEquals(0, matcher.match(1, 1));
+
+        matcher.add(1, 1);
+        assertEquals(0, matcher.match(1.001, 1));
+        assertEquals(111.3, matcher.getDistance(), 0.1);
+    }
+
+    @Test
+    public void followsForwardProgressAndJumps() {
+        double[] route = randomRoute(5000, 1);
+        RouteMatcher matcher = new RouteMatcher();
+        for (int i = 0; i < route.length; i += 2) {
+            matcher.add(route[i], route[i + 1]);
+        }
+
+        for (int i = 0; i < 4999; i += 3) {
+            double latitude = (route[2 * i] + route[2 * i + 2]) / 2;
+            double longitude = (route[2 * i + 1] + route[2 * i + 3]) / 2;
+            assertEquals(i, matcher.match(latitude, longitude));
+            assertEquals(0, matcher.getDistance(), 1e-3);
+        }
+
+        matcher.setSnapDistance(0);
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            int segment = random.nextInt(4999);
+            double latitude = route[2 * segment] + 0.00001;
+            double longitude = route[2 * segment + 1];
+            matcher.match(latitude, longitude);
+            assertEquals(bruteForceDistance(route, latitude, longitude), matcher.getDistance(), 1e-6);
+        }
+        for (int i = 0; i < 1000; i++) {
+            double latitude = 37.77 + random.nextGaussian() * 0.05;
+            double longitude = -122.41 + random.nextGaussian() * 0.05;
+            matcher.match(latitude, longitude);
+            assertEquals(bruteForceDistance(route, latitude, longitude), matcher.getDistance(), 1e-6);
+        }
+    }
+
+    private static double[] randomRoute(int size, long seed) {
+        Random random = new Random(seed);
+        double[] route = new double[size * 2];
+        double latitude = 37.77;
+        double longitude = -122.41;
+        double bearing = 0;
+        for (int i = 0; i < size; i++) {
+            bearing += random.nextGaussian() * 0.1;
+            latitude += Math.cos(bearing) * 0.0001;
+            longitude += Math.sin(bearing) * 0.0001;
+            route[2 * i] = latitude;
+            route[2 * i + 1] = longitude;
+        }
+        return route;
+    }
+
+    private static double bruteForceDistance(double[] route, double latitude, double longitude) {
+        double metersPerDegree = 6378137 * Math.PI / 180;
+        double metersPerDegreeLongitude = metersPerDegree * Math.cos(Math.toRadians(route[0]));
+        double x = longitude * metersPerDegreeLongitude;
+        double y = latitude * metersPerDegree;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i + 3 < route.length; i += 2) {
+            double ax = route[i + 1] * metersPerDegreeLongitude;
+            double ay = route[i] * metersPerDegree;
+            double sx = route[i + 3] * metersPerDegreeLongitude - ax;
+            double sy = route[i + 2] * metersPerDegree - ay;
+            double t = Math.max(0, Math.min(1, ((x - ax) * sx + (y - ay) * sy) / (sx * sx + sy * sy)));
+            min = Math.min(min, Math.hypot(x - ax - t * sx, y - ay - t * sy));
+        }
+        return min;
+    }
+}
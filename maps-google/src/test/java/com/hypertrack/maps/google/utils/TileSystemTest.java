@@ -0,0 +1,70 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TileSystemTest {
+
+    @After
+    public void tearDown() {
+        TileSystem.setFastMathEnabled(false);
+    }
+
+    @Test
+    public void batchProjectionMatchesSinglePoints() {
+        int count = 1000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        Random random = new Random(11);
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+
+        for (boolean isFastMath : new boolean[]{false, true}) {
+            TileSystem.setFastMathEnabled(isFastMath);
+            double[] x01 = new double[count];
+            double[] y01 = new double[count];
+            TileSystem.getXY01FromLatLng(latitudes, longitudes, 0, count, x01, y01);
+            for (int i = 0; i < count; i++) {
+                assertEquals(TileSystem.getX01FromLongitude(longitudes[i]), x01[i], 0);
+                assertEquals(TileSystem.getY01FromLatitude(latitudes[i]), y01[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void batchProjectionRoundTrips() {
+        double[] latitudes = {0, 37.7749, -33.8688, 85, -85, 50};
+        double[] longitudes = {0, -122.4194, 151.2093, 179.99, -179.99, 10};
+        int count = latitudes.length;
+        double mapSize = 256 * Math.pow(2, 20);
+
+        long[] x = new long[count];
+        long[] y = new long[count];
+        TileSystem.getMercatorFromLatLng(latitudes, longitudes, 1, count - 1, mapSize, x, y);
+        assertEquals(0, x[0]);
+        assertEquals((long) (mapSize / 2), x[count - 1] - (long) (mapSize * 10 / 360));
+
+        double[] outLatitudes = new double[count];
+        double[] outLongitudes = new double[count];
+        TileSystem.getLatLngFromMercator(x, y, 1, count - 1, mapSize, outLatitudes, outLongitudes);
+        for (int i = 1; i < count; i++) {
+            assertEquals(latitudes[i], outLatitudes[i], 1e-5);
+            assertEquals(longitudes[i], outLongitudes[i], 1e-5);
+        }
+
+        double[] x01 = new double[count];
+        double[] y01 = new double[count];
+        TileSystem.getXY01FromLatLng(latitudes, longitudes, 0, count, x01, y01);
+        TileSystem.getLatLngFromXY01(x01, y01, 0, count, x01, y01);
+        for (int i = 0; i < count; i++) {
+            assertEquals(latitudes[i], x01[i], 1e-9);
+            assertEquals(longitudes[i], y01[i], 1e-9);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.hypertrack.maps.google.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TraceBufferTest {
+
+    @Test
+    public void recordsSpansUpToLevel() {
+        TraceBuffer trace = new TraceBuffer(16);
+        trace.begin(TraceBuffer.LEVEL_INFO, "off");
+        trace.end(TraceBuffer.LEVEL_INFO, "off");
+        assertEquals(0, trace.getCount());
+
+        trace.setLevel(TraceBuffer.LEVEL_INFO);
+        trace.begin(TraceBuffer.LEVEL_INFO, "addTrip", "trip \"1\"");
+        trace.begin(TraceBuffer.LEVEL_VERBOSE, "updateTrip", "trip \"1\"");
+        trace.end(TraceBuffer.LEVEL_VERBOSE, "updateTrip");
+        trace.end(TraceBuffer.LEVEL_INFO, "addTrip");
+        assertEquals(2, trace.getCount());
+
+        String json = trace.toChromeTrace();
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.contains("{\"name\":\"addTrip\",\"ph\":\"B\""));
+        assertTrue(json.contains("\"args\":{\"id\":\"trip \\\"1\\\"\"}"));
+        assertTrue(json.contains("{\"name\":\"addTrip\",\"ph\":\"E\""));
+        assertFalse(json.contains("updateTrip"));
+    }
+
+    @Test
+    public void keepsNewestEventsWhenFull() {
+        TraceBuffer trace = new TraceBuffer(4);
+        trace.setLevel(TraceBuffer.LEVEL_VERBOSE);
+        for (int i = 0; i < 3; i++) {
+            trace.begin(TraceBuffer.LEVEL_VERBOSE, "span" + i);
+            trace.end(TraceBuffer.LEVEL_VERBOSE, "span" + i);
+        }
+        assertEquals(4, trace.getCount());
+
+        String json = trace.toChromeTrace();
+        assertFalse(json.contains("span0"));
+        assertTrue(json.indexOf("span1") < json.indexOf("span2"));
+
+        trace.clear();
+        assertEquals("{\"traceEvents\":[\n],\"displayTimeUnit\":\"ms\"}", trace.toChromeTrace());
+    }
+}
@@ -0,0 +1,281 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PolylineOptions;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapter on top of {@link RecordingMapBackend} with geometry prepared in place, frames run by the test,
+ * and trips without the SDK.
+ */
+class AdapterFixture {
+    final RecordingMapBackend map = new RecordingMapBackend();
+    final ManualFrameScheduler frames = new ManualFrameScheduler();
+    final GoogleMapConfig config = newConfig();
+    final GoogleMapAdapter adapter;
+
+    AdapterFixture() {
+        adapter = newAdapter(config);
+    }
+
+    GoogleMapAdapter newAdapter(GoogleMapConfig config) {
+        return newAdapter(config, true);
+    }
+
+    GoogleMapAdapter newAdapter(GoogleMapConfig config, boolean isCameraIdleListenerAttached) {
+        return newAdapter(config, new DirectExecutorService(), new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        }, isCameraIdleListenerAttached);
+    }
+
+    /**
+     * @param worker executor that prepares trip geometry, e.g. a real thread.
+     * @param main   executor of commits of prepared geometry.
+     */
+    GoogleMapAdapter newAdapter(GoogleMapConfig config, ExecutorService worker, Executor main,
+                                boolean isCameraIdleListenerAttached) {
+        GoogleMapAdapter adapter = new GoogleMapAdapter(map, config, worker, main, frames);
+        if (isCameraIdleListenerAttached) {
+            adapter.attachCameraIdleListener();
+        }
+        return adapter;
+    }
+
+    static GoogleMapConfig newConfig() {
+        GoogleMapConfig config = new GoogleMapConfig();
+        config.locationMarker = new MarkerOptions();
+        config.deviceMarker = new MarkerOptions();
+        config.arrivePlaceCircle = new CircleOptions().fillColor(0x3300ff00).strokeColor(0xff00ff00);
+        config.arrivePlacePassedCircle = new CircleOptions().fillColor(0x330000ff).strokeColor(0xff0000ff);
+        config.tripOptions = newTripOptions(0xff00ff00);
+        config.tripCompletedOptions = newTripOptions(0xff888888);
+        config.maxZoomPreference = 18;
+        config.routeSimplificationTolerance = 1;
+        return config;
+    }
+
+    private static GoogleMapConfig.TripOptions newTripOptions(int color) {
+        return GoogleMapConfig.newTripOptions()
+                .tripOriginMarker(new MarkerOptions())
+                .tripDestinationMarker(new MarkerOptions())
+                .tripEndMarker(new MarkerOptions())
+                .tripPassedRoutePolyline(new PolylineOptions().color(color))
+                .tripComingRoutePolyline(new PolylineOptions().color(color));
+    }
+
+    /**
+     * @return locations of a trip heading north-east from San Francisco, about 15 meters apart.
+     */
+    static List<Location> locations(int count) {
+        List<Location> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            locations.add(new TestLocation(37.7749 + i * 1e-4, -122.4194 + (i % 7) * 1e-6));
+        }
+        return locations;
+    }
+
+    /**
+     * @return location of the device with 10 meters accuracy.
+     */
+    static android.location.Location deviceLocation(final double latitude, final double longitude, final float bearing) {
+        return new android.location.Location("test") {
+            @Override
+            public double getLatitude() {
+                return latitude;
+            }
+
+            @Override
+            public double getLongitude() {
+                return longitude;
+            }
+
+            @Override
+            public float getAccuracy() {
+                return 10;
+            }
+
+            @Override
+            public float getBearing() {
+                return bearing;
+            }
+        };
+    }
+
+    static Trip trip(String tripId, String status, List<Location> locations, Trip.Point2D destination) {
+        return new TestTrip(tripId, status, locations,
+                destination == null ? Collections.<Trip.Point2D>emptyList() : Collections.singletonList(destination),
+                destination);
+    }
+
+    static Trip trip(String tripId, String status, List<Location> locations, List<Trip.Point2D> estimate,
+                     Trip.Point2D destination) {
+        return new TestTrip(tripId, status, locations, estimate, destination);
+    }
+
+    static Trip.Point2D point(double latitude, double longitude) {
+        return new TestPoint(latitude, longitude);
+    }
+
+    private static final class TestTrip extends Trip {
+        private final String tripId;
+        private final String status;
+        private final Summary summary;
+        private final Estimate estimate;
+        private final Destination destination;
+
+        TestTrip(String tripId, String status, final List<Location> locations, final List<Point2D> estimatePoints,
+                 final Point2D destination) {
+            this.tripId = tripId;
+            this.status = status;
+            summary = new Summary() {
+                @Override
+                public List<Location> getLocations() {
+                    return locations;
+                }
+            };
+            final Route route = new Route() {
+                @Override
+                public List<Point2D> getPoints() {
+                    return estimatePoints;
+                }
+            };
+            estimate = new Estimate() {
+                @Override
+                public Route getRoute() {
+                    return route;
+                }
+            };
+            this.destination = destination == null ? null : new Destination() {
+                {
+                    radius = 30;
+                }
+
+                @Override
+                public Double getLatitude() {
+                    return destination.getLatitude();
+                }
+
+                @Override
+                public Double getLongitude() {
+                    return destination.getLongitude();
+                }
+            };
+        }
+
+        @Override
+        public String getTripId() {
+            return tripId;
+        }
+
+        @Override
+        public String getStatus() {
+            return status;
+        }
+
+        @Override
+        public Summary getSummary() {
+            return summary;
+        }
+
+        @Override
+        public Estimate getEstimate() {
+            return estimate;
+        }
+
+        @Override
+        public Destination getDestination() {
+            return destination;
+        }
+    }
+
+    private static final class TestPoint extends Trip.Point2D {
+        private final double latitude;
+        private final double longitude;
+
+        TestPoint(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    private static final class TestLocation extends Location {
+        private final double latitude;
+        private final double longitude;
+
+        TestLocation(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    /**
+     * Runs tasks in place, so geometry is committed before the adapter call returns.
+     */
+    private static final class DirectExecutorService extends AbstractExecutorService {
+        private boolean isShutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            isShutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            isShutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return isShutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return isShutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
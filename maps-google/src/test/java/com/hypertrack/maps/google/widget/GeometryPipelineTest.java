@@ -0,0 +1,173 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.hypertrack.maps.google.utils.PackedRoute;
+import com.hypertrack.maps.google.utils.RouteMatcher;
+import com.hypertrack.maps.google.utils.RouteSimplifier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class GeometryPipelineTest {
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final LinkedBlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Updates of a growing 20k points route leave only commits of prepared snapshots to the main thread.
+     */
+    @Test
+    public void preparesGeometryOffMainThread() throws InterruptedException {
+        final RouteStage stage = new RouteStage();
+        int updates = 50;
+        int pointsPerUpdate = 20;
+
+        GeometryPipeline<String, Integer, List<LatLng>> pipeline = new GeometryPipeline<>(worker, mainExecutor(), stage);
+        for (int i = 0; i < updates; i++) {
+            pipeline.submit("trip", 20000 + i * pointsPerUpdate);
+            assertEquals(0, stage.mainThreadPreparedCount);
+
+            Runnable commit = mainQueue.poll(10, TimeUnit.SECONDS);
+            assertNotNull(commit);
+            commit.run();
+            assertEquals(i + 1, stage.committedCount);
+        }
+
+        assertEquals(updates, pipeline.getCommittedCount());
+        assertEquals(updates, stage.preparedCount);
+        assertEquals(0, stage.mainThreadPreparedCount);
+        assertEquals(20000 + (updates - 1) * pointsPerUpdate, stage.committedSize);
+    }
+
+    @Test
+    public void dropsStaleSnapshots() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final RouteStage stage = new RouteStage();
+        GeometryPipeline<String, Integer, List<LatLng>> pipeline = new GeometryPipeline<>(worker, mainExecutor(), stage);
+
+        worker.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        for (int i = 1; i <= 10; i++) {
+            pipeline.submit("trip", i * 100);
+        }
+        pipeline.submit("other", 50);
+        latch.countDown();
+
+        for (int i = 0; i < 2; i++) {
+            Runnable commit = mainQueue.poll(10, TimeUnit.SECONDS);
+            assertNotNull(commit);
+            commit.run();
+        }
+        assertEquals(2, pipeline.getCommittedCount());
+        assertEquals(9, pipeline.getDroppedCount());
+        assertEquals(2, stage.preparedCount);
+
+        pipeline.submit("trip", 2000);
+        Runnable first = mainQueue.poll(10, TimeUnit.SECONDS);
+        pipeline.submit("trip", 3000);
+        Runnable second = mainQueue.poll(10, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+        first.run();
+        second.run();
+        assertEquals(3, pipeline.getCommittedCount());
+        assertEquals(10, pipeline.getDroppedCount());
+        assertEquals(3000, stage.committedSize);
+
+        pipeline.submit("trip", 4000);
+        pipeline.invalidate("trip");
+        Runnable invalidated = mainQueue.poll(200, TimeUnit.MILLISECONDS);
+        if (invalidated != null) {
+            invalidated.run();
+        }
+        assertEquals(3, pipeline.getCommittedCount());
+    }
+
+    private Executor mainExecutor() {
+        return new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mainQueue.add(runnable);
+            }
+        };
+    }
+
+    /**
+     * Rebuilds the route, its matcher and simplified polyline on every update, as the map used to do
+     * on the main thread.
+     */
+    private static class RouteStage implements GeometryPipeline.Stage<String, Integer, List<LatLng>> {
+        private final PackedRoute route = new PackedRoute();
+        private final RouteMatcher matcher = new RouteMatcher();
+        private final RouteSimplifier simplifier = new RouteSimplifier();
+        private final Thread mainThread = Thread.currentThread();
+        private volatile int preparedCount;
+        private volatile int mainThreadPreparedCount;
+        private int committedCount;
+        private int committedSize;
+
+        @Override
+        public List<LatLng> prepare(String key, Integer size) {
+            preparedCount++;
+            if (Thread.currentThread() == mainThread) {
+                mainThreadPreparedCount++;
+            }
+            route.clear();
+            matcher.reset();
+            simplifier.reset(1, 15);
+            for (int i = 0; i < size; i++) {
+                double latitude = 37.77 + i * 0.00005;
+                double longitude = -122.41 + Math.sin(i * 0.01) * 0.001;
+                route.add(latitude, longitude);
+                matcher.add(latitude, longitude);
+                simplifier.add(latitude, longitude);
+            }
+            matcher.match(route.getLatitude(size / 2), route.getLongitude(size / 2));
+
+            List<LatLng> points = new ArrayList<>(simplifier.getKeptCount() + size - simplifier.getPendingStart());
+            for (int i = 0; i < simplifier.getKeptCount(); i++) {
+                points.add(route.get(simplifier.getKeptIndex(i)));
+            }
+            for (int i = simplifier.getPendingStart(); i < size; i++) {
+                points.add(route.get(i));
+            }
+            // size is carried in the last point, latitude is clamped to 90 degrees
+            points.add(new LatLng(size / 1000.0, 0));
+            return Collections.unmodifiableList(points);
+        }
+
+        @Override
+        public void release(String key) {
+        }
+
+        @Override
+        public void commit(String key, List<LatLng> snapshot) {
+            committedCount++;
+            committedSize = (int) Math.round(snapshot.get(snapshot.size() - 1).latitude * 1000);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.hypertrack.maps.google.utils.TileSystem;
+import com.hypertrack.maps.google.utils.TraceBuffer;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+import com.hypertrack.sdk.views.maps.Predicate;
+import com.hypertrack.sdk.views.maps.models.HTLatLng;
+import com.hypertrack.sdk.views.maps.models.MapTrip;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.hypertrack.maps.google.widget.AdapterFixture.deviceLocation;
+import static com.hypertrack.maps.google.widget.AdapterFixture.locations;
+import static com.hypertrack.maps.google.widget.AdapterFixture.point;
+import static com.hypertrack.maps.google.widget.AdapterFixture.trip;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GoogleMapAdapterTest {
+    private static final LatLngBounds SAN_FRANCISCO = new LatLngBounds(new LatLng(37.6, -122.6), new LatLng(38, -122.2));
+    private static final LatLngBounds NEW_YORK = new LatLngBounds(new LatLng(40.5, -74.2), new LatLng(40.9, -73.8));
+
+    private final AdapterFixture fixture = new AdapterFixture();
+    private final RecordingMapBackend map = fixture.map;
+    private final GoogleMapAdapter adapter = fixture.adapter;
+    private final Trip.Point2D destination = point(37.9, -122.3);
+
+    @Test
+    public void addsMapObjectsOfTrip() {
+        adapter.addTrip(trip("trip", "active", locations(1000), destination));
+
+        assertEquals(2, map.getPolylines().size());
+        assertEquals(2, map.getMarkers().size());
+        assertEquals(1, map.getCircles().size());
+        assertEquals(5, map.getAddCount());
+        assertEquals(0, map.getRemoveCount());
+        // routes are simplified for the zoom level of the camera, 1000 locations shrink to a few kept points
+        assertTrue(map.getPointCount() < 100);
+    }
+
+    @Test
+    public void uploadsOnlyChangedRoutesOfLiveTrip() {
+        map.moveCamera(SAN_FRANCISCO, 16);
+        List<Location> locations = locations(1100);
+        MapTrip mapTrip = adapter.addTrip(trip("trip", "active", locations.subList(0, 1000), destination));
+        map.resetCounters();
+
+        for (int i = 1001; i <= 1100; i++) {
+            mapTrip.update(trip("trip", "active", locations.subList(0, i), destination));
+        }
+
+        assertEquals(0, map.getAddCount());
+        assertEquals(0, map.getRemoveCount());
+        assertEquals(100, map.getCallCount("Polyline.setPoints"));
+        // only the tail of the passed route is uploaded, frozen chunks and the coming route aren't sent again
+        assertTrue(map.getPointCount() < 100 * 300);
+    }
+
+    @Test
+    public void skipsCallsOfUnchangedUpdate() {
+        fixture.config.bearingMarker = new MarkerOptions();
+        fixture.config.accuracyCircle = new CircleOptions();
+        map.moveCamera(SAN_FRANCISCO, 14);
+        Trip trip = trip("trip", "active", locations(100), destination);
+        MapTrip mapTrip = adapter.addTrip(trip);
+        adapter.updateMyLocation(deviceLocation(37.78, -122.42, 90));
+        mapTrip.update(trip);
+        map.resetCounters();
+
+        adapter.updateMyLocation(deviceLocation(37.78, -122.42, 90));
+        assertEquals(0, map.getAddCount());
+        assertEquals(0, map.getSetCount());
+        assertEquals(0, map.getRemoveCount());
+
+        // only marker positions and visibility are applied again, the app may have changed them
+        mapTrip.update(trip);
+        assertEquals(0, map.getAddCount());
+        assertEquals(0, map.getRemoveCount());
+        assertEquals(0, map.getCallCount("Polyline.setPoints"));
+        assertEquals(0, map.getCallCount("Polyline.setColor"));
+        assertEquals(0, map.getCallCount("Circle.setCenter"));
+        assertEquals(0, map.getCallCount("Marker.setIcon"));
+        assertEquals(2, map.getCallCount("Marker.setPosition"));
+        map.resetCounters();
+
+        adapter.updateMyLocation(deviceLocation(37.78, -122.42, 0));
+        assertEquals(1, map.getCallCount("Marker.setVisible"));
+        assertEquals(1, map.getCallCount("Marker.setRotation"));
+        assertEquals(0, map.getCallCount("Marker.setPosition"));
+        assertEquals(0, map.getCallCount("Circle.setCenter"));
+    }
+
+    @Test
+    public void correctsTripMarkersChangedByApp() {
+        Trip trip = trip("trip", "active", locations(100), destination);
+        MapTrip mapTrip = adapter.addTrip(trip);
+        assertEquals(2, map.getMarkers().size());
+
+        // the app moves and hides the markers behind the adapter
+        List<LatLng> positions = new ArrayList<>();
+        for (RecordingMapBackend.RecordedMarker marker : map.getMarkers()) {
+            positions.add(marker.position);
+            marker.position = new LatLng(0, 0);
+            marker.isVisible = false;
+        }
+        map.resetCounters();
+        mapTrip.update(trip);
+
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(positions.get(i), map.getMarkers().get(i).position);
+        }
+        // visibility of the origin marker is set by the adapter
+        assertEquals(1, map.getCallCount("Marker.setVisible"));
+    }
+
+    @Test
+    public void dropsFixesOfStillDevice() {
+        fixture.config.isLocationFilterEnabled = true;
+        GoogleMapAdapter adapter = fixture.newAdapter(fixture.config);
+        adapter.addTrip(trip("trip", "active", locations(100), destination));
+        AdapterMetrics metrics = adapter.getMetrics();
+        long tripUpdates = metrics.getTripUpdateCount();
+
+        for (int i = 0; i < 10; i++) {
+            adapter.updateMyLocation(deviceLocation(37.78, -122.42, 90));
+        }
+        assertEquals(tripUpdates + 1, metrics.getTripUpdateCount());
+        assertEquals(9, metrics.getIntervalRejectedLocationCount());
+
+        // the last shown fix is shown again
+        int markers = map.getMarkers().size();
+        adapter.setMyLocationEnabled(false);
+        assertEquals(markers - 1, map.getMarkers().size());
+        adapter.setMyLocationEnabled(true);
+        assertEquals(markers, map.getMarkers().size());
+    }
+
+    @Test
+    public void appliesDeviceLocationsOncePerFrame() {
+        for (int update = 0; update < 5; update++) {
+            for (int i = 0; i < 200; i++) {
+                adapter.updateDeviceLocation("device" + i, deviceLocation(37.7 + i * 1e-3, -122.4 + update * 1e-4, 90));
+            }
+        }
+        assertTrue(map.getMarkers().isEmpty());
+        assertEquals(1, fixture.frames.getCallbackCount());
+
+        fixture.frames.runFrame();
+        // the last location of every device is applied when its marker is added
+        assertEquals(200, map.getMarkers().size());
+        assertEquals(200, map.getAddCount());
+        assertEquals(0, map.getSetCount());
+        assertEquals("device7", adapter.getDeviceLocation("device7").getDeviceId());
+
+        map.resetCounters();
+        for (int i = 0; i < 200; i++) {
+            adapter.updateDeviceLocation("device" + i, deviceLocation(37.7 + i * 1e-3, -122.3, 90));
+        }
+        fixture.frames.runFrame();
+        assertEquals(200, map.getCallCount("Marker.setPosition"));
+        assertEquals(0, map.getCallCount("Marker.setRotation"));
+
+        adapter.updateDeviceLocation("device0", deviceLocation(37.7, -122.2, 90));
+        adapter.removeDeviceLocation("device0");
+        fixture.frames.runFrame();
+        assertEquals(199, map.getMarkers().size());
+        assertNull(adapter.getDeviceLocation("device0"));
+        assertEquals(0, fixture.frames.getCallbackCount());
+    }
+
+    @Test
+    public void spreadsTripMutationsOverFrames() {
+        fixture.config.mutationFrameBudget = 1;
+        GoogleMapAdapter adapter = fixture.newAdapter(fixture.config);
+        map.moveCamera(SAN_FRANCISCO, 12);
+        List<Trip> trips = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            trips.add(trip("trip" + i, "active", locations(100), destination));
+        }
+        List<MapTrip> mapTrips = adapter.addTrips(trips);
+        AdapterMetrics metrics = adapter.getMetrics();
+        assertTrue(map.getPolylines().isEmpty());
+        assertEquals(10, metrics.getMutationQueueDepth());
+
+        mapTrips.get(3).update(trips.get(3));
+        assertEquals(10, metrics.getMutationQueueDepth());
+        assertEquals(1, metrics.getMergedMutationCount());
+
+        fixture.frames.runFrame();
+        assertTrue(map.getPolylines().size() > 0);
+        assertTrue(map.getPolylines().size() < 20);
+
+        while (fixture.frames.getCallbackCount() > 0) {
+            fixture.frames.runFrame();
+        }
+        assertEquals(20, map.getPolylines().size());
+        assertEquals(10, map.getCircles().size());
+        assertEquals(0, metrics.getMutationQueueDepth());
+        assertEquals(10, metrics.getMaxMutationQueueDepth());
+
+        mapTrips.get(0).update(trips.get(0));
+        mapTrips.get(0).remove();
+        assertEquals(0, metrics.getMutationQueueDepth());
+        assertEquals(18, map.getPolylines().size());
+    }
+
+    @Test
+    public void releasesMapObjectsOutsideOfViewport() {
+        fixture.config.isViewportCullingEnabled = true;
+        GoogleMapAdapter adapter = fixture.newAdapter(fixture.config);
+        map.moveCamera(SAN_FRANCISCO, 12);
+        adapter.addTrip(trip("trip", "active", locations(100), destination));
+        int added = map.getAddCount();
+
+        map.moveCamera(NEW_YORK, 12);
+        assertTrue(map.getMarkers().isEmpty());
+        assertTrue(map.getPolylines().isEmpty());
+        assertTrue(map.getCircles().isEmpty());
+        assertEquals(added, map.getRemoveCount());
+
+        map.moveCamera(SAN_FRANCISCO, 12);
+        assertEquals(2, map.getPolylines().size());
+        assertEquals(2, map.getMarkers().size());
+    }
+
+    @Test
+    public void keepsCameraIdleListenerOfApp() {
+        fixture.config.isViewportCullingEnabled = true;
+        final List<GoogleMapAdapter> adapters = new ArrayList<>();
+        final int[] idleCount = new int[1];
+        map.setOnCameraIdleListener(new GoogleMap.OnCameraIdleListener() {
+            @Override
+            public void onCameraIdle() {
+                idleCount[0]++;
+                for (GoogleMapAdapter adapter : adapters) {
+                    adapter.onCameraIdle();
+                }
+            }
+        });
+        GoogleMapAdapter adapter = fixture.newAdapter(fixture.config, false);
+        adapter.addTrip(trip("trip", "active", locations(100), destination));
+
+        map.moveCamera(NEW_YORK, 12);
+        assertEquals(1, idleCount[0]);
+        assertEquals(2, map.getMarkers().size());
+
+        // the app forwards camera idle events to the adapter
+        adapters.add(adapter);
+        map.moveCamera(NEW_YORK, 13);
+        assertEquals(2, idleCount[0]);
+        assertTrue(map.getMarkers().isEmpty());
+    }
+
+    @Test
+    public void createsMarkersWhenGeometryOfAddedTripIsCommitted() throws InterruptedException {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        final LinkedBlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+        try {
+            GoogleMapAdapter adapter = fixture.newAdapter(fixture.config, worker, new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    mainQueue.add(runnable);
+                }
+            }, true);
+            GoogleMapAdapter.GMapTrip mapTrip = (GoogleMapAdapter.GMapTrip)
+                    adapter.addTrip(trip("trip", "completed", locations(100), destination));
+            assertNull(mapTrip.originMarker);
+            assertNull(mapTrip.getOriginMarker());
+            assertTrue(map.getMarkers().isEmpty());
+
+            Runnable commit = mainQueue.poll(10, TimeUnit.SECONDS);
+            assertNotNull(commit);
+            commit.run();
+            assertNotNull(mapTrip.originMarker);
+            assertNotNull(mapTrip.destinationMarker);
+            assertNotNull(mapTrip.endMarker);
+            assertEquals(3, map.getMarkers().size());
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    public void movesCameraToTripHiddenBeforeItsGeometryIsReady() {
+        adapter.addTripFilter(new Predicate<Trip>() {
+            @Override
+            public boolean apply(Trip trip) {
+                return false;
+            }
+        });
+        Trip trip = trip("trip", "active", locations(100), destination);
+        adapter.addTrip(trip);
+        long cameraAnimations = adapter.getMetrics().getCameraAnimationCount();
+
+        adapter.moveToTrip(trip);
+        assertEquals(cameraAnimations + 1, adapter.getMetrics().getCameraAnimationCount());
+    }
+
+    @Test
+    public void removesMapObjectsOfRemovedTrip() {
+        MapTrip mapTrip = adapter.addTrip(trip("trip", "completed", locations(100), destination));
+        assertEquals(3, map.getMarkers().size());
+
+        mapTrip.remove();
+        assertTrue(map.getMarkers().isEmpty());
+        assertTrue(map.getPolylines().isEmpty());
+        assertEquals(map.getAddCount(), map.getRemoveCount());
+
+        // removed trips aren't kept, the same id is added as a new trip
+        MapTrip added = adapter.addTrip(trip("trip", "completed", locations(100), destination));
+        assertNotSame(mapTrip, added);
+        assertEquals(3, map.getMarkers().size());
+    }
+
+    @Test
+    public void countsMapCallsOfTripUpdates() {
+        map.moveCamera(SAN_FRANCISCO, 16);
+        List<Location> locations = locations(200);
+        MapTrip mapTrip = adapter.addTrip(trip("trip", "active", locations.subList(0, 100), destination));
+        for (int i = 101; i <= 200; i++) {
+            mapTrip.update(trip("trip", "active", locations.subList(0, i), destination));
+        }
+
+        AdapterMetrics metrics = adapter.getMetrics();
+        assertEquals(101, metrics.getTripUpdateCount());
+        assertEquals(map.getCallCount("Polyline.setPoints"), metrics.getSetPointsCount());
+        assertEquals(map.getPointCount(), metrics.getUploadedPointCount());
+        assertEquals(map.getCallCount("Map.addMarker") + map.getCallCount("Marker.setPosition")
+                + map.getCallCount("Marker.setVisible"), metrics.getMarkerMutationCount());
+        assertEquals(map.getCallCount("Map.addCircle") + map.getCallCount("Circle.setCenter")
+                + map.getCallCount("Circle.setRadius") + map.getCallCount("Circle.setFillColor")
+                + map.getCallCount("Circle.setStrokeColor") + map.getCallCount("Circle.setStrokeWidth"),
+                metrics.getCircleMutationCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getTripUpdateCount());
+        assertEquals(0, metrics.getUploadedPointCount());
+    }
+
+    @Test
+    public void measuresLatenciesOnlyWithListener() {
+        final List<Integer> operations = new ArrayList<>();
+        AdapterMetrics metrics = adapter.getMetrics();
+        adapter.addTrip(trip("first", "active", locations(100), destination));
+        assertEquals(0, metrics.getLatency(AdapterMetrics.OPERATION_ADD_TRIP).getCount());
+
+        adapter.setMetricsListener(new AdapterMetrics.Listener() {
+            @Override
+            public void onOperation(AdapterMetrics metrics, int operation, long durationNanos) {
+                operations.add(operation);
+            }
+        });
+        adapter.addTrip(trip("second", "active", locations(100), destination));
+        adapter.notifyDataSetChanged();
+
+        assertEquals(1, metrics.getLatency(AdapterMetrics.OPERATION_ADD_TRIP).getCount());
+        assertEquals(1, metrics.getLatency(AdapterMetrics.OPERATION_REMAP_TRIPS).getCount());
+        assertTrue(metrics.getLatency(AdapterMetrics.OPERATION_UPDATE_TO_MUTATION).getCount() >= 3);
+        assertTrue(operations.contains(AdapterMetrics.OPERATION_ADD_TRIP));
+        assertFalse(operations.contains(AdapterMetrics.OPERATION_UPDATE_MY_LOCATION));
+    }
+
+    @Test
+    public void tracesTripUpdatesOnlyWhenEnabled() {
+        adapter.addTrip(trip("first", "active", locations(100), destination));
+        assertEquals(0, adapter.getTrace().getCount());
+
+        adapter.getTrace().setLevel(TraceBuffer.LEVEL_VERBOSE);
+        adapter.addTrip(trip("second", "active", locations(100), destination));
+        adapter.notifyDataSetChanged();
+
+        String json = adapter.getTrace().toChromeTrace();
+        assertTrue(json.contains("{\"name\":\"addTrip\",\"ph\":\"B\""));
+        assertTrue(json.contains("{\"name\":\"applyTripGeometry\",\"ph\":\"E\""));
+        assertTrue(json.contains("\"args\":{\"id\":\"second\"}"));
+        assertTrue(json.contains("remapTrip"));
+    }
+
+    @Test
+    public void appliesFastProjectionMathOfConfigWhenAdapterIsCreated() {
+        GoogleMapConfig config = AdapterFixture.newConfig();
+        config.isFastProjectionMathEnabled = true;
+        try {
+            assertFalse(TileSystem.isFastMathEnabled());
+            fixture.newAdapter(config);
+            assertTrue(TileSystem.isFastMathEnabled());
+
+            // configs without the setting leave it as it is
+            fixture.newAdapter(AdapterFixture.newConfig());
+            assertTrue(TileSystem.isFastMathEnabled());
+        } finally {
+            TileSystem.setFastMathEnabled(false);
+        }
+    }
+
+    @Test
+    public void countsCancelledCameraAnimations() {
+        adapter.moveToLocation(new HTLatLng(37.7749, -122.4194));
+        adapter.moveToLocation(new HTLatLng(37.8, -122.4));
+        map.finishCameraAnimation();
+        adapter.moveToLocation(new HTLatLng(37.7749, -122.4194));
+        map.moveCamera(SAN_FRANCISCO, 12);
+
+        assertEquals(3, adapter.getMetrics().getCameraAnimationCount());
+        assertEquals(2, adapter.getMetrics().getCancelledCameraAnimationCount());
+    }
+}
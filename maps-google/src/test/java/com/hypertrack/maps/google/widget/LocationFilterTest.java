@@ -0,0 +1,93 @@
+package com.hypertrack.maps.google.widget;
+
+import android.location.Location;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationFilterTest {
+    private static final double METER = 1 / 111320.0;
+
+    private final AdapterMetrics metrics = new AdapterMetrics();
+    private final LocationFilter filter = new LocationFilter(metrics, 2, 5, 10, 200, 3000);
+
+    @Test
+    public void dropsFixesWithinDeadBand() {
+        assertTrue(filter.accept(fix(37.7749, 10, 90, 0, -1)));
+        // moved less than its accuracy
+        assertFalse(filter.accept(fix(37.7749 + 8 * METER, 10, 95, 5000, -1)));
+        // turned
+        assertTrue(filter.accept(fix(37.7749 + 8 * METER, 10, 120, 10000, -1)));
+        // lost accuracy
+        assertTrue(filter.accept(fix(37.7749 + 8 * METER, 30, 120, 15000, -1)));
+        // moved more than its accuracy
+        assertTrue(filter.accept(fix(37.7749 + 50 * METER, 30, 120, 20000, -1)));
+
+        assertEquals(1, metrics.getDeadBandRejectedLocationCount());
+        assertEquals(0, metrics.getIntervalRejectedLocationCount());
+    }
+
+    @Test
+    public void adaptsIntervalToSpeed() {
+        assertEquals(3000, filter.getInterval(0));
+        assertEquals(2000, filter.getInterval(1));
+        assertEquals(200, filter.getInterval(20));
+
+        assertTrue(filter.accept(fix(37.7749, 5, 0, 0, 20)));
+        assertFalse(filter.accept(fix(37.7749 + 2 * METER, 5, 0, 100, 20)));
+        assertTrue(filter.accept(fix(37.7749 + 6 * METER, 5, 0, 300, 20)));
+
+        // without speed of the fix a still device is sampled at the max interval
+        filter.reset();
+        assertTrue(filter.accept(fix(37.7749, 5, 0, 0, -1)));
+        assertFalse(filter.accept(fix(37.7749, 5, 90, 1000, -1)));
+        assertTrue(filter.accept(fix(37.7749, 5, 90, 3000, -1)));
+        assertEquals(2, metrics.getIntervalRejectedLocationCount());
+    }
+
+    /**
+     * @param speed speed in meters per second, negative if the fix has no speed.
+     */
+    private static Location fix(final double latitude, final float accuracy, final float bearing,
+                                final long time, final float speed) {
+        return new Location("test") {
+            @Override
+            public double getLatitude() {
+                return latitude;
+            }
+
+            @Override
+            public double getLongitude() {
+                return -122.4194;
+            }
+
+            @Override
+            public float getAccuracy() {
+                return accuracy;
+            }
+
+            @Override
+            public float getBearing() {
+                return bearing;
+            }
+
+            @Override
+            public long getTime() {
+                return time;
+            }
+
+            @Override
+            public boolean hasSpeed() {
+                return speed >= 0;
+            }
+
+            @Override
+            public float getSpeed() {
+                return speed;
+            }
+        };
+    }
+}
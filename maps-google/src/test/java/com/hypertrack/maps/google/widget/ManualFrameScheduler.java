@@ -0,0 +1,51 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FrameScheduler} whose frames are run by the test.
+ */
+class ManualFrameScheduler implements FrameScheduler {
+    private final List<Choreographer.FrameCallback> callbacks = new ArrayList<>();
+    private long frameTimeNanos;
+
+    @Override
+    public void postFrameCallback(@NonNull Choreographer.FrameCallback callback) {
+        callbacks.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(@NonNull Choreographer.FrameCallback callback) {
+        while (callbacks.remove(callback)) {
+        }
+    }
+
+    int getCallbackCount() {
+        return callbacks.size();
+    }
+
+    /**
+     * Runs callbacks posted before the frame, callbacks posted by them run in the next frame.
+     *
+     * @param intervalNanos time since the previous frame.
+     */
+    void runFrame(long intervalNanos) {
+        frameTimeNanos += intervalNanos;
+        List<Choreographer.FrameCallback> frame = new ArrayList<>(callbacks);
+        callbacks.clear();
+        for (Choreographer.FrameCallback callback : frame) {
+            callback.doFrame(frameTimeNanos);
+        }
+    }
+
+    /**
+     * Runs a frame 16 ms after the previous one.
+     */
+    void runFrame() {
+        runFrame(16000000);
+    }
+}
@@ -0,0 +1,112 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class MarkerAnimatorTest {
+    private final RecordingMapBackend map = new RecordingMapBackend();
+    private final ManualFrameScheduler frames = new ManualFrameScheduler();
+    private final ViewportCuller culler = new ViewportCuller(true, 0);
+    private final MarkerAnimator animator = new MarkerAnimator(frames, culler, 1000);
+
+    @Test
+    public void interpolatesPositionAndBearingTheShortestWay() {
+        LatLng position = new LatLng(0, 179);
+        RecordingMapBackend.RecordedMarker marker = addMarker(position, 350);
+
+        animator.animate(marker, position, 350, new LatLng(10, -179), 10);
+        frames.runFrame(0);
+        assertEquals(179, marker.position.longitude, 1e-9);
+
+        frames.runFrame(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(5, marker.position.latitude, 1e-6);
+        assertEquals(180, Math.abs(marker.position.longitude), 1e-6);
+        assertEquals(0, marker.rotation % 360, 1e-3);
+
+        frames.runFrame(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(10, marker.position.latitude, 1e-9);
+        assertEquals(-179, marker.position.longitude, 1e-9);
+        assertEquals(10, marker.rotation, 1e-3);
+        assertEquals(0, animator.getCount());
+        assertEquals(0, frames.getCallbackCount());
+    }
+
+    @Test
+    public void continuesFromCurrentPositionToNewTarget() {
+        LatLng position = new LatLng(0, 0);
+        RecordingMapBackend.RecordedMarker marker = addMarker(position, 0);
+
+        animator.animate(marker, position, 0, new LatLng(0, 1), 0);
+        frames.runFrame(0);
+        frames.runFrame(TimeUnit.MILLISECONDS.toNanos(500));
+        animator.animate(marker, marker.position, 0, new LatLng(0, 2), 0);
+        frames.runFrame(0);
+        assertEquals(0.5, marker.position.longitude, 1e-6);
+
+        frames.runFrame(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1.25, marker.position.longitude, 1e-6);
+    }
+
+    @Test
+    public void movesMarkersOutsideOfViewportOnlyToTarget() {
+        culler.setViewport(37.6, -122.6, 38, -122.2);
+        LatLng position = new LatLng(40.7, -74);
+        RecordingMapBackend.RecordedMarker marker = addMarker(position, 0);
+        map.resetCounters();
+
+        animator.animate(marker, position, 0, new LatLng(40.8, -74), 0);
+        for (int i = 0; i < 59; i++) {
+            frames.runFrame();
+        }
+        assertEquals(0, map.getCallCount("Marker.setPosition"));
+
+        while (animator.getCount() > 0) {
+            frames.runFrame();
+        }
+        assertEquals(1, map.getCallCount("Marker.setPosition"));
+        assertEquals(40.8, marker.position.latitude, 1e-9);
+    }
+
+    /**
+     * A frame of hundreds of moving devices makes calls only for markers in the viewport.
+     */
+    @Test
+    public void makesCallsOnlyForVisibleMarkersPerFrame() {
+        culler.setViewport(37.6, -122.6, 38, -122.2);
+        int count = 500;
+        List<RecordingMapBackend.RecordedMarker> markers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // every other marker is in New York
+            markers.add(addMarker(new LatLng(37.7 + i * 1e-4, i % 2 == 0 ? -122.4 : -74), 0));
+        }
+
+        for (int update = 0; update < 3; update++) {
+            for (int i = 0; i < count; i++) {
+                RecordingMapBackend.RecordedMarker marker = markers.get(i);
+                animator.animate(marker, marker.position, marker.rotation,
+                        new LatLng(37.7 + i * 1e-4, marker.position.longitude + 1e-4), (update + 1) * 10);
+            }
+            // a second of 16 ms frames, markers in New York are moved only in the last one
+            for (int frame = 0; frame < 64; frame++) {
+                map.resetCounters();
+                frames.runFrame();
+                int expected = frame < 63 ? count / 2 : count;
+                assertEquals(expected, map.getCallCount("Marker.setPosition"));
+                assertEquals(expected, map.getCallCount("Marker.setRotation"));
+            }
+            assertEquals(0, animator.getCount());
+        }
+    }
+
+    private RecordingMapBackend.RecordedMarker addMarker(LatLng position, float rotation) {
+        return (RecordingMapBackend.RecordedMarker) map.addMarker(new MarkerOptions().position(position).rotation(rotation));
+    }
+}
@@ -0,0 +1,111 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MutationSchedulerTest {
+    private final ManualFrameScheduler frames = new ManualFrameScheduler();
+    private final AdapterMetrics metrics = new AdapterMetrics();
+    private final Map<String, Integer> priorities = new HashMap<>();
+    private final List<String> applied = new ArrayList<>();
+
+    @Test
+    public void runsTrackedAndVisibleMutationsFirst() {
+        MutationScheduler scheduler = newScheduler(0);
+        priorities.put("tracked", MutationScheduler.PRIORITY_TRACKED);
+        priorities.put("visible", MutationScheduler.PRIORITY_VISIBLE);
+
+        scheduler.schedule("background", mutation("background"));
+        scheduler.schedule("visible", mutation("visible"));
+        scheduler.schedule("other", mutation("other"));
+        scheduler.schedule("tracked", mutation("tracked"));
+        assertEquals(1, frames.getCallbackCount());
+
+        // a budget of zero lets one mutation per frame run
+        frames.runFrame();
+        assertEquals(1, applied.size());
+        while (frames.getCallbackCount() > 0) {
+            frames.runFrame();
+        }
+        assertEquals("[tracked, visible, background, other]", applied.toString());
+        assertEquals(4, metrics.getMaxMutationQueueDepth());
+        assertEquals(0, metrics.getMutationQueueDepth());
+    }
+
+    @Test
+    public void mergesMutationsOfSameObject() {
+        MutationScheduler scheduler = newScheduler(4000);
+        scheduler.schedule("first", mutation("first"));
+        scheduler.schedule("second", mutation("second"));
+        scheduler.schedule("first", mutation("first again"));
+        assertEquals(2, scheduler.size());
+
+        // the object got into the visible region, its mutation moves ahead
+        priorities.put("second", MutationScheduler.PRIORITY_VISIBLE);
+        scheduler.schedule("second", mutation("second again"));
+        scheduler.cancel("first");
+        assertEquals(1, scheduler.size());
+        assertEquals(2, metrics.getMergedMutationCount());
+
+        frames.runFrame();
+        assertEquals("[second again]", applied.toString());
+        assertEquals(0, frames.getCallbackCount());
+    }
+
+    @Test
+    public void countsFramesOverBudget() {
+        MutationScheduler scheduler = newScheduler(10000);
+        for (int i = 0; i < 100; i++) {
+            scheduler.schedule("cheap" + i, mutation("cheap"));
+        }
+        frames.runFrame();
+        assertEquals(100, applied.size());
+        assertEquals(0, metrics.getFrameBudgetOverrunCount());
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.schedule("slow" + i, new Runnable() {
+                @Override
+                public void run() {
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(15);
+                    while (System.nanoTime() < end) {
+                    }
+                }
+            });
+        }
+        frames.runFrame();
+        assertEquals(2, scheduler.size());
+        while (frames.getCallbackCount() > 0) {
+            frames.runFrame();
+        }
+        assertEquals(3, metrics.getFrameBudgetOverrunCount());
+    }
+
+    private MutationScheduler newScheduler(long budget) {
+        return new MutationScheduler(frames, new MutationScheduler.Priorities() {
+            @Override
+            public int getPriority(@NonNull String key) {
+                Integer priority = priorities.get(key);
+                return priority == null ? MutationScheduler.PRIORITY_BACKGROUND : priority;
+            }
+        }, metrics, budget);
+    }
+
+    private Runnable mutation(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                applied.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,409 @@
+package com.hypertrack.maps.google.widget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.CircleOptions;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.PatternItem;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory {@link MapBackend} without a renderer. It keeps the state of every object and counts calls
+ * by kind (add, set, remove, camera) and by name, e.g. "Polyline.setPoints", and points sent in polylines.
+ * <p>
+ * It lets adapter scenarios run as plain JVM tests and measure how many map mutations an update causes.
+ * Like the map, it must be used from one thread.
+ */
+class RecordingMapBackend implements MapBackend {
+    private static final float MAX_ZOOM_LEVEL = 21;
+
+    private final Map<String, Integer> calls = new TreeMap<>();
+    private int addCount;
+    private int setCount;
+    private int removeCount;
+    private int cameraCount;
+    private long pointCount;
+    private int lastId;
+
+    private final List<RecordedMarker> markers = new ArrayList<>();
+    private final List<RecordedPolyline> polylines = new ArrayList<>();
+    private final List<RecordedCircle> circles = new ArrayList<>();
+
+    private CameraPosition cameraPosition = CameraPosition.fromLatLngZoom(new LatLng(0, 0), 2);
+    private LatLngBounds visibleBounds = new LatLngBounds(new LatLng(-85, -180), new LatLng(85, 180));
+    private float maxZoomPreference = MAX_ZOOM_LEVEL;
+    private GoogleMap.OnCameraIdleListener cameraIdleListener;
+    private GoogleMap.CancelableCallback cameraCallback;
+
+    /**
+     * @return count of added markers, polylines and circles.
+     */
+    int getAddCount() {
+        return addCount;
+    }
+
+    /**
+     * @return count of property changes of markers, polylines and circles.
+     */
+    int getSetCount() {
+        return setCount;
+    }
+
+    /**
+     * @return count of removed markers, polylines and circles.
+     */
+    int getRemoveCount() {
+        return removeCount;
+    }
+
+    /**
+     * @return count of camera reads and animations.
+     */
+    int getCameraCount() {
+        return cameraCount;
+    }
+
+    /**
+     * @return count of all calls.
+     */
+    int getCallCount() {
+        return addCount + setCount + removeCount + cameraCount;
+    }
+
+    /**
+     * @param name name of a call, e.g. "Marker.setPosition" or "Map.addPolyline".
+     */
+    int getCallCount(String name) {
+        Integer count = calls.get(name);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return count of points sent in added polylines and in {@link PolylineHandle#setPoints(List)}.
+     */
+    long getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Resets counters, objects on the map are kept.
+     */
+    void resetCounters() {
+        calls.clear();
+        addCount = 0;
+        setCount = 0;
+        removeCount = 0;
+        cameraCount = 0;
+        pointCount = 0;
+    }
+
+    /**
+     * @return markers that are on the map.
+     */
+    List<RecordedMarker> getMarkers() {
+        return Collections.unmodifiableList(markers);
+    }
+
+    List<RecordedPolyline> getPolylines() {
+        return Collections.unmodifiableList(polylines);
+    }
+
+    List<RecordedCircle> getCircles() {
+        return Collections.unmodifiableList(circles);
+    }
+
+    float getMaxZoomPreference() {
+        return maxZoomPreference;
+    }
+
+    /**
+     * Moves the camera like a user gesture, without counting calls, and notifies the camera idle listener.
+     * A running camera animation is cancelled.
+     */
+    void moveCamera(@NonNull LatLngBounds visibleBounds, float zoom) {
+        cancelCameraAnimation();
+        this.visibleBounds = visibleBounds;
+        cameraPosition = CameraPosition.fromLatLngZoom(visibleBounds.getCenter(), zoom);
+        if (cameraIdleListener != null) {
+            cameraIdleListener.onCameraIdle();
+        }
+    }
+
+    @Override
+    public MarkerHandle addMarker(@NonNull MarkerOptions options) {
+        record("Map.addMarker");
+        addCount++;
+        RecordedMarker marker = new RecordedMarker("m" + ++lastId, options);
+        markers.add(marker);
+        return marker;
+    }
+
+    @Override
+    public PolylineHandle addPolyline(@NonNull PolylineOptions options) {
+        record("Map.addPolyline");
+        addCount++;
+        pointCount += options.getPoints().size();
+        RecordedPolyline polyline = new RecordedPolyline(options);
+        polylines.add(polyline);
+        return polyline;
+    }
+
+    @Override
+    public CircleHandle addCircle(@NonNull CircleOptions options) {
+        record("Map.addCircle");
+        addCount++;
+        RecordedCircle circle = new RecordedCircle(options);
+        circles.add(circle);
+        return circle;
+    }
+
+    @Override
+    public CameraPosition getCameraPosition() {
+        recordCamera("Map.getCameraPosition");
+        return cameraPosition;
+    }
+
+    @Override
+    public LatLngBounds getVisibleBounds() {
+        recordCamera("Map.getVisibleBounds");
+        return visibleBounds;
+    }
+
+    @Override
+    public float getMaxZoomLevel() {
+        recordCamera("Map.getMaxZoomLevel");
+        return maxZoomPreference;
+    }
+
+    @Override
+    public void setMaxZoomPreference(float maxZoomPreference) {
+        recordCamera("Map.setMaxZoomPreference");
+        this.maxZoomPreference = maxZoomPreference;
+    }
+
+    @Override
+    public void setOnCameraIdleListener(@Nullable GoogleMap.OnCameraIdleListener listener) {
+        cameraIdleListener = listener;
+    }
+
+    /**
+     * Finishes the running camera animation and notifies the camera idle listener. The camera position
+     * is changed at once by animateCamera, but the animation runs until it's finished or another one starts.
+     */
+    void finishCameraAnimation() {
+        GoogleMap.CancelableCallback callback = cameraCallback;
+        cameraCallback = null;
+        if (callback != null) {
+            callback.onFinish();
+        }
+        if (cameraIdleListener != null) {
+            cameraIdleListener.onCameraIdle();
+        }
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLng target, float zoom, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        recordCamera("Map.animateCamera");
+        cancelCameraAnimation();
+        cameraPosition = CameraPosition.fromLatLngZoom(target, zoom);
+        cameraCallback = callback;
+    }
+
+    @Override
+    public void animateCamera(@NonNull LatLngBounds bounds, int width, int height, int padding, int duration,
+                              @Nullable GoogleMap.CancelableCallback callback) {
+        recordCamera("Map.animateCamera");
+        cancelCameraAnimation();
+        cameraPosition = CameraPosition.fromLatLngZoom(bounds.getCenter(), cameraPosition.zoom);
+        cameraCallback = callback;
+    }
+
+    private void cancelCameraAnimation() {
+        GoogleMap.CancelableCallback callback = cameraCallback;
+        cameraCallback = null;
+        if (callback != null) {
+            callback.onCancel();
+        }
+    }
+
+    private void record(String name) {
+        Integer count = calls.get(name);
+        calls.put(name, count == null ? 1 : count + 1);
+    }
+
+    private void recordSet(String name) {
+        record(name);
+        setCount++;
+    }
+
+    private void recordRemove(String name) {
+        record(name);
+        removeCount++;
+    }
+
+    private void recordCamera(String name) {
+        record(name);
+        cameraCount++;
+    }
+
+    class RecordedMarker implements MarkerHandle {
+        private final String id;
+        LatLng position;
+        float rotation;
+        BitmapDescriptor icon;
+        boolean isVisible;
+
+        RecordedMarker(String id, MarkerOptions options) {
+            this.id = id;
+            position = options.getPosition();
+            rotation = options.getRotation();
+            icon = options.getIcon();
+            isVisible = options.isVisible();
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void setPosition(@NonNull LatLng position) {
+            recordSet("Marker.setPosition");
+            this.position = position;
+        }
+
+        @Override
+        public void setRotation(float rotation) {
+            recordSet("Marker.setRotation");
+            this.rotation = rotation;
+        }
+
+        @Override
+        public void setIcon(@Nullable BitmapDescriptor icon) {
+            recordSet("Marker.setIcon");
+            this.icon = icon;
+        }
+
+        @Override
+        public void setVisible(boolean visible) {
+            recordSet("Marker.setVisible");
+            isVisible = visible;
+        }
+
+        @Override
+        public void remove() {
+            recordRemove("Marker.remove");
+            markers.remove(this);
+        }
+    }
+
+    class RecordedPolyline implements PolylineHandle {
+        List<LatLng> points;
+        int color;
+        float width;
+        List<PatternItem> pattern;
+
+        RecordedPolyline(PolylineOptions options) {
+            points = new ArrayList<>(options.getPoints());
+            color = options.getColor();
+            width = options.getWidth();
+            pattern = options.getPattern();
+        }
+
+        @Override
+        public void setPoints(@NonNull List<LatLng> points) {
+            recordSet("Polyline.setPoints");
+            pointCount += points.size();
+            this.points = new ArrayList<>(points);
+        }
+
+        @Override
+        public void setColor(int color) {
+            recordSet("Polyline.setColor");
+            this.color = color;
+        }
+
+        @Override
+        public void setWidth(float width) {
+            recordSet("Polyline.setWidth");
+            this.width = width;
+        }
+
+        @Override
+        public void setPattern(@Nullable List<PatternItem> pattern) {
+            recordSet("Polyline.setPattern");
+            this.pattern = pattern;
+        }
+
+        @Override
+        public void remove() {
+            recordRemove("Polyline.remove");
+            polylines.remove(this);
+        }
+    }
+
+    class RecordedCircle implements CircleHandle {
+        LatLng center;
+        double radius;
+        int fillColor;
+        int strokeColor;
+        float strokeWidth;
+
+        RecordedCircle(CircleOptions options) {
+            center = options.getCenter();
+            radius = options.getRadius();
+            fillColor = options.getFillColor();
+            strokeColor = options.getStrokeColor();
+            strokeWidth = options.getStrokeWidth();
+        }
+
+        @Override
+        public void setCenter(@NonNull LatLng center) {
+            recordSet("Circle.setCenter");
+            this.center = center;
+        }
+
+        @Override
+        public void setRadius(double radius) {
+            recordSet("Circle.setRadius");
+            this.radius = radius;
+        }
+
+        @Override
+        public void setFillColor(int color) {
+            recordSet("Circle.setFillColor");
+            fillColor = color;
+        }
+
+        @Override
+        public void setStrokeColor(int color) {
+            recordSet("Circle.setStrokeColor");
+            strokeColor = color;
+        }
+
+        @Override
+        public void setStrokeWidth(float width) {
+            recordSet("Circle.setStrokeWidth");
+            strokeWidth = width;
+        }
+
+        @Override
+        public void remove() {
+            recordRemove("Circle.remove");
+            circles.remove(this);
+        }
+    }
+}
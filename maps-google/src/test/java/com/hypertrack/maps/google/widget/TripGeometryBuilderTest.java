@@ -0,0 +1,54 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hypertrack.maps.google.widget.AdapterFixture.locations;
+import static com.hypertrack.maps.google.widget.AdapterFixture.point;
+import static com.hypertrack.maps.google.widget.AdapterFixture.trip;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TripGeometryBuilderTest {
+    private final TripGeometryBuilder builder = new TripGeometryBuilder(1);
+
+    @Test
+    public void cutsComingRouteAtMyPositionWithoutCopyingIt() {
+        List<Trip.Point2D> estimate = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            estimate.add(point(37.78 + i * 1e-3, -122.42 + (i % 2) * 5e-4));
+        }
+        Trip.Point2D destination = point(37.83, -122.42);
+        List<Location> locations = locations(10);
+        Trip trip = trip("trip", "active", locations, estimate, destination);
+
+        TripGeometry first = builder.build(new TripGeometryBuilder.Request(trip, new LatLng(37.7905, -122.42), 15));
+        List<LatLng> route = first.comingRoute;
+        assertEquals(new LatLng(37.7905, -122.42), route.get(0));
+        assertTrue(route.get(1).latitude > 37.7905);
+        assertEquals(new LatLng(37.83, -122.42), route.get(route.size() - 1));
+        assertEquals(first.comingRouteBase.size() - first.comingRouteOffset + 1, route.size());
+
+        TripGeometry second = builder.build(new TripGeometryBuilder.Request(trip, new LatLng(37.8005, -122.42), 15));
+        assertSame(first.comingRouteBase, second.comingRouteBase);
+        assertNotSame(first.comingRoute, second.comingRoute);
+        assertTrue(second.comingRouteOffset > first.comingRouteOffset);
+        assertTrue(second.comingRoute.get(1).latitude > 37.8005);
+
+        TripGeometry same = builder.build(new TripGeometryBuilder.Request(trip, new LatLng(37.8005, -122.42), 15));
+        assertSame(second.comingRoute, same.comingRoute);
+
+        // a new estimate list with the same points keeps the base
+        Trip updated = trip("trip", "active", locations, new ArrayList<>(estimate), destination);
+        TripGeometry copy = builder.build(new TripGeometryBuilder.Request(updated, new LatLng(37.8005, -122.42), 15));
+        assertSame(second.comingRouteBase, copy.comingRouteBase);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hypertrack.maps.google.widget;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.hypertrack.maps.google.utils.QuadTreeIndex;
+import com.hypertrack.sdk.views.dao.Location;
+import com.hypertrack.sdk.views.dao.Trip;
+import com.hypertrack.sdk.views.maps.models.MapObject;
+import com.hypertrack.sdk.views.maps.models.MapTrip;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.hypertrack.maps.google.widget.AdapterFixture.point;
+import static com.hypertrack.maps.google.widget.AdapterFixture.trip;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TripSpatialEntriesTest {
+    private final QuadTreeIndex<MapObject> index = new QuadTreeIndex<>();
+    private final TripGeometryBuilder builder = new TripGeometryBuilder(1);
+
+    @Test
+    public void followsCutOfComingRoute() {
+        List<Trip.Point2D> estimate = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            estimate.add(point(37.78 + i * 1e-3, -122.42 + (i % 2) * 5e-4));
+        }
+        Trip trip = trip("trip", "active", Collections.<Location>emptyList(), estimate, null);
+        TripSpatialEntries entries = new TripSpatialEntries(index, new MapTrip(trip) {
+            @Override
+            public void update(Trip trip) {
+            }
+
+            @Override
+            public void remove() {
+            }
+        });
+
+        TripGeometry start = build(trip, 37.7805);
+        entries.update(start);
+        int segments = start.comingRouteBase.size() - 1;
+        // segments ahead of my position, the segment from my position and the origin
+        assertEquals(segments - start.comingRouteOffset + 2, index.size());
+        assertTrue(hasEntries(37.781, 37.783));
+
+        TripGeometry moved = build(trip, 37.8105);
+        entries.update(moved);
+        assertEquals(segments - moved.comingRouteOffset + 2, index.size());
+        assertFalse(hasEntries(37.781, 37.783));
+        assertTrue(hasEntries(37.812, 37.814));
+
+        // moving back restores passed segments
+        entries.update(build(trip, 37.7805));
+        assertTrue(hasEntries(37.781, 37.783));
+
+        entries.clear();
+        assertEquals(0, index.size());
+    }
+
+    private TripGeometry build(Trip trip, double latitude) {
+        return builder.build(new TripGeometryBuilder.Request(trip, new LatLng(latitude, -122.42), 15));
+    }
+
+    private boolean hasEntries(double south, double north) {
+        List<MapObject> result = new ArrayList<>();
+        index.query(south, -122.43, north, -122.41, result);
+        return !result.isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package com.hypertrack.maps.google.widget;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ViewportCullerTest {
+
+    @Test
+    public void everythingIsVisibleUntilViewportIsKnown() {
+        ViewportCuller culler = new ViewportCuller(true, 0.5f);
+        assertTrue(culler.isVisible(-10, -10, -9, -9));
+        assertTrue(culler.isVisible(null));
+    }
+
+    @Test
+    public void checksIntersectionWithMargin() {
+        ViewportCuller culler = new ViewportCuller(true, 0.5f);
+        culler.setViewport(37, -123, 38, -122);
+
+        assertTrue(culler.isVisible(37.2, -122.8, 37.4, -122.6));
+        assertTrue(culler.isVisible(36, -124, 39, -121));
+        assertTrue(culler.isVisible(38.3, -122.5, 38.4, -122.4));
+        assertFalse(culler.isVisible(38.6, -122.5, 38.7, -122.4));
+        assertFalse(culler.isVisible(37.2, -121.4, 37.4, -121.2));
+        assertFalse(culler.isVisible(-37.5, 57.5, -37.4, 57.6));
+    }
+
+    @Test
+    public void handlesAntimeridian() {
+        ViewportCuller culler = new ViewportCuller(true, 0);
+        culler.setViewport(-20, 175, -10, -175);
+
+        assertTrue(culler.isVisible(-15, 178, -14, 179));
+        assertTrue(culler.isVisible(-15, -179, -14, -178));
+        assertTrue(culler.isVisible(-15, 170, -14, -170));
+        assertFalse(culler.isVisible(-15, -170, -14, -160));
+
+        culler.setViewport(-20, -5, -10, 5);
+        assertTrue(culler.isVisible(-15, 179, -14, 1));
+        assertFalse(culler.isVisible(-15, 170, -14, 175));
+    }
+
+    @Test
+    public void disabledCullerShowsEverything() {
+        ViewportCuller culler = new ViewportCuller(false, 0);
+        culler.setViewport(37, -123, 38, -122);
+        assertTrue(culler.isVisible(-37.5, 57.5, -37.4, 57.6));
+    }
+}